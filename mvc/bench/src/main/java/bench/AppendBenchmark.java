@@ -0,0 +1,51 @@
+package bench;
+
+import model.Pledge;
+import org.openjdk.jmh.annotations.*;
+import repo.CsvDb;
+import repo.DbOptions;
+import repo.PledgeJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/** One {@link CsvDb#appendPledge} per op, on a copy of the dataset, under each fsync policy. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class AppendBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long pledges;
+
+    @Param({"OS", "GROUP_COMMIT", "EVERY_RECORD"})
+    public PledgeJournal.FsyncPolicy fsync;
+
+    private Path dir;
+    private CsvDb db;
+    private Pledge pledge;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Datasets.copy(Datasets.get(pledges));
+        DbOptions opts = new DbOptions();
+        opts.fsyncPolicy = fsync;
+        db = new CsvDb(dir, opts);
+        pledge = new Pledge(db.nextPledgeId(), "u1", "10000000", LocalDateTime.now(), 250, "Early Bird", "SUCCESS");
+    }
+
+    @Benchmark
+    public void appendPledge() throws IOException {
+        db.appendPledge(pledge);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        db.close();
+        Datasets.delete(dir);
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import repo.CsvDb;
+import repo.CsvReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a whole pledges.csv line by line: {@link CsvDb#parseCsvLine} on each String
+ * versus the streaming {@link CsvReader} the loaders use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvParseBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long pledges;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = Datasets.get(pledges).resolve("pledges.csv");
+    }
+
+    @Benchmark
+    public void parseCsvLine(Blackhole bh) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) bh.consume(CsvDb.parseCsvLine(line));
+        }
+    }
+
+    @Benchmark
+    public void csvReader(Blackhole bh) throws IOException {
+        try (CsvReader in = CsvReader.open(file)) {
+            in.next(); // header
+            while (in.next()) {
+                bh.consume(in.cachedField(1));
+                bh.consume(in.longField(4));
+            }
+        }
+    }
+}
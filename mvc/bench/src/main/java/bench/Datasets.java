@@ -0,0 +1,57 @@
+package bench;
+
+import app.DatasetGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generated datasets shared by all benchmarks, cached under ${java.io.tmpdir}/crowdfund-bench/&lt;pledges&gt;.
+ * A cached set is regenerated after 30 days, before its deadlines (60+ days out) could pass.
+ * Benchmarks that write get a private {@link #copy}.
+ */
+final class Datasets {
+    static final Path ROOT = Paths.get(System.getProperty("java.io.tmpdir"), "crowdfund-bench");
+    private static final String MARKER = "generated-on";
+
+    private Datasets() {}
+
+    static synchronized Path get(long pledges) throws IOException {
+        Path dir = ROOT.resolve(String.valueOf(pledges));
+        Path marker = dir.resolve(MARKER);
+        if (Files.exists(marker)) {
+            LocalDate made = LocalDate.parse(Files.readString(marker).trim());
+            if (!made.plusDays(30).isBefore(LocalDate.now())) return dir;
+        }
+        delete(dir);
+        DatasetGenerator.write(dir, DatasetGenerator.defaultProjects(pledges), DatasetGenerator.defaultUsers(pledges), pledges, 42);
+        Files.write(marker, List.of(LocalDate.now().toString()), StandardCharsets.UTF_8);
+        return dir;
+    }
+
+    static int users(long pledges) { return DatasetGenerator.defaultUsers(pledges); }
+
+    static int projects(long pledges) { return DatasetGenerator.defaultProjects(pledges); }
+
+    /** A throw-away copy of the CSV tables for benchmarks that append or rewrite them. */
+    static Path copy(Path dir) throws IOException {
+        Path out = Files.createTempDirectory(ROOT, "run-");
+        try (DirectoryStream<Path> csvs = Files.newDirectoryStream(dir, "*.csv")) {
+            for (Path p : csvs) Files.copy(p, out.resolve(p.getFileName()));
+        }
+        return out;
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}
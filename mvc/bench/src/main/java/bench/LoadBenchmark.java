@@ -0,0 +1,43 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import repo.CsvDb;
+import repo.DbOptions;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Cold-start cost: {@link CsvDb#loadAll()} re-reads every table and rebuilds the derived indexes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class LoadBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long pledges;
+
+    @Param({"false", "true"})
+    public boolean parallelLoad;
+
+    private CsvDb db;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        DbOptions opts = new DbOptions();
+        opts.parallelLoad = parallelLoad;
+        db = new CsvDb(Datasets.get(pledges), opts);
+    }
+
+    @Benchmark
+    public int loadAll() throws IOException {
+        db.loadAll();
+        return db.pledges.size();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        db.close();
+    }
+}
@@ -0,0 +1,44 @@
+package bench;
+
+import app.DatasetGenerator;
+import controller.CrowdfundController;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** {@link CrowdfundController#login} with a random existing username, in mixed case. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class LoginBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long pledges;
+
+    private CrowdfundController controller;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        controller = new CrowdfundController(Datasets.get(pledges));
+        names = new String[Math.min(4096, Datasets.users(pledges))];
+        for (int i = 0; i < names.length; i++) {
+            String n = DatasetGenerator.username(ThreadLocalRandom.current().nextInt(Datasets.users(pledges)));
+            names[i] = i % 2 == 0 ? n : n.toUpperCase();
+        }
+    }
+
+    @Benchmark
+    public boolean login() {
+        return controller.login(names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        controller.close();
+    }
+}
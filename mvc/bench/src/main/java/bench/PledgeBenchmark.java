@@ -0,0 +1,85 @@
+package bench;
+
+import app.DatasetGenerator;
+import controller.CrowdfundController;
+import controller.Session;
+import org.openjdk.jmh.annotations.*;
+import repo.DbOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link CrowdfundController#pledge(Session, String, long, String)} throughput, including
+ * persistence, on a copy of the dataset. {@code pledgeThreads} runs 4 threads; change it with {@code -t N}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PledgeBenchmark {
+    private static final String[] TIERS = {"", "", "Early Bird", "Silver"};
+
+    @Param({"1000", "100000"})
+    public long pledges;
+
+    /** default = tables rewritten per pledge; wal+batch = WAL records plus group commit. */
+    @Param({"default", "wal+batch"})
+    public String mode;
+
+    private Path dir;
+    CrowdfundController controller;
+    int projects;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Datasets.copy(Datasets.get(pledges));
+        DbOptions opts = new DbOptions();
+        if (mode.equals("wal+batch")) {
+            opts.wal = true;
+            opts.batchSize = 256;
+        }
+        controller = new CrowdfundController(dir, opts);
+        projects = Datasets.projects(pledges);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        controller.close();
+        Datasets.delete(dir);
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Session session;
+        SplittableRandom rnd;
+
+        @Setup(Level.Trial)
+        public void login(PledgeBenchmark b) {
+            rnd = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+            session = b.controller.openSession(DatasetGenerator.username(rnd.nextInt(Datasets.users(b.pledges))));
+        }
+    }
+
+    private String pledge(Client c) throws IOException {
+        return controller.pledge(c.session, DatasetGenerator.projectId(c.rnd.nextInt(projects)),
+                25 + c.rnd.nextInt(500), TIERS[c.rnd.nextInt(TIERS.length)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String pledgeSingle(Client c) throws IOException {
+        return pledge(c);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String pledgeThreads(Client c) throws IOException {
+        return pledge(c);
+    }
+}
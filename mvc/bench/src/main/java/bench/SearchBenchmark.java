@@ -0,0 +1,52 @@
+package bench;
+
+import controller.CrowdfundController;
+import controller.ProjectPage;
+import org.openjdk.jmh.annotations.*;
+import repo.DbOptions;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page (50 rows) of {@link CrowdfundController#search} for each sort key, with and without a keyword.
+ * cacheEntries 0 measures the index path, 256 the search cache (repeat queries are hits).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class SearchBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long pledges;
+
+    @Param({"Default", "Ending Soon", "Raised (High→Low)", "Newest Id"})
+    public String sort;
+
+    @Param({"", "smart", "1000004"})
+    public String keyword;
+
+    @Param({"0", "256"})
+    public int cacheEntries;
+
+    private CrowdfundController controller;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        DbOptions options = new DbOptions();
+        options.searchCacheEntries = cacheEntries;
+        controller = new CrowdfundController(Datasets.get(pledges), options);
+    }
+
+    @Benchmark
+    public ProjectPage search() {
+        return controller.search(keyword, "All", sort, 0, 50);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        controller.close();
+    }
+}
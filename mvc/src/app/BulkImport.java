@@ -0,0 +1,159 @@
+package app;
+
+import controller.BulkImporter;
+import controller.CrowdfundController;
+import controller.PledgeRequest;
+import repo.CsvReader;
+import repo.DbOptions;
+import server.Json;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Imports a file of pledge requests through {@link CrowdfundController#importPledges}.
+ * <pre>
+ * CSV   header names the columns: user (or userId / username), projectId, amount, tier (or tierName), datetime (optional)
+ * JSONL one object per line with the same keys: {"user":"alice1","projectId":"10000001","amount":250,"tier":"Gold"}
+ * </pre>
+ * Lines that do not parse are counted and skipped.
+ *
+ * Usage: java -cp out app.BulkImport dataDir requests.(csv|jsonl) [checkpointEvery] [wal]
+ */
+public class BulkImport {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: BulkImport dataDir requests.(csv|jsonl) [checkpointEvery] [wal]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[1]);
+        int checkpointEvery = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        DbOptions opts = new DbOptions();
+        opts.wal = args.length > 3 && "wal".equalsIgnoreCase(args[3]);
+
+        try (CrowdfundController controller = new CrowdfundController(Paths.get(args[0]), opts);
+             RequestReader in = input.toString().endsWith(".csv") ? new CsvRequests(input) : new JsonLines(input)) {
+            BulkImporter.Result r = controller.importPledges(in, checkpointEvery);
+            System.out.print(r);
+            if (in.malformed > 0) System.out.println("  malformed " + in.malformed + " lines (first: " + in.firstError + ")");
+        }
+    }
+
+    /** Reads ahead one request so hasNext() can skip lines that do not parse. */
+    private abstract static class RequestReader implements Iterator<PledgeRequest>, Closeable {
+        long malformed;
+        String firstError;
+        private PledgeRequest next;
+
+        /** Next request, or null at the end of the file. */
+        abstract PledgeRequest read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                try {
+                    next = read();
+                    if (next == null) return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    if (malformed++ == 0) firstError = e.getMessage();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public PledgeRequest next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            PledgeRequest r = next;
+            next = null;
+            return r;
+        }
+    }
+
+    private static final class CsvRequests extends RequestReader {
+        private final CsvReader in;
+        private final int user, project, amount, tier, datetime;
+
+        CsvRequests(Path file) throws IOException {
+            in = CsvReader.open(file);
+            if (!in.next()) throw new IOException(file + " is empty");
+            Map<String, Integer> cols = new HashMap<>();
+            for (int i = 0; i < in.fieldCount(); i++) cols.put(in.field(i).trim().toLowerCase(Locale.ROOT), i);
+            user = column(cols, "user", "userid", "username");
+            project = column(cols, "projectid");
+            amount = column(cols, "amount");
+            tier = column(cols, "tier", "tiername");
+            datetime = column(cols, "datetime");
+            if (user < 0 || project < 0 || amount < 0) throw new IOException(file + ": header needs user, projectId and amount");
+        }
+
+        private static int column(Map<String, Integer> cols, String... names) {
+            for (String n : names) if (cols.containsKey(n)) return cols.get(n);
+            return -1;
+        }
+
+        @Override
+        PledgeRequest read() throws IOException {
+            while (in.next()) {
+                if (in.isBlank()) continue;
+                try {
+                    return new PledgeRequest(in.field(user), in.field(project), in.longField(amount),
+                            tier >= 0 && tier < in.fieldCount() ? in.field(tier) : "",
+                            datetime >= 0 && datetime < in.fieldCount() && !in.field(datetime).isEmpty() ? in.dateTimeField(datetime) : null);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("line " + in.lineNumber() + ": " + e.getMessage(), e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+
+    private static final class JsonLines extends RequestReader {
+        private final BufferedReader in;
+        private long lineNo = 0;
+
+        JsonLines(Path file) throws IOException {
+            in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        PledgeRequest read() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                try {
+                    Map<String, Object> o = Json.parseObject(line);
+                    Object user = o.containsKey("user") ? o.get("user") : o.containsKey("userId") ? o.get("userId") : o.get("username");
+                    Object tier = o.containsKey("tier") ? o.get("tier") : o.get("tierName");
+                    Object at = o.get("datetime");
+                    if (!(user instanceof String) || !(o.get("projectId") instanceof String) || !(o.get("amount") instanceof Long)) {
+                        throw new IllegalArgumentException("needs user, projectId and an integer amount");
+                    }
+                    return new PledgeRequest((String) user, (String) o.get("projectId"), (Long) o.get("amount"),
+                            tier instanceof String ? (String) tier : "",
+                            at instanceof String ? LocalDateTime.parse((String) at) : null);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("line " + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+}
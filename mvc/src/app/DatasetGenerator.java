@@ -0,0 +1,153 @@
+package app;
+
+import model.RejectReason;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Writes a synthetic but self-consistent data directory: a few popular projects get most pledges,
+ * some names need CSV quoting, tier quotas and raised totals agree with the pledges, and
+ * rejected pledges carry the reason the controller would give. Deadlines lie 60-240 days ahead,
+ * so new pledges against the data succeed. Same seed, same files.
+ *
+ * Usage: java -cp out app.DatasetGenerator outDir pledges [projects] [users] [seed]
+ */
+public class DatasetGenerator {
+    private static final String[] CATEGORIES = {"Tech", "Games", "Art", "Music", "Film", "Food", "Design", "Publishing"};
+    private static final String[] ADJECTIVES = {"Smart", "Tiny", "Solar", "Retro", "Open", "Wild", "Quiet", "Modular",
+            "Urban", "Pocket", "Cosmic", "Analog", "Electric", "Hidden", "Golden", "Nordic"};
+    private static final String[] NOUNS = {"Garden", "Console", "Camera", "Cookbook", "Synth", "Board Game", "Backpack",
+            "Lamp", "Documentary", "Album", "Keyboard", "Atlas", "Bike", "Comic", "Speaker", "Kitchen"};
+    private static final String[] FIRST_NAMES = {"alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi",
+            "ivan", "judy", "mallory", "niaj", "olivia", "peggy", "rupert", "sybil", "trent", "victor", "walter", "yuki"};
+    private static final String[] TIERS = {"Early Bird", "Silver", "Gold", "Platinum"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DatasetGenerator outDir pledges [projects] [users] [seed]");
+            System.exit(2);
+        }
+        long pledges = Long.parseLong(args[1]);
+        int projects = args.length > 2 ? Integer.parseInt(args[2]) : defaultProjects(pledges);
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : defaultUsers(pledges);
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        long t0 = System.nanoTime();
+        write(Paths.get(args[0]), projects, users, pledges, seed);
+        System.out.println(projects + " projects, " + users + " users, " + pledges + " pledges in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+    }
+
+    /** One project per 100 pledges, at least 50. */
+    public static int defaultProjects(long pledges) { return (int) Math.max(50, Math.min(1_000_000, pledges / 100)); }
+
+    /** One user per 50 pledges, at least 20. */
+    public static int defaultUsers(long pledges) { return (int) Math.max(20, Math.min(5_000_000, pledges / 50)); }
+
+    public static String projectId(int i) { return String.valueOf(10_000_000 + i); }
+
+    public static String userId(int i) { return "u" + (i + 1); }
+
+    public static String username(int i) { return FIRST_NAMES[i % FIRST_NAMES.length] + (i / FIRST_NAMES.length + 1); }
+
+    public static void write(Path dir, int projects, int users, long pledges, long seed) throws IOException {
+        Files.createDirectories(dir);
+        Random rnd = new Random(seed);
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        String[] category = new String[projects];
+        long[] raised = new long[projects];
+        long[][] tierMin = new long[projects][];
+        int[][] quota = new int[projects][];
+        for (int p = 0; p < projects; p++) {
+            category[p] = CATEGORIES[rnd.nextInt(CATEGORIES.length)];
+            int n = 2 + rnd.nextInt(3);
+            tierMin[p] = new long[n];
+            quota[p] = new int[n];
+            long min = 5 + rnd.nextInt(20);
+            for (int t = 0; t < n; t++) {
+                tierMin[p][t] = min;
+                quota[p][t] = 50 + rnd.nextInt(5000);
+                min *= 3 + rnd.nextInt(3);
+            }
+        }
+
+        // pledges first: raised and the remaining quotas depend on them
+        long rejected = 0;
+        String[] reasons = new String[]{RejectReason.DEADLINE_PASSED.name(), RejectReason.TIER_NOT_FOUND.name(),
+                RejectReason.BELOW_TIER_MIN.name(), RejectReason.QUOTA_EXHAUSTED.name()};
+        StringBuilder line = new StringBuilder(96);
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("pledges.csv"), StandardCharsets.UTF_8)) {
+            w.write("pledgeId,userId,projectId,datetime,amount,tierName,status,reason,idempotencyKey\n");
+            for (long i = 1; i <= pledges; i++) {
+                double r = rnd.nextDouble();
+                int p = (int) (projects * r * r * r); // skewed: the first projects are the popular ones
+                String status = "SUCCESS", reason = "", tier = "";
+                long amount;
+                if (rnd.nextInt(10) < 7) {
+                    int t = rnd.nextInt(tierMin[p].length);
+                    tier = TIERS[t];
+                    amount = tierMin[p][t] + rnd.nextInt((int) Math.min(Integer.MAX_VALUE, tierMin[p][t] * 2));
+                    if (rnd.nextInt(25) == 0) {
+                        status = "REJECTED";
+                        reason = reasons[2];
+                        amount = Math.max(1, tierMin[p][t] / 2);
+                    } else if (quota[p][t] == 0) {
+                        status = "REJECTED";
+                        reason = reasons[3];
+                    } else {
+                        quota[p][t]--;
+                    }
+                } else {
+                    amount = 1 + rnd.nextInt(200);
+                    if (rnd.nextInt(40) == 0) {
+                        status = "REJECTED";
+                        reason = reasons[rnd.nextInt(2)];
+                        tier = reason.equals(reasons[1]) ? "Bronze" : "";
+                    }
+                }
+                if (status.equals("SUCCESS")) raised[p] += amount;
+                else rejected++;
+                LocalDateTime at = now.minusSeconds(rnd.nextInt(90 * 86_400)).withNano(rnd.nextInt(1000) * 1_000_000);
+                line.setLength(0);
+                line.append("pl").append(i).append(",u").append(rnd.nextInt(users) + 1).append(',')
+                        .append(10_000_000 + p).append(',').append(at).append(',').append(amount).append(',')
+                        .append(tier).append(',').append(status).append(',').append(reason).append('\n');
+                w.append(line);
+            }
+        }
+
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("reward_tiers.csv"), StandardCharsets.UTF_8)) {
+            w.write("projectId,tierName,minAmount,quota\n");
+            for (int p = 0; p < projects; p++) {
+                for (int t = 0; t < tierMin[p].length; t++) {
+                    w.write(projectId(p) + "," + TIERS[t] + "," + tierMin[p][t] + "," + quota[p][t] + "\n");
+                }
+            }
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("projects.csv"), StandardCharsets.UTF_8)) {
+            w.write("projectId,name,category,target,deadline,raised\n");
+            for (int p = 0; p < projects; p++) {
+                String name = ADJECTIVES[rnd.nextInt(ADJECTIVES.length)] + " " + NOUNS[rnd.nextInt(NOUNS.length)];
+                if (rnd.nextInt(20) == 0) name = "\"" + name + ", Deluxe Edition\"";
+                else if (rnd.nextInt(3) == 0) name += " " + (p % 97 + 2);
+                long target = (long) Math.pow(10, 3 + rnd.nextDouble() * 3);
+                w.write(projectId(p) + "," + name + "," + category[p] + "," + target + ","
+                        + today.plusDays(60 + rnd.nextInt(180)) + "," + raised[p] + "\n");
+            }
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("users.csv"), StandardCharsets.UTF_8)) {
+            w.write("userId,username\n");
+            for (int u = 0; u < users; u++) w.write(userId(u) + "," + username(u) + "\n");
+        }
+        Files.write(dir.resolve("stats.csv"), List.of("key,value", "rejectedCount," + rejected), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,131 @@
+package app;
+
+import metrics.Histogram;
+import metrics.Metrics;
+import server.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for {@link server.CrowdfundServer}: each client logs in once, then loops over
+ * a mix of searches, project reads and pledges on keep-alive connections, and the run ends with throughput
+ * and latency percentiles per request type. Projects and users are read from the server itself.
+ *
+ * Usage: java -cp out app.LoadGen [baseUrl] [clients] [seconds] [pledgePercent] [usersCsv]
+ */
+public class LoadGen {
+    private static final String[] SORTS = {"Default", "Ending Soon", "Raised (High→Low)", "Newest Id", "Trending (24h)"};
+    private static final String[] KEYWORDS = {"", "", "smart", "garden", "1000"};
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int pledgePct = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+        Metrics.setEnabled(true); // this process's own registry, used for client-side latencies
+        Map<String, Histogram> latency = new ConcurrentHashMap<>();
+        Map<String, LongAdder> status = new ConcurrentSkipListMap<>();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors())))
+                .build();
+
+        List<String> projectIds = new ArrayList<>();
+        String page = http.send(get(base + "/api/projects?limit=500"), HttpResponse.BodyHandlers.ofString()).body();
+        for (int i = page.indexOf("\"projectId\":\""); i >= 0; i = page.indexOf("\"projectId\":\"", i + 1)) {
+            projectIds.add(page.substring(i + 13, page.indexOf('"', i + 13)));
+        }
+        if (projectIds.isEmpty()) throw new IllegalStateException("no projects at " + base);
+        List<String> usernames = usernames(args.length > 4 ? args[4] : null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            final int id = c;
+            pool.execute(() -> {
+                SplittableRandom rnd = new SplittableRandom(id);
+                try {
+                    String token = login(http, base, usernames.get(id % usernames.size()));
+                    while (System.nanoTime() < deadline) {
+                        int roll = rnd.nextInt(100);
+                        String type;
+                        HttpRequest req;
+                        String pid = projectIds.get(rnd.nextInt(projectIds.size()));
+                        if (roll < pledgePct) {
+                            type = "pledge";
+                            String body = new Json().beginObject().field("projectId", pid)
+                                    .field("amount", 10 + rnd.nextInt(500)).field("tier", "").endObject().toString();
+                            req = HttpRequest.newBuilder(URI.create(base + "/api/pledges"))
+                                    .header("Authorization", "Bearer " + token)
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+                        } else if (roll < pledgePct + (100 - pledgePct) / 4) {
+                            type = "detail";
+                            req = get(base + "/api/projects/" + pid);
+                        } else {
+                            type = "search";
+                            req = get(base + "/api/projects?limit=20&q=" + KEYWORDS[rnd.nextInt(KEYWORDS.length)]
+                                    + "&sort=" + java.net.URLEncoder.encode(SORTS[rnd.nextInt(SORTS.length)], "UTF-8"));
+                        }
+                        long t = System.nanoTime();
+                        HttpResponse<Void> res = http.send(req, HttpResponse.BodyHandlers.discarding());
+                        latency.computeIfAbsent(type, k -> Metrics.latency("client." + k)).recordSince(t);
+                        status.computeIfAbsent(type + " " + res.statusCode(), k -> new LongAdder()).increment();
+                    }
+                } catch (Exception e) {
+                    status.computeIfAbsent("error " + e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        pool.shutdown();
+
+        long total = 0;
+        for (Histogram h : latency.values()) total += h.getCount();
+        System.out.printf("%d clients, %d s: %d requests, %.0f req/s%n", clients, seconds, total, total / (double) seconds);
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %9s%n", "type", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(latency).entrySet()) {
+            Histogram h = e.getValue();
+            System.out.printf("%-10s %9d %9.0f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), h.getCount(), h.getCount() / (double) seconds,
+                    h.getP50() / 1e6, h.getP99() / 1e6, h.getP999() / 1e6, h.getMax() / 1e6);
+        }
+        System.out.println("responses: " + status);
+        System.exit(0);
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+
+    private static String login(HttpClient http, String base, String username) throws Exception {
+        String body = new Json().beginObject().field("username", username).endObject().toString();
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(base + "/api/sessions"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("login " + username + ": " + res.body());
+        return (String) Json.parseObject(res.body()).get("token");
+    }
+
+    // users.csv of the served data directory when given, else the names DatasetGenerator uses
+    private static List<String> usernames(String usersCsv) throws Exception {
+        List<String> out = new ArrayList<>();
+        if (usersCsv != null) {
+            List<String> lines = java.nio.file.Files.readAllLines(java.nio.file.Paths.get(usersCsv));
+            for (String l : lines.subList(1, lines.size())) if (!l.isBlank()) out.add(repo.CsvDb.parseCsvLine(l)[1]);
+        } else {
+            for (int i = 0; i < 20; i++) out.add(DatasetGenerator.username(i));
+        }
+        return out;
+    }
+}
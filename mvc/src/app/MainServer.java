@@ -0,0 +1,134 @@
+package app;
+
+import controller.CrowdfundController;
+import controller.CrowdfundService;
+import controller.Partition;
+import controller.PartitionRouter;
+import metrics.Metrics;
+import repo.DbOptions;
+import repo.PartitionLayout;
+import server.CrowdfundServer;
+import server.RemotePartition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless mode: serves the JSON API of {@link CrowdfundServer} instead of opening the Swing window.
+ * A partitioned data directory (see {@link PartitionLayout}) is served through a {@link PartitionRouter}:
+ * partitions load in this JVM by default, {@code spawn} starts one {@link PartitionNode} JVM per partition,
+ * and {@code remote=host:port,...} uses partitions already running (listed in partition order).
+ *
+ * Usage: java -cp out app.MainServer [dataDir] [port] [maxPendingPledges] [wal] [batch] [metrics] [spawn | remote=host:port,...]
+ */
+public class MainServer {
+    public static void main(String[] args) throws Exception {
+        String dataDir = args.length > 0 ? args[0] : "data";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int maxPending = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        boolean spawn = false;
+        String remote = null;
+        for (int i = 3; i < args.length; i++) {
+            if ("spawn".equalsIgnoreCase(args[i])) spawn = true;
+            if (args[i].startsWith("remote=")) remote = args[i].substring(7);
+        }
+        DbOptions opts = options(args, 3);
+        Metrics.registerMBeans();
+
+        Path data = Paths.get(dataDir);
+        List<Process> children = new ArrayList<>();
+        CrowdfundService service;
+        String mode;
+        if (remote != null) {
+            String[] hosts = remote.split(",");
+            List<Partition> parts = new ArrayList<>();
+            for (int k = 0; k < hosts.length; k++) {
+                int colon = hosts[k].lastIndexOf(':');
+                parts.add(new RemotePartition(new InetSocketAddress(hosts[k].substring(0, colon),
+                        Integer.parseInt(hosts[k].substring(colon + 1))), k, hosts.length));
+            }
+            service = new PartitionRouter(parts, opts);
+            mode = hosts.length + " remote partitions";
+        } else if (PartitionLayout.exists(data)) {
+            if (spawn) {
+                service = new PartitionRouter(spawnPartitions(data, args, children), opts);
+                mode = children.size() + " partition JVMs";
+            } else {
+                service = PartitionRouter.openLocal(data, () -> options(args, 3));
+                mode = PartitionLayout.count(data) + " partitions in this JVM";
+            }
+        } else {
+            service = new CrowdfundController(data, opts);
+            mode = "one catalog";
+        }
+
+        CrowdfundServer server = new CrowdfundServer(service, new InetSocketAddress(port), maxPending);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                service.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            for (Process p : children) {
+                try {
+                    p.getOutputStream().close(); // PartitionNode ... parent exits on stdin EOF
+                    if (!p.waitFor(30, TimeUnit.SECONDS)) p.destroy();
+                } catch (Exception e) {
+                    p.destroy();
+                }
+            }
+        }, "crowdfund-shutdown"));
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getAddress().getPort() + "/api/projects (data: " + dataDir + ", " + mode + ")");
+    }
+
+    /** DbOptions from the wal / batch / metrics flags in {@code args[from..]}. */
+    static DbOptions options(String[] args, int from) {
+        DbOptions opts = new DbOptions();
+        for (int i = from; i < args.length; i++) {
+            if ("wal".equalsIgnoreCase(args[i])) opts.wal = true;
+            if ("batch".equalsIgnoreCase(args[i])) opts.batchSize = 256;
+            if ("metrics".equalsIgnoreCase(args[i])) Metrics.setEnabled(true);
+        }
+        return opts;
+    }
+
+    /** Starts one PartitionNode per partition on a free loopback port, all loading at once, and connects to each. */
+    private static List<Partition> spawnPartitions(Path data, String[] args, List<Process> children) throws IOException {
+        int n = PartitionLayout.count(data);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int k = 0; k < n; k++) {
+            List<String> cmd = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                    PartitionNode.class.getName(), data.toString(), String.valueOf(k), "0"));
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].equalsIgnoreCase("wal") || args[i].equalsIgnoreCase("batch") || args[i].equalsIgnoreCase("metrics")) cmd.add(args[i]);
+            }
+            cmd.add("parent");
+            children.add(new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        }
+        List<Partition> parts = new ArrayList<>();
+        try {
+            for (int k = 0; k < n; k++) {
+                BufferedReader out = new BufferedReader(new InputStreamReader(children.get(k).getInputStream(), StandardCharsets.UTF_8));
+                String line = out.readLine();
+                if (line == null || !line.contains("listening on")) throw new IOException("partition " + k + " did not start");
+                int port = Integer.parseInt(line.substring(line.lastIndexOf(':') + 1).trim());
+                parts.add(new RemotePartition(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), k, n));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Process p : children) p.destroy();
+            throw e;
+        }
+        return parts;
+    }
+}
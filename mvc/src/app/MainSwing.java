@@ -4,6 +4,7 @@ import view.swing.MainFrame;
 
 public class MainSwing {
     public static void main(String[] args) throws Exception {
+        metrics.Metrics.registerMBeans(); // visible in jconsole as crowdfund:type=Metrics
         javax.swing.SwingUtilities.invokeLater(() -> {
             try {
                 new MainFrame().setVisible(true);
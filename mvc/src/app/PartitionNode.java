@@ -0,0 +1,66 @@
+package app;
+
+import controller.CrowdfundController;
+import controller.Partition;
+import metrics.Metrics;
+import repo.DbOptions;
+import repo.PartitionLayout;
+import server.PartitionServer;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Serves one partition of a partitioned data directory on a loopback port, for a router started with
+ * {@code MainServer ... remote=host:port,...} or {@code spawn}. Prints "listening on 127.0.0.1:PORT" once loaded.
+ * With {@code parent} it exits when stdin closes, so partitions spawned by MainServer never outlive it.
+ *
+ * Usage: java -cp out app.PartitionNode dataDir partition [port] [wal] [batch] [metrics] [parent]
+ */
+public class PartitionNode {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: PartitionNode dataDir partition [port] [wal] [batch] [metrics] [parent]");
+            System.exit(2);
+        }
+        Path dataDir = Paths.get(args[0]);
+        int k = Integer.parseInt(args[1]);
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int n = PartitionLayout.count(dataDir);
+        if (k < 0 || k >= n) throw new IllegalArgumentException(dataDir + " has partitions 0.." + (n - 1));
+        DbOptions opts = MainServer.options(args, 3);
+        opts.pledgeIdPrefix = PartitionLayout.pledgeIdPrefix(k);
+        boolean parent = false;
+        for (int i = 3; i < args.length; i++) if ("parent".equalsIgnoreCase(args[i])) parent = true;
+        Metrics.registerMBeans();
+
+        CrowdfundController controller = new CrowdfundController(PartitionLayout.dir(dataDir, k), opts);
+        PartitionServer server = new PartitionServer(Partition.local(controller), k, n, port);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runnable stop = () -> {
+            try {
+                server.close();
+                controller.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            stopped.countDown();
+        };
+        Thread hook = new Thread(stop, "partition-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        server.start();
+        System.out.println("partition " + k + " of " + n + " listening on 127.0.0.1:" + server.getPort());
+        System.out.flush();
+
+        if (parent) {
+            InputStream in = System.in;
+            while (in.read() >= 0) { } // the parent holds our stdin open until it wants us gone
+            Runtime.getRuntime().removeShutdownHook(hook);
+            stop.run();
+            System.exit(0);
+        }
+        stopped.await();
+    }
+}
@@ -0,0 +1,49 @@
+package app;
+
+import repo.PartitionLayout;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Converts a data directory between one catalog and hash partitions (see {@link PartitionLayout}).
+ *
+ * Usage: java -cp out app.PartitionTool split [dataDir] partitions   spread projects, tiers and pledges over part-NN/
+ *        java -cp out app.PartitionTool merge [dataDir]              back to one set of tables
+ *        java -cp out app.PartitionTool info [dataDir]               partitions and their size on disk
+ */
+public class PartitionTool {
+    public static void main(String[] args) throws Exception {
+        String cmd = args.length > 0 ? args[0] : "";
+        if (!cmd.equals("split") && !cmd.equals("merge") && !cmd.equals("info") || (cmd.equals("split") && args.length < 2)) {
+            System.err.println("usage: PartitionTool split [dataDir] partitions | merge [dataDir] | info [dataDir]");
+            System.exit(2);
+        }
+        boolean split = cmd.equals("split");
+        Path dataDir = Paths.get(args.length > (split ? 2 : 1) ? args[1] : "data");
+        long t0 = System.nanoTime();
+        if (split) {
+            PartitionLayout.split(dataDir, Integer.parseInt(args[args.length - 1]));
+        } else if (cmd.equals("merge")) {
+            PartitionLayout.merge(dataDir);
+            System.out.println("merged in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+            return;
+        }
+        if (!PartitionLayout.exists(dataDir)) {
+            System.out.println(dataDir + " is not partitioned");
+            return;
+        }
+        if (split) System.out.println("split in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        int n = PartitionLayout.count(dataDir);
+        for (int k = 0; k < n; k++) {
+            Path dir = PartitionLayout.dir(dataDir, k);
+            long bytes;
+            try (Stream<Path> files = Files.walk(dir)) {
+                bytes = files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+            }
+            System.out.printf("%s  %,14d bytes%n", dir, bytes);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package app;
+
+import repo.CsvDb;
+import repo.DbOptions;
+import repo.SegmentedPledgeLog;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Segmented pledge storage (data/pledges/) from the command line.
+ *
+ * Usage: java -cp out app.PledgeLogTool segment [dataDir] [segmentMB]         move pledges.csv into sealed segments
+ *        java -cp out app.PledgeLogTool list [dataDir]                        segments with rows, bytes and date range
+ *        java -cp out app.PledgeLogTool scan dataDir projectId|- from [to]    pledges in [from, to) (yyyy-mm-dd)
+ *        java -cp out app.PledgeLogTool unsegment [dataDir]                   back to one pledges.csv
+ */
+public class PledgeLogTool {
+    public static void main(String[] args) throws Exception {
+        String cmd = args.length > 0 ? args[0] : "";
+        if (!cmd.equals("segment") && !cmd.equals("list") && !cmd.equals("scan") && !cmd.equals("unsegment")
+                || (cmd.equals("scan") && args.length < 4)) {
+            System.err.println("usage: PledgeLogTool segment [dataDir] [segmentMB] | list [dataDir] | scan dataDir projectId|- from [to] | unsegment [dataDir]");
+            System.exit(2);
+        }
+        Path dataDir = Paths.get(args.length > 1 ? args[1] : "data");
+        DbOptions opts = new DbOptions();
+        opts.segmentedPledges = !cmd.equals("unsegment");
+        if (cmd.equals("segment") && args.length > 2) opts.segmentMaxBytes = Long.parseLong(args[2]) << 20;
+
+        long t0 = System.nanoTime();
+        try (CsvDb db = new CsvDb(dataDir, opts)) {
+            System.out.println("opened in " + (System.nanoTime() - t0) / 1_000_000 + " ms, " + db.pledges.size() + " pledges");
+            SegmentedPledgeLog log = db.getSegments();
+            if (cmd.equals("segment") || cmd.equals("list")) {
+                System.out.printf("%-7s %-8s %10s %12s %12s  %s%n", "segment", "state", "rows", "raw bytes", "disk bytes", "datetime range");
+                for (String line : log.describe()) System.out.println(line);
+            } else if (cmd.equals("scan")) {
+                String project = args[2].equals("-") ? null : args[2];
+                LocalDateTime from = LocalDate.parse(args[3]).atStartOfDay();
+                LocalDateTime to = args.length > 4 ? LocalDate.parse(args[4]).atStartOfDay() : null;
+                long t = System.nanoTime();
+                SegmentedPledgeLog.Scan s = db.scanPledges(project, from, to);
+                System.out.printf("%d pledges in %.1f ms: %d segments read, %d skipped; %d blocks read, %d skipped%n",
+                        s.pledges.size(), (System.nanoTime() - t) / 1e6, s.segments, s.segmentsSkipped, s.blocksRead, s.blocksSkipped);
+            } else {
+                System.out.println("pledges.csv restored");
+            }
+        }
+    }
+}
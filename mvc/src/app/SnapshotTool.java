@@ -0,0 +1,40 @@
+package app;
+
+import repo.BinarySnapshot;
+import repo.CsvDb;
+import repo.DbOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Maintains data/snapshot.bin outside the app.
+ *
+ * Usage: java -cp out app.SnapshotTool write [dataDir]            load the CSVs, write snapshot.bin
+ *        java -cp out app.SnapshotTool export [dataDir] outDir    load (snapshot if current), write CSVs to outDir
+ */
+public class SnapshotTool {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("write") || args[0].equals("export")) || (args[0].equals("export") && args.length < 2)) {
+            System.err.println("usage: SnapshotTool write [dataDir] | export [dataDir] outDir");
+            System.exit(2);
+        }
+        boolean export = args[0].equals("export");
+        Path dataDir = Paths.get(args.length > (export ? 2 : 1) ? args[1] : "data");
+        DbOptions opts = new DbOptions();
+        opts.snapshot = export;
+        try (CsvDb db = new CsvDb(dataDir, opts)) {
+            System.out.println("loaded in " + db.getLoadTimings());
+            if (export) {
+                Path out = Paths.get(args[args.length - 1]);
+                Files.createDirectories(out);
+                db.exportCsv(out);
+                System.out.println("CSV tables written to " + out);
+            } else {
+                db.writeSnapshot();
+                System.out.println(dataDir.resolve(BinarySnapshot.FILE) + ": " + Files.size(dataDir.resolve(BinarySnapshot.FILE)) + " bytes");
+            }
+        }
+    }
+}
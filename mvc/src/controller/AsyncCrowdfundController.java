@@ -0,0 +1,99 @@
+package controller;
+
+import model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller calls on a background executor and hands back futures, so UI threads never block on I/O.
+ * Uses virtual threads when the JVM has them (Java 21+), otherwise a cached pool of daemon threads.
+ */
+public class AsyncCrowdfundController implements Closeable {
+    private final CrowdfundController controller;
+    private final ExecutorService executor;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    public AsyncCrowdfundController(CrowdfundController controller) {
+        this(controller, defaultExecutor());
+    }
+
+    public AsyncCrowdfundController(CrowdfundController controller, ExecutorService executor) {
+        this.controller = controller;
+        this.executor = executor;
+    }
+
+    public static ExecutorService defaultExecutor() {
+        try {
+            // looked up reflectively so the sources still compile on Java 11/17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "crowdfund-async");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public CrowdfundController sync() { return controller; }
+
+    /** Pledges (including their persistence) submitted but not finished yet. */
+    public int pendingWrites() { return pendingWrites.get(); }
+
+    public CompletableFuture<ProjectPage> search(String keyword, String category, String sortKey, int offset, int limit) {
+        return search(keyword, category, sortKey, false, offset, limit);
+    }
+
+    public CompletableFuture<ProjectPage> search(String keyword, String category, String sortKey, boolean openOnly, int offset, int limit) {
+        return CompletableFuture.supplyAsync(() -> controller.search(keyword, category, sortKey, openOnly, offset, limit), executor);
+    }
+
+    public CompletableFuture<Set<String>> listCategories() {
+        return CompletableFuture.supplyAsync(controller::listCategories, executor);
+    }
+
+    /** Pledge as the desktop user logged in through {@link CrowdfundController#login} when this is called. */
+    public CompletableFuture<String> pledge(String projectId, long amount, String tierNameOrEmpty) {
+        User user = controller.getCurrentUser(); // not when the task runs: a logout or login meanwhile must not change who pledges
+        return write(() -> {
+            try {
+                return controller.pledgeAs(user, projectId, amount, tierNameOrEmpty, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public CompletableFuture<String> pledge(Session session, String projectId, long amount, String tierNameOrEmpty) {
+        return write(() -> {
+            try {
+                return controller.pledge(session, projectId, amount, tierNameOrEmpty);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<T> task) {
+        pendingWrites.incrementAndGet();
+        return CompletableFuture.supplyAsync(task, executor)
+                .whenComplete((v, ex) -> pendingWrites.decrementAndGet());
+    }
+
+    /** Stops taking work; calls already submitted (and their persistence) finish first, for up to 10 s. */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
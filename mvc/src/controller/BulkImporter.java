@@ -0,0 +1,200 @@
+package controller;
+
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Pledge;
+import model.Project;
+import model.RejectReason;
+import model.RewardTier;
+import model.User;
+import repo.CsvDb;
+import repo.Mutation;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk pledge ingestion (migrations, payment-feed replays), run through
+ * {@link CrowdfundController#importPledges}. Requests are taken in chunks of {@code checkpointEvery}:
+ * <ol>
+ *   <li>resolve user and project, and hand out pledge ids in input order</li>
+ *   <li>group by project; each group runs the controller's rules in input order under the project's lock,
+ *       groups in parallel (the rules only read and change their own project, so this equals one-by-one order)</li>
+ *   <li>persist once: the pledge lines in input order plus one raised / quota / rejected value per changed
+ *       project, tier and counter (taken under each project's lock), with one fsync per file</li>
+ * </ol>
+ * Requests with an unknown user or project make no pledge, just as {@code pledge()} answers
+ * "Please login first." / "Project not found." for them; they are counted in {@link Result#skipped}.
+ * Each chunk holds the write side of {@link ProjectLocks#imports}, so pledges arriving meanwhile wait for the
+ * chunk to be written and their WAL values always follow the import's.
+ */
+public class BulkImporter {
+    private static final Histogram CHECKPOINT = Metrics.latency("bulk.checkpoint");
+
+    /** Counts for one import. */
+    public static class Result {
+        public long requests, accepted, rejected, raised;
+        public int checkpoints;
+        public long elapsedNanos;
+        public final Map<RejectReason, Long> rejectedBy = new EnumMap<>(RejectReason.class);
+        public final Map<String, Long> skipped = new TreeMap<>();   // requests that made no pledge, by cause
+
+        public double perSecond() { return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d requests in %d ms (%.0f/s), %d checkpoints%n",
+                    requests, elapsedNanos / 1_000_000, perSecond(), checkpoints));
+            sb.append(String.format("  accepted  %d (raised %d)%n", accepted, raised));
+            sb.append(String.format("  rejected  %d%n", rejected));
+            for (Map.Entry<RejectReason, Long> e : rejectedBy.entrySet()) {
+                sb.append(String.format("    %-16s %d%n", e.getKey(), e.getValue()));
+            }
+            for (Map.Entry<String, Long> e : skipped.entrySet()) {
+                sb.append(String.format("  skipped   %d (%s)%n", e.getValue(), e.getKey()));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final CrowdfundController controller;
+    private final CsvDb db;
+    private final ProjectLocks locks;
+
+    BulkImporter(CrowdfundController controller, CsvDb db, ProjectLocks locks) {
+        this.controller = controller;
+        this.db = db;
+        this.locks = locks;
+    }
+
+    Result run(Iterator<PledgeRequest> requests, int checkpointEvery) throws IOException {
+        long t0 = System.nanoTime();
+        Result r = new Result();
+        int chunkSize = Math.max(1, checkpointEvery);
+        List<PledgeRequest> chunk = new ArrayList<>(Math.min(chunkSize, 1 << 16));
+        while (requests.hasNext()) {
+            chunk.add(requests.next());
+            if (chunk.size() == chunkSize) {
+                chunk(chunk, r);
+                chunk.clear();
+            }
+        }
+        chunk(chunk, r);
+        r.elapsedNanos = System.nanoTime() - t0;
+        return r;
+    }
+
+    private void chunk(List<PledgeRequest> reqs, Result r) throws IOException {
+        if (reqs.isEmpty()) return;
+        Lock gate = locks.imports.writeLock();
+        gate.lock();
+        try {
+            chunkExclusive(reqs, r);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    private void chunkExclusive(List<PledgeRequest> reqs, Result r) throws IOException {
+        long t = Metrics.start();
+        int n = reqs.size();
+        r.requests += n;
+
+        // 1. resolve, number the projects, assign ids in input order
+        User[] who = new User[n];
+        String[] ids = new String[n];
+        int[] group = new int[n];
+        Map<String, Integer> groupOf = new HashMap<>();
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            PledgeRequest q = reqs.get(i);
+            group[i] = -1;
+            User u = q.user == null ? null : db.users.get(q.user);
+            if (u == null) u = db.findUserByName(q.user);
+            Project p = db.projects.get(q.projectId);
+            if (u == null) { r.skipped.merge("unknown user", 1L, Long::sum); continue; }
+            if (p == null) { r.skipped.merge("unknown project", 1L, Long::sum); continue; }
+            Integer g = groupOf.get(p.projectId);
+            if (g == null) {
+                g = projects.size();
+                groupOf.put(p.projectId, g);
+                projects.add(p);
+            }
+            who[i] = u;
+            group[i] = g;
+            ids[i] = db.nextPledgeId();
+        }
+
+        // 2. request indexes grouped by project (counting sort keeps input order inside a group)
+        int groups = projects.size();
+        int[] start = new int[groups + 1];
+        for (int g : group) if (g >= 0) start[g + 1]++;
+        for (int g = 0; g < groups; g++) start[g + 1] += start[g];
+        int[] order = new int[start[groups]];
+        int[] fill = Arrays.copyOf(start, groups);
+        for (int i = 0; i < n; i++) if (group[i] >= 0) order[fill[group[i]]++] = i;
+
+        Pledge[] out = new Pledge[n];
+        List<List<Mutation>> groupMuts = new ArrayList<>(Collections.nCopies(groups, null));
+        LocalDateTime now = LocalDateTime.now();
+        IntStream.range(0, groups).parallel().forEach(g -> {
+            Project p = projects.get(g);
+            Set<RewardTier> quotaChanged = new LinkedHashSet<>();
+            boolean raisedChanged = false;
+            ReentrantLock lock = locks.forProject(p.projectId);
+            lock.lock();
+            try {
+                for (int k = start[g]; k < start[g + 1]; k++) {
+                    int i = order[k];
+                    PledgeRequest q = reqs.get(i);
+                    RejectReason why = controller.validate(p, q.amount, q.tierName);
+                    if (why == null) {
+                        controller.addRaised(p, q.amount);
+                        raisedChanged = true;
+                        if (CrowdfundController.hasTier(q.tierName)) quotaChanged.add(db.findTier(p.projectId, q.tierName));
+                    } else {
+                        db.incrementRejected();
+                    }
+                    out[i] = new Pledge(ids[i], who[i].userId, p.projectId, q.datetime != null ? q.datetime : now,
+                            q.amount, q.tierName, why == null ? "SUCCESS" : "REJECTED", why == null ? "" : why.name());
+                }
+                // the group's final values, read before anything else can change them
+                List<Mutation> muts = new ArrayList<>(quotaChanged.size() + 1);
+                if (raisedChanged) muts.add(Mutation.raised(p));
+                for (RewardTier tier : quotaChanged) muts.add(Mutation.quota(tier));
+                groupMuts.set(g, muts);
+            } finally {
+                lock.unlock();
+            }
+        });
+
+        // 3. one write for the chunk, state changes coalesced to their final values
+        List<Pledge> batch = new ArrayList<>(order.length);
+        boolean anyRejected = false;
+        for (Pledge pl : out) {
+            if (pl == null) continue;
+            batch.add(pl);
+            if (pl.status.equals("SUCCESS")) {
+                CrowdfundController.PLEDGES_ACCEPTED.increment();
+                r.accepted++;
+                r.raised += pl.amount;
+            } else {
+                CrowdfundController.PLEDGES_REJECTED.increment();
+                r.rejected++;
+                r.rejectedBy.merge(RejectReason.valueOf(pl.reason), 1L, Long::sum);
+                anyRejected = true;
+            }
+        }
+        List<Mutation> muts = new ArrayList<>();
+        for (List<Mutation> m : groupMuts) muts.addAll(m);
+        if (anyRejected) muts.add(Mutation.rejected(db.getRejectedCount()));
+        db.commitAll(batch, muts);
+        r.checkpoints++;
+        CHECKPOINT.recordSince(t);
+    }
+}
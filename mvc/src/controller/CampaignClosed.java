@@ -0,0 +1,41 @@
+package controller;
+
+import model.Project;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** A campaign whose deadline just passed, with its final totals; see {@link CrowdfundController#addCampaignClosedListener}. */
+public class CampaignClosed {
+    public final String projectId;
+    public final String name;
+    public final String category;
+    public final LocalDate deadline;
+    public final long target;
+    public final long raised;
+    public final boolean funded;
+    public final long successfulPledges;
+    public final long rejectedPledges;
+    public final int backers;
+    public final LocalDateTime closedAt;
+
+    CampaignClosed(Project p, long successfulPledges, long rejectedPledges, int backers, LocalDateTime closedAt) {
+        this.projectId = p.projectId;
+        this.name = p.name;
+        this.category = p.category;
+        this.deadline = p.deadline;
+        this.target = p.target;
+        this.raised = p.raised;
+        this.funded = p.raised >= p.target;
+        this.successfulPledges = successfulPledges;
+        this.rejectedPledges = rejectedPledges;
+        this.backers = backers;
+        this.closedAt = closedAt;
+    }
+
+    @Override
+    public String toString() {
+        return projectId + " " + name + " closed: raised " + raised + " of " + target + (funded ? " (funded)" : " (not funded)")
+                + ", " + backers + " backers, " + successfulPledges + " pledges, " + rejectedPledges + " rejected";
+    }
+}
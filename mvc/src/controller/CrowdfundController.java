@@ -1,124 +1,591 @@
 package controller;
 
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
 import model.*;
 import repo.CsvDb;
+import repo.DbOptions;
+import repo.Mutation;
+import repo.PledgeAggregates;
+import repo.ProjectPledgeIndex;
+import repo.ProjectOrder;
+import repo.TrendingIndex;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class CrowdfundController implements CrowdfundService {
+    // pledge phases: waiting for the project lock, rule checks, in-memory apply, persistence (or hand-off to group commit)
+    private static final Histogram PLEDGE_LOCK = Metrics.latency("pledge.lock");
+    private static final Histogram PLEDGE_VALIDATE = Metrics.latency("pledge.validate");
+    private static final Histogram PLEDGE_APPLY = Metrics.latency("pledge.apply");
+    private static final Histogram PLEDGE_PERSIST = Metrics.latency("pledge.persist");
+    private static final Histogram PLEDGE_TOTAL = Metrics.latency("pledge.total");
+    private static final Histogram PLEDGE_CLOSED = Metrics.latency("pledge.closed");   // fast path for closed campaigns
+    private static final Histogram SEARCH = Metrics.latency("search");
+    static final Counter PLEDGES_ACCEPTED = Metrics.counter("pledges.accepted");   // also counted by BulkImporter
+    static final Counter PLEDGES_REJECTED = Metrics.counter("pledges.rejected");
 
-public class CrowdfundController {
     private final CsvDb db;
-    private User currentUser = null;
+    private final ProjectLocks locks = new ProjectLocks();
+    private final SearchCache searchCache;
+    private final IdempotencyCache idempotency;
+    private final ExpiryScheduler expiry;
+    private final List<Consumer<CampaignClosed>> closedListeners = new CopyOnWriteArrayList<>();
+    private final SessionStore sessions;
+    private volatile User currentUser = null;   // session of the desktop window
 
     public CrowdfundController(Path dataDir) throws IOException {
-        this.db = new CsvDb(dataDir);
+        this(dataDir, new DbOptions());
     }
 
-    // --- Authentication (ง่าย ๆ) ---
-    public boolean login(String username) {
-        for (User u : db.users.values()) {
-            if (u.username.equalsIgnoreCase(username)) {
-                currentUser = u;
-                return true;
+    public CrowdfundController(Path dataDir, DbOptions options) throws IOException {
+        this.db = new CsvDb(dataDir, options);
+        this.sessions = new SessionStore(options.maxSessions, options.sessionTtlMillis);
+        this.searchCache = options.searchCacheEntries > 0
+                ? new SearchCache(options.searchCacheEntries, options.searchCacheMaxResults) : null;
+        this.idempotency = options.idempotencyMaxKeys > 0
+                ? new IdempotencyCache(options.idempotencyMaxKeys, options.idempotencyKeyTtlMillis) : null;
+        if (idempotency != null) restoreIdempotencyKeys();
+        this.expiry = new ExpiryScheduler(db.projects.values(), this::closeCampaign);
+    }
+
+    // refills the dedup cache from the keys stored with the pledges; answers follow from status and reason
+    private void restoreIdempotencyKeys() {
+        ZoneId zone = ZoneId.systemDefault();
+        synchronized (db.pledges) {
+            for (Pledge pl : db.pledges) {
+                if (pl.idempotencyKey.isEmpty()) continue;
+                RejectReason why = RejectReason.parse(pl.reason);
+                String answer = "SUCCESS".equals(pl.status) ? SUCCESS_MESSAGE : why != null ? why.message : null;
+                if (answer == null) continue;
+                idempotency.restore(pl.userId, pl.idempotencyKey, IdempotencyCache.request(pl.projectId, pl.amount, pl.tierName),
+                        answer, pl.datetime.atZone(zone).toInstant().toEpochMilli());
             }
         }
-        return false;
+    }
+
+    // --- Authentication (ง่าย ๆ) ---
+    public boolean login(String username) {
+        User u = findUser(username);
+        if (u == null) return false;
+        currentUser = u;
+        return true;
     }
     public void logout() { currentUser = null; }
     public User getCurrentUser() { return currentUser; }
 
+    private User findUser(String username) {
+        return db.findUserByName(username);
+    }
+
+    /** Pledges made by the logged-in desktop user, oldest first. */
+    public List<Pledge> getMyPledges() {
+        User u = currentUser;
+        return u == null ? new ArrayList<>() : db.pledgesOf(u.userId);
+    }
+
+    public List<Pledge> getMyPledges(Session session) {
+        return session == null ? new ArrayList<>() : db.pledgesOf(session.user.userId);
+    }
+
+    // --- Sessions for concurrent clients ---
+    public Session openSession(String username) {
+        User u = findUser(username);
+        if (u == null) return null;
+        return sessions.open(u);
+    }
+    /** Null when unknown or expired (see {@link DbOptions#sessionTtlMillis}). */
+    public Session findSession(String token) { return sessions.find(token); }
+    public void closeSession(String token) { sessions.close(token); }
+    public Map<String, Long> getSessionStats() { return sessions.stats(); }
+
     // --- Accessors for GUI ---
     public Collection<Project> getAllProjects() { return db.projects.values(); }
     public List<RewardTier> getTiers(String projectId) { return db.tiersByProject.getOrDefault(projectId, new ArrayList<>()); }
-    public long getRejectedCount() { return db.rejectedCount; }
-    public long getSuccessCount() {
-        return db.pledges.stream().filter(pl -> "SUCCESS".equals(pl.status)).count();
-    }
+    public long getRejectedCount() { return db.getRejectedCount(); }
+    public long getSuccessCount() { return db.aggregates.total().success(); }
+    public PledgeAggregates getAggregates() { return db.aggregates; }
     public Project getProject(String id){ return db.projects.get(id); }
+    public User getUser(String userId) { return userId == null ? null : db.users.get(userId); }
+    public User findUserByName(String username) { return findUser(username); }
+    /** A user's pledges in this catalog, oldest first. */
+    public List<Pledge> getPledgesOf(String userId) { return db.pledgesOf(userId); }
+    // --- Per-project pledge views (served from ProjectPledgeIndex, no pledge scans) ---
+    public int getBackerCount(String projectId) { return db.projectPledges.forProject(projectId).backerCount(); }
+    public ProjectPledgeIndex.Timeline getPledgeTimeline(String projectId) { return db.projectPledges.forProject(projectId).timeline(); }
+
+    /** A project's pledges with {@code from <= datetime < to} (null = open), read from the pledge log. */
+    public List<Pledge> getPledgeHistory(String projectId, LocalDateTime from, LocalDateTime to) throws IOException {
+        return db.scanPledges(projectId, from, to).pledges;
+    }
+
+    /** Share of each tier's original quota already taken (0..1), in tier order. */
+    public Map<String, Double> getTierFillRates(String projectId) {
+        ProjectPledgeIndex.ProjectLog log = db.projectPledges.forProject(projectId);
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (RewardTier t : getTiers(projectId)) {
+            int sold = log.sold(t.tierName);
+            int capacity = sold + Math.max(0, t.quota);
+            out.put(t.tierName, capacity == 0 ? 0.0 : (double) sold / capacity);
+        }
+        return out;
+    }
+
+    public Map<String, Long> getLoadTimings() { return db.getLoadTimings(); }
+    public List<Pledge> getPledgesSnapshot() {
+        synchronized (db.pledges) { return new ArrayList<>(db.pledges); }
+    }
 
     // --- Searching / Sorting / Filtering ---
     public List<Project> search(String keyword, String category, String sortKey){
+        return search(keyword, category, sortKey, 0, Integer.MAX_VALUE).items;
+    }
+
+    /** One page of results: O(log n + offset + limit) when unfiltered, O(m log k) over m filter matches otherwise. */
+    public ProjectPage search(String keyword, String category, String sortKey, int offset, int limit) {
+        return search(keyword, category, sortKey, false, offset, limit);
+    }
+
+    /** As above; {@code openOnly} leaves out closed campaigns, through their own index when unfiltered. */
+    public ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, int offset, int limit) {
+        return page(keyword, category, sortKey, openOnly, null, offset, limit);
+    }
+
+    /** Cursor paging: the page after {@code afterProjectId} (a previous page's nextCursor). */
+    public ProjectPage searchAfter(String keyword, String category, String sortKey, String afterProjectId, int limit) {
+        return searchAfter(keyword, category, sortKey, false, afterProjectId, limit);
+    }
+
+    public ProjectPage searchAfter(String keyword, String category, String sortKey, boolean openOnly, String afterProjectId, int limit) {
+        Project after = afterProjectId == null ? null : db.projects.get(afterProjectId);
+        return page(keyword, category, sortKey, openOnly, after, 0, limit);
+    }
+
+    /**
+     * Cursor paging from a project given by value: only its sort fields are read, so it need not belong to
+     * this catalog (the partition router passes the last project of the merged page to every partition).
+     */
+    public ProjectPage searchAfterProject(String keyword, String category, String sortKey, boolean openOnly, Project after, int limit) {
+        return page(keyword, category, sortKey, openOnly, after, 0, limit);
+    }
+
+    static ProjectOrder orderFor(String sortKey) {
+        if (sortKey == null) return ProjectOrder.ID_ASC;
+        switch (sortKey){
+            case "Ending Soon": return ProjectOrder.DEADLINE_ASC;
+            case "Raised (High→Low)": return ProjectOrder.RAISED_DESC;
+            case "Newest Id": return ProjectOrder.ID_DESC;
+            default: return ProjectOrder.ID_ASC;
+        }
+    }
+
+    /** The window of a "Trending (1h|24h|7d)" sort key, null for the other sorts. */
+    static TrendingIndex.Window trendWindowFor(String sortKey) {
+        if (sortKey == null || !sortKey.startsWith("Trending (")) return null;
+        for (TrendingIndex.Window w : TrendingIndex.Window.values()) {
+            if (sortKey.equals("Trending (" + w.label + ")")) return w;
+        }
+        return null;
+    }
+
+    /** Raised in the window, highest first, then projectId; projects missing from {@code scores} count as 0. */
+    static Comparator<Project> trendingOrder(Map<String, Long> scores) {
+        return Comparator.comparingLong((Project p) -> scores.getOrDefault(p.projectId, 0L)).reversed().thenComparing(p -> p.projectId);
+    }
+
+    private ProjectPage page(String keyword, String category, String sortKey, boolean openOnly, Project after, int offset, int limit) {
+        long t = Metrics.start();
         String kw = keyword == null ? "" : keyword.trim().toLowerCase();
-        List<Project> list = new ArrayList<>(db.projects.values());
-        if (!kw.isBlank()){
-            list.removeIf(p -> !(p.name.toLowerCase().contains(kw) || p.projectId.contains(kw)));
+        String cat = (category != null && !category.isBlank() && !"All".equalsIgnoreCase(category)) ? category : null;
+        ProjectOrder order = orderFor(sortKey);
+        offset = Math.max(0, offset);
+        limit = Math.max(0, limit);
+        long want = Math.min((long) offset + limit, Integer.MAX_VALUE);
+        TrendingIndex.Window window = trendWindowFor(sortKey);
+        if (window != null) {
+            ProjectPage page = trendingPage(kw, cat, window, openOnly, after, offset, limit, want);
+            SEARCH.recordSince(t);
+            return page;
         }
-        if (category != null && !category.isBlank() && !"All".equalsIgnoreCase(category)){
-            list.removeIf(p -> !p.category.equalsIgnoreCase(category));
+
+        List<Project> items = new ArrayList<>();
+        List<Project> sorted;
+        int total;
+        if (kw.isBlank() && cat == null) {
+            // unfiltered: walk the pre-sorted index from the start or the cursor
+            total = openOnly ? db.projectOrder.openSize() : db.projectOrder.size();
+            Set<String> seen = new HashSet<>();
+            int skipped = 0;
+            for (Project p : db.projectOrder.walk(order, after, openOnly)) {
+                if (items.size() >= limit) break;
+                if (!seen.add(p.projectId)) continue; // transient duplicate while raised is being re-keyed
+                if (skipped < offset) { skipped++; continue; }
+                items.add(p);
+            }
+        } else if ((sorted = cachedMatches(kw, cat, order, openOnly)) != null) {
+            total = sorted.size();
+            int from = (after == null ? 0 : firstAfter(sorted, after, order.comparator)) + offset;
+            if (from < total) items.addAll(sorted.subList(from, (int) Math.min(total, (long) from + limit)));
+        } else {
+            // filtered: keep the best offset+limit matches in a bounded heap
+            List<Project> matches = query(kw, cat, openOnly);
+            total = matches.size();
+            items = best(matches, order.comparator, after, offset, want);
         }
-        switch (sortKey){
-            case "Ending Soon":
-                list.sort(Comparator.comparing(p -> p.deadline));
-                break;
-            case "Raised (High→Low)":
-                list.sort((a,b) -> Long.compare(b.raised, a.raised));
-                break;
-            case "Newest Id":
-                list.sort((a,b) -> b.projectId.compareTo(a.projectId));
-                break;
-            default:
-                list.sort(Comparator.comparing(p -> p.projectId));
+        String next = items.size() == limit && limit > 0 ? items.get(items.size() - 1).projectId : null;
+        SEARCH.recordSince(t);
+        return new ProjectPage(items, offset, total, next);
+    }
+
+    // the matches ordered after {@code after}, from offset to want, through a heap of at most want
+    private static List<Project> best(List<Project> matches, Comparator<Project> cmp, Project after, int offset, long want) {
+        PriorityQueue<Project> heap = new PriorityQueue<>(cmp.reversed());
+        for (Project p : matches) {
+            if (after != null && cmp.compare(p, after) <= 0) continue;
+            if (heap.size() < want) heap.add(p);
+            else if (want > 0 && cmp.compare(p, heap.peek()) < 0) { heap.poll(); heap.add(p); }
         }
-        return list;
+        List<Project> best = new ArrayList<>(heap);
+        best.sort(cmp);
+        return offset < best.size() ? new ArrayList<>(best.subList(offset, best.size())) : new ArrayList<>();
     }
 
-    // --- Business Rules & Pledge ---
-    public String pledge(String projectId, long amount, String tierNameOrEmpty) throws IOException {
-        if (currentUser == null) return "Please login first.";
-        Project p = db.projects.get(projectId);
-        if (p == null) return "Project not found.";
-
-        if (!p.deadline.isAfter(LocalDate.now())) {
-            db.rejectedCount++; db.saveStats();
-            appendPledge("REJECTED", currentUser.userId, projectId, amount, tierNameOrEmpty);
-            return "Rejected: Project deadline has passed.";
-        }
-        // Tier validations
-        model.RewardTier chosen = null;
-        if (tierNameOrEmpty != null && !tierNameOrEmpty.isBlank()) {
-            for (model.RewardTier t : db.tiersByProject.getOrDefault(projectId, Collections.emptyList())) {
-                if (t.tierName.equalsIgnoreCase(tierNameOrEmpty)) { chosen = t; break; }
+    // Raised in a window keeps moving as buckets slide, so trending sorts have no pre-sorted index and are never
+    // cached: projects with pledges in the window come first, then the rest in id order.
+    private ProjectPage trendingPage(String kw, String cat, TrendingIndex.Window window, boolean openOnly, Project after,
+                                     int offset, int limit, long want) {
+        Map<String, Long> scores = db.trending.values(window, TrendingIndex.Metric.RAISED);
+        Comparator<Project> cmp = trendingOrder(scores);
+        List<Project> items = new ArrayList<>();
+        int total;
+        if (kw.isBlank() && cat == null) {
+            total = openOnly ? db.projectOrder.openSize() : db.projectOrder.size();
+            List<Project> hot = new ArrayList<>(scores.size());
+            for (String id : scores.keySet()) {
+                Project p = db.projects.get(id);
+                if (p != null && !(openOnly && p.closed)) hot.add(p);
             }
-            if (chosen == null) {
-                db.rejectedCount++; db.saveStats();
-                appendPledge("REJECTED", currentUser.userId, projectId, amount, tierNameOrEmpty);
-                return "Rejected: Reward tier not found.";
+            hot.sort(cmp);
+            int skipped = 0;
+            for (Project p : hot) {
+                if (items.size() >= limit) break;
+                if (after != null && cmp.compare(p, after) <= 0) continue;
+                if (skipped < offset) { skipped++; continue; }
+                items.add(p);
             }
-            if (amount < chosen.minAmount) {
-                db.rejectedCount++; db.saveStats();
-                appendPledge("REJECTED", currentUser.userId, projectId, amount, tierNameOrEmpty);
-                return "Rejected: Amount below tier minimum.";
+            Project idAfter = after == null || scores.containsKey(after.projectId) ? null : after;
+            for (Project p : db.projectOrder.walk(ProjectOrder.ID_ASC, idAfter, openOnly)) {
+                if (items.size() >= limit) break;
+                if (scores.containsKey(p.projectId)) continue;
+                if (skipped < offset) { skipped++; continue; }
+                items.add(p);
             }
-            if (chosen.quota <= 0) {
-                db.rejectedCount++; db.saveStats();
-                appendPledge("REJECTED", currentUser.userId, projectId, amount, tierNameOrEmpty);
-                return "Rejected: Tier quota exhausted.";
+        } else {
+            List<Project> matches = query(kw, cat, openOnly);
+            total = matches.size();
+            items = best(matches, cmp, after, offset, want);
+        }
+        Map<String, Long> pageScores = new HashMap<>();
+        for (Project p : items) pageScores.put(p.projectId, scores.getOrDefault(p.projectId, 0L));
+        String next = items.size() == limit && limit > 0 ? items.get(items.size() - 1).projectId : null;
+        return new ProjectPage(items, offset, total, next, pageScores);
+    }
+
+    /** Streaming leaderboards and window counters (see {@link TrendingIndex}). */
+    public TrendingIndex getTrending() { return db.trending; }
+
+    /** Every match in order, from the search cache or computed into it; null when uncacheable (cache off or too many matches). */
+    private List<Project> cachedMatches(String kw, String cat, ProjectOrder order, boolean openOnly) {
+        if (searchCache == null) return null;
+        SearchCache.Key key = new SearchCache.Key(kw, cat, order, openOnly);
+        List<Project> sorted = searchCache.get(key);
+        if (sorted != null) return sorted;
+        SearchCache.Pending pending = searchCache.begin(key);
+        List<Project> cacheable = null;
+        try {
+            List<Project> matches = query(kw, cat, openOnly);
+            if (matches.size() > searchCache.maxResults) return null;
+            matches.sort(order.comparator);
+            cacheable = matches;
+            return matches;
+        } finally {
+            searchCache.put(pending, cacheable);
+        }
+    }
+
+    private List<Project> query(String kw, String cat, boolean openOnly) {
+        List<Project> matches = db.projectIndex.query(kw, cat);
+        if (openOnly) matches.removeIf(p -> p.closed);
+        return matches;
+    }
+
+    // index of the first element ordered after {@code after}
+    private static int firstAfter(List<Project> sorted, Project after, Comparator<Project> cmp) {
+        int lo = 0, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cmp.compare(sorted.get(mid), after) <= 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Search cache counters: entries, hits, misses, evictions, invalidations (empty when the cache is off). */
+    public Map<String, Long> getSearchCacheStats() {
+        return searchCache == null ? Collections.emptyMap() : searchCache.stats();
+    }
+
+    // --- Campaign expiry ---
+    /** Called on the expiry thread for every campaign that closes while running (not for those past their deadline at load). */
+    public void addCampaignClosedListener(Consumer<CampaignClosed> listener) { closedListeners.add(listener); }
+
+    public boolean isClosed(Project p) { return expiry.isClosed(p); }
+
+    /** open: campaigns still waiting to close, closedLive: closed while running, nextCloseAt: epoch millis (0 when none). */
+    public Map<String, Long> getExpiryStats() { return expiry.stats(); }
+
+    // Flips the precomputed state under the project lock, so a pledge either runs before the close (and its
+    // totals are in the event) or sees the flag. At load nothing runs yet and nobody listens.
+    private void closeCampaign(Project p, boolean live) {
+        if (!live) {
+            p.closed = true;
+            db.projectOrder.close(p);
+            return;
+        }
+        CampaignClosed event;
+        ReentrantLock lock = locks.forProject(p.projectId);
+        lock.lock();
+        try {
+            if (p.closed) return;
+            p.closed = true;
+            db.projectOrder.close(p);
+            PledgeAggregates.Counts c = db.aggregates.forProject(p.projectId);
+            event = new CampaignClosed(p, c.success(), c.rejected(), getBackerCount(p.projectId), LocalDateTime.now());
+        } finally {
+            lock.unlock();
+        }
+        if (searchCache != null) searchCache.projectClosed(p);
+        for (Consumer<CampaignClosed> l : closedListeners) {
+            try {
+                l.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // --- Business Rules & Pledge ---
+    public static final String SUCCESS_MESSAGE = "Success: Thank you for your support!";
+    public static final String KEY_REUSED_MESSAGE = "Idempotency key already used for a different pledge.";
+
+    public String pledge(String projectId, long amount, String tierNameOrEmpty) throws IOException {
+        return await(submitPledge(currentUser, projectId, amount, tierNameOrEmpty, null));
+    }
+
+    public String pledge(Session session, String projectId, long amount, String tierNameOrEmpty) throws IOException {
+        return pledge(session, projectId, amount, tierNameOrEmpty, null);
+    }
+
+    /**
+     * With an idempotency key, a retry of the same pledge by the same user (within
+     * {@link DbOptions#idempotencyKeyTtlMillis}) gets the first answer back instead of pledging again;
+     * the key with a different project, amount or tier gets {@link #KEY_REUSED_MESSAGE}. Null or "" = no key.
+     */
+    public String pledge(Session session, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException {
+        return await(submitPledge(session == null ? null : session.user, projectId, amount, tierNameOrEmpty, idempotencyKey));
+    }
+
+    /** Pledge on behalf of a user resolved by the caller (a partition serving the router). */
+    public String pledgeAs(User user, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException {
+        return await(submitPledge(user, projectId, amount, tierNameOrEmpty, idempotencyKey));
+    }
+
+    /**
+     * Validates and applies the pledge in memory right away; the future completes once it is durable
+     * (immediately unless group commit is enabled in DbOptions).
+     */
+    public CompletableFuture<String> pledgeAsync(Session session, String projectId, long amount, String tierNameOrEmpty) {
+        return pledgeAsync(session, projectId, amount, tierNameOrEmpty, null);
+    }
+
+    public CompletableFuture<String> pledgeAsync(Session session, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) {
+        try {
+            return submitPledge(session == null ? null : session.user, projectId, amount, tierNameOrEmpty, idempotencyKey);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Idempotency cache counters: entries, replays, conflicts, expired, evictions (empty when off). */
+    public Map<String, Long> getIdempotencyStats() {
+        return idempotency == null ? Collections.emptyMap() : idempotency.stats();
+    }
+
+    private static String await(CompletableFuture<String> f) throws IOException {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<String> submitPledge(User user, String projectId, long amount, String tierNameOrEmpty,
+                                                   String idempotencyKey) throws IOException {
+        if (user == null) return CompletableFuture.completedFuture("Please login first.");
+        Project p = db.projects.get(projectId);
+        if (p == null) return CompletableFuture.completedFuture("Project not found.");
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) return lockAndPledge(user, p, amount, tierNameOrEmpty, "");
+        checkIdempotencyKey(idempotencyKey);
+        if (idempotency == null) return lockAndPledge(user, p, amount, tierNameOrEmpty, idempotencyKey);
+
+        // claim the key before pledging, so a concurrent retry finds this future and waits for it
+        String request = IdempotencyCache.request(projectId, amount, tierNameOrEmpty);
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        IdempotencyCache.Answer first = idempotency.putIfAbsent(user.userId, idempotencyKey, request, mine);
+        if (first != null) return first.request.equals(request) ? first.result : CompletableFuture.completedFuture(KEY_REUSED_MESSAGE);
+        try {
+            lockAndPledge(user, p, amount, tierNameOrEmpty, idempotencyKey).whenComplete((msg, ex) -> {
+                if (ex == null) {
+                    mine.complete(msg);
+                } else {
+                    idempotency.remove(user.userId, idempotencyKey, mine); // not durable: let a retry run again
+                    mine.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            idempotency.remove(user.userId, idempotencyKey, mine);
+            throw e;
+        }
+        return mine;
+    }
+
+    private static void checkIdempotencyKey(String key) {
+        boolean ok = key.length() <= 128;
+        for (int i = 0; ok && i < key.length(); i++) ok = !Character.isISOControl(key.charAt(i));
+        if (!ok) throw new IllegalArgumentException("idempotency key must be at most 128 characters, without control characters");
+    }
+
+    // Everything that reads or changes one project's raised/quota runs under that project's lock,
+    // so pledges to different projects proceed in parallel. The shared import gate only waits for bulk imports.
+    private CompletableFuture<String> lockAndPledge(User user, Project p, long amount, String tierNameOrEmpty, String key) throws IOException {
+        String projectId = p.projectId;
+        long t0 = Metrics.start();
+        Lock gate = locks.imports.readLock();
+        gate.lock();
+        try {
+            if (expiry.isClosed(p)) return rejectClosed(user, p, amount, tierNameOrEmpty, key, t0);
+            ReentrantLock lock = locks.forProject(projectId);
+            lock.lock();
+            try {
+                return pledgeLocked(user, p, amount, tierNameOrEmpty, key, PLEDGE_LOCK.recordSince(t0));
+            } finally {
+                lock.unlock();
+                PLEDGE_TOTAL.recordSince(t0);
             }
+        } finally {
+            gate.unlock();
         }
+    }
+
+    // t: phase start for metrics (0 when disabled)
+    private CompletableFuture<String> pledgeLocked(User user, Project p, long amount, String tierNameOrEmpty, String key, long t) throws IOException {
+        String projectId = p.projectId;
+
+        RejectReason rejected = validate(p, amount, tierNameOrEmpty);
+        t = PLEDGE_VALIDATE.recordSince(t);
+        if (rejected != null) return reject(user, projectId, amount, tierNameOrEmpty, key, rejected, t);
 
         // Apply
-        p.raised += amount;
-        if (chosen != null) chosen.quota--;
+        model.RewardTier chosen = hasTier(tierNameOrEmpty) ? db.findTier(projectId, tierNameOrEmpty) : null;
+        List<Mutation> muts = new ArrayList<>();
+        addRaised(p, amount);
+        muts.add(Mutation.raised(p));
+        if (chosen != null) muts.add(Mutation.quota(chosen));
+        t = PLEDGE_APPLY.recordSince(t);
+
+        return commit("SUCCESS", "", user.userId, projectId, amount, tierNameOrEmpty, key, muts, SUCCESS_MESSAGE, t);
+    }
 
-        db.saveProjects();
-        db.saveRewardTiers();
-        appendPledge("SUCCESS", currentUser.userId, projectId, amount, tierNameOrEmpty);
-        return "Success: Thank you for your support!";
+    /**
+     * The pledge rules, in order: deadline, amount positive (and raised not overflowing), tier exists,
+     * tier minimum, tier quota (reserved on success). Null means accepted. Call with the project's lock held.
+     */
+    RejectReason validate(Project p, long amount, String tierNameOrEmpty) {
+        if (expiry.isClosed(p)) return RejectReason.DEADLINE_PASSED;
+        if (amount <= 0 || amount > Long.MAX_VALUE - p.raised) return RejectReason.INVALID_AMOUNT;
+        if (!hasTier(tierNameOrEmpty)) return null;
+        model.RewardTier chosen = db.findTier(p.projectId, tierNameOrEmpty);
+        if (chosen == null) return RejectReason.TIER_NOT_FOUND;
+        if (amount < chosen.minAmount) return RejectReason.BELOW_TIER_MIN;
+        if (!chosen.tryReserve()) return RejectReason.QUOTA_EXHAUSTED;
+        return null;
     }
 
-    private void appendPledge(String status, String userId, String projectId, long amount, String tier) throws IOException {
-        String id = "pl" + (db.pledges.size() + 1);
-        Pledge pl = new Pledge(id, userId, projectId, LocalDateTime.now(), amount, tier, status);
-        db.pledges.add(pl);
-        db.appendPledge(pl);
+    /** Adds to raised and drops the cached listings it reorders. Call with the project's lock held. */
+    void addRaised(Project p, long amount) {
+        db.addRaised(p, amount);
+        if (searchCache != null) searchCache.raisedChanged(p);
     }
 
+    static boolean hasTier(String tierNameOrEmpty) { return tierNameOrEmpty != null && !tierNameOrEmpty.isBlank(); }
+
+    private CompletableFuture<String> reject(User user, String projectId, long amount, String tier, String key, RejectReason reason, long t) throws IOException {
+        return commit("REJECTED", reason.name(), user.userId, projectId, amount, tier, key,
+                List.of(Mutation.rejected(db.incrementRejected())), reason.message, t);
+    }
+
+    // Closed stays closed, so no lock is needed; the counter goes to disk in batches (see CsvDb#commitRejected).
+    private CompletableFuture<String> rejectClosed(User user, Project p, long amount, String tier, String key, long t0) throws IOException {
+        RejectReason reason = RejectReason.DEADLINE_PASSED;
+        db.incrementRejected();
+        Pledge pl = new Pledge(db.nextPledgeId(), user.userId, p.projectId, LocalDateTime.now(), amount, tier, "REJECTED", reason.name(), key);
+        CompletableFuture<Void> done = db.commitRejected(pl);
+        PLEDGES_REJECTED.increment();
+        PLEDGE_CLOSED.recordSince(t0);
+        return done.thenApply(v -> reason.message);
+    }
+
+    private CompletableFuture<String> commit(String status, String reason, String userId, String projectId, long amount, String tier,
+                                             String key, List<Mutation> muts, String message, long t) throws IOException {
+        Pledge pl = new Pledge(db.nextPledgeId(), userId, projectId, LocalDateTime.now(), amount, tier, status, reason, key);
+        CompletableFuture<Void> done = db.commit(pl, muts);
+        ("SUCCESS".equals(status) ? PLEDGES_ACCEPTED : PLEDGES_REJECTED).increment();
+        PLEDGE_PERSIST.recordSince(t);
+        return done.thenApply(v -> message);
+    }
+
+    // --- Bulk import ---
+    /**
+     * Applies a stream of pledge requests with the same rules and outcome as calling
+     * {@link #pledge(Session, String, long, String)} once per request in order, but persists once per
+     * {@code checkpointEvery} requests instead of once per pledge. See {@link BulkImporter}.
+     */
+    public BulkImporter.Result importPledges(Iterator<PledgeRequest> requests, int checkpointEvery) throws IOException {
+        return new BulkImporter(this, db, locks).run(requests, checkpointEvery);
+    }
+
+    /** Sorted case-insensitively; unmodifiable. Cached, as projects do not change after load. */
     public Set<String> listCategories(){
+        if (searchCache != null) return searchCache.categories(db.projects.values());
         Set<String> cats = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
         for (Project p : db.projects.values()) cats.add(p.category);
-        return cats;
+        return Collections.unmodifiableSet(cats);
+    }
+
+    @Override
+    public void close() throws IOException {
+        expiry.close();
+        db.close();
     }
 }
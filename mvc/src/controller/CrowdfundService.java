@@ -0,0 +1,47 @@
+package controller;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import repo.PledgeAggregates;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What the HTTP API needs from the catalog: served by one {@link CrowdfundController},
+ * or by a {@link PartitionRouter} in front of several.
+ */
+public interface CrowdfundService extends Closeable {
+    Session openSession(String username);
+    Session findSession(String token);
+    void closeSession(String token);
+
+    default ProjectPage search(String keyword, String category, String sortKey, int offset, int limit) {
+        return search(keyword, category, sortKey, false, offset, limit);
+    }
+    default ProjectPage searchAfter(String keyword, String category, String sortKey, String afterProjectId, int limit) {
+        return searchAfter(keyword, category, sortKey, false, afterProjectId, limit);
+    }
+    /** {@code openOnly} leaves out campaigns whose deadline has passed. */
+    ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, int offset, int limit);
+    ProjectPage searchAfter(String keyword, String category, String sortKey, boolean openOnly, String afterProjectId, int limit);
+    Set<String> listCategories();
+
+    Project getProject(String id);
+    List<RewardTier> getTiers(String projectId);
+    int getBackerCount(String projectId);
+
+    List<Pledge> getMyPledges(Session session);
+    default String pledge(Session session, String projectId, long amount, String tierNameOrEmpty) throws IOException {
+        return pledge(session, projectId, amount, tierNameOrEmpty, null);
+    }
+    /** A retry with the same idempotency key returns the first answer instead of pledging again. */
+    String pledge(Session session, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException;
+
+    long getSuccessCount();
+    long getRejectedCount();
+    PledgeAggregates getAggregates();
+}
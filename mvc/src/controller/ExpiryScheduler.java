@@ -0,0 +1,103 @@
+package controller;
+
+import model.Project;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closes campaigns as their deadlines pass. A project is open while its deadline lies after today, so it closes
+ * at the start of its deadline day (local time). Open projects wait in a priority queue by deadline; one daemon
+ * thread sleeps until the earliest closing time and hands every due project to the closer.
+ * {@link #isClosed} is what pledges check: the flag, plus one clock compare against the earliest pending close
+ * for the moment between a deadline passing and the thread getting to it.
+ */
+class ExpiryScheduler implements AutoCloseable {
+    /** Flips a project to closed; {@code live} is false for projects already past their deadline at load. */
+    interface Closer { void close(Project p, boolean live); }
+
+    private static final long MAX_SLEEP_MILLIS = 60 * 60 * 1000L; // wake at least hourly, in case the wall clock jumps
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final PriorityQueue<Project> open =
+            new PriorityQueue<>(Comparator.comparing((Project p) -> p.deadline).thenComparing(p -> p.projectId));
+    private final Closer closer;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "campaign-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile long nextCloseAt = Long.MAX_VALUE;
+    private long closedLive;
+
+    ExpiryScheduler(Collection<Project> projects, Closer closer) {
+        this.closer = closer;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (Project p : projects) {
+                if (closesAt(p) <= now) closer.close(p, false);
+                else open.add(p);
+            }
+            nextCloseAt = open.isEmpty() ? Long.MAX_VALUE : closesAt(open.peek());
+        }
+        schedule(now);
+    }
+
+    long closesAt(Project p) {
+        return p.deadline.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    boolean isClosed(Project p) {
+        if (p.closed) return true;
+        if (nextCloseAt > System.currentTimeMillis()) return false;
+        return closesAt(p) <= System.currentTimeMillis();
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<Project> due = new ArrayList<>();
+        synchronized (this) {
+            while (!open.isEmpty() && closesAt(open.peek()) <= now) due.add(open.poll());
+        }
+        // nextCloseAt moves on only after the flags are set, so isClosed never misses one in between
+        for (Project p : due) {
+            try {
+                closer.close(p, true);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        synchronized (this) {
+            closedLive += due.size();
+            nextCloseAt = open.isEmpty() ? Long.MAX_VALUE : closesAt(open.peek());
+        }
+        schedule(now);
+    }
+
+    private void schedule(long now) {
+        long wait = Math.min(MAX_SLEEP_MILLIS, Math.max(0, nextCloseAt - now));
+        try {
+            timer.schedule(this::tick, wait, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed meanwhile
+        }
+    }
+
+    /** open: projects still waiting, closedLive: closed while running, nextCloseAt: epoch millis (0 when none). */
+    synchronized Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("open", (long) open.size());
+        out.put("closedLive", closedLive);
+        out.put("nextCloseAt", nextCloseAt == Long.MAX_VALUE ? 0 : nextCloseAt);
+        return out;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
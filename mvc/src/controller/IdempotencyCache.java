@@ -0,0 +1,102 @@
+package controller;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers of pledges sent with an idempotency key, so a retry gets the first answer back in O(1) without
+ * being validated, applied or written again. Keys are scoped to the user. Entries live {@code ttlMillis} from
+ * the pledge and at most {@code maxEntries} are kept, oldest dropped first. The keys are stored with the pledges,
+ * so the controller refills the cache on load.
+ * The future is stored before the pledge runs, so concurrent duplicates all wait on the first one's result.
+ */
+class IdempotencyCache {
+    /** One keyed pledge: what was asked (a key reused for another request is refused) and its answer. */
+    static final class Answer {
+        final String request;
+        final CompletableFuture<String> result;
+        final long expiresAt;
+
+        Answer(String request, CompletableFuture<String> result, long expiresAt) {
+            this.request = request;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Answer> entries;   // insertion order, which is about expiry order
+    private long replays, conflicts, expired, evictions;
+
+    IdempotencyCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Answer> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    private static String key(String userId, String key) { return userId + '\n' + key; }
+
+    /** What a retry must repeat for the key to count as the same pledge. */
+    static String request(String projectId, long amount, String tierNameOrEmpty) {
+        return projectId + '\n' + amount + '\n' + (tierNameOrEmpty == null ? "" : tierNameOrEmpty);
+    }
+
+    /**
+     * Registers {@code result} for the key unless a live entry exists, which is returned instead
+     * (check its {@link Answer#request} against the retry's).
+     */
+    synchronized Answer putIfAbsent(String userId, String key, String request, CompletableFuture<String> result) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        String k = key(userId, key);
+        Answer e = entries.get(k);
+        if (e != null && e.expiresAt > now) {
+            if (e.request.equals(request)) replays++; else conflicts++;
+            return e;
+        }
+        entries.remove(k); // re-insert at the tail, in expiry order
+        entries.put(k, new Answer(request, result, now + ttlMillis));
+        return null;
+    }
+
+    /** Drops the key if it still maps to {@code result} (the pledge failed, so a retry should run again). */
+    synchronized void remove(String userId, String key, CompletableFuture<String> result) {
+        String k = key(userId, key);
+        Answer e = entries.get(k);
+        if (e != null && e.result == result) entries.remove(k);
+    }
+
+    /** Adds a pledge read from disk, made at {@code atMillis}; skipped when already expired. */
+    synchronized void restore(String userId, String key, String request, String answer, long atMillis) {
+        long expiresAt = atMillis + ttlMillis;
+        if (expiresAt <= System.currentTimeMillis()) return;
+        String k = key(userId, key);
+        entries.remove(k);
+        entries.put(k, new Answer(request, CompletableFuture.completedFuture(answer), expiresAt));
+    }
+
+    // drop expired entries from the head; stops at the first live one, so each call does little work
+    private void expire(long now) {
+        for (Iterator<Answer> it = entries.values().iterator(); it.hasNext(); ) {
+            if (it.next().expiresAt > now) return;
+            it.remove();
+            expired++;
+        }
+    }
+
+    synchronized Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("entries", (long) entries.size());
+        out.put("replays", replays);
+        out.put("conflicts", conflicts);
+        out.put("expired", expired);
+        out.put("evictions", evictions);
+        return out;
+    }
+}
@@ -0,0 +1,48 @@
+package controller;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** A partition loaded in this JVM: straight calls into its controller. */
+class LocalPartition implements Partition {
+    private final CrowdfundController controller;
+
+    LocalPartition(CrowdfundController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, Project after, int limit) {
+        return after == null ? controller.search(keyword, category, sortKey, openOnly, 0, limit)
+                : controller.searchAfterProject(keyword, category, sortKey, openOnly, after, limit);
+    }
+
+    @Override public Project getProject(String projectId) { return controller.getProject(projectId); }
+    @Override public List<RewardTier> getTiers(String projectId) { return controller.getTiers(projectId); }
+    @Override public int getBackerCount(String projectId) { return controller.getBackerCount(projectId); }
+    @Override public Set<String> listCategories() { return controller.listCategories(); }
+    @Override public User findUser(String username) { return controller.findUserByName(username); }
+    @Override public List<Pledge> pledgesOf(String userId) { return controller.getPledgesOf(userId); }
+
+    @Override
+    public String pledge(String userId, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException {
+        return controller.pledgeAs(controller.getUser(userId), projectId, amount, tierNameOrEmpty, idempotencyKey);
+    }
+
+    @Override
+    public Map<String, Long> stats() {
+        Map<String, Long> out = controller.getAggregates().summary();
+        out.put("rejectedCount", controller.getRejectedCount());
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException { controller.close(); }
+}
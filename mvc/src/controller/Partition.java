@@ -0,0 +1,36 @@
+package controller;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One hash partition of the catalog as seen by {@link PartitionRouter}: in this JVM ({@link #local})
+ * or in another one over a loopback socket ({@code server.RemotePartition}).
+ * Projects returned by a remote partition are copies taken when the call was answered.
+ */
+public interface Partition extends Closeable {
+    /** The first {@code limit} matches in order, after {@code after} when not null; total counts every match. */
+    ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, Project after, int limit) throws IOException;
+
+    Project getProject(String projectId) throws IOException;
+    List<RewardTier> getTiers(String projectId) throws IOException;
+    int getBackerCount(String projectId) throws IOException;
+    Set<String> listCategories() throws IOException;
+
+    User findUser(String username) throws IOException;
+    String pledge(String userId, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException;
+    List<Pledge> pledgesOf(String userId) throws IOException;
+
+    /** {@link repo.PledgeAggregates#summary()} plus "rejectedCount". */
+    Map<String, Long> stats() throws IOException;
+
+    static Partition local(CrowdfundController controller) { return new LocalPartition(controller); }
+}
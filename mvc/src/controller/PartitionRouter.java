@@ -0,0 +1,245 @@
+package controller;
+
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+import repo.DbOptions;
+import repo.PartitionLayout;
+import repo.PledgeAggregates;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Front of a partitioned catalog (see {@link PartitionLayout}). Reads and pledges for one project go to the
+ * partition that owns it; search asks every partition for its first {@code offset + limit} matches in parallel
+ * and merges them in the listing order, so pages, totals and cursors come out as from one catalog.
+ * Sessions live here; users are looked up in partition 0 (each partition holds the same users.csv).
+ */
+public class PartitionRouter implements CrowdfundService {
+    private static final Histogram SEARCH = Metrics.latency("router.search");
+    private static final Histogram PLEDGE = Metrics.latency("router.pledge");
+
+    private interface Call<T> { T on(Partition p) throws IOException; }
+
+    private final List<Partition> partitions;
+    private final ExecutorService executor = AsyncCrowdfundController.defaultExecutor();
+    private final SessionStore sessions;
+    private volatile Set<String> categories;
+
+    /** Partitions in partition order: element k must own the projects with {@code partitionOf(id, size) == k}. */
+    public PartitionRouter(List<Partition> partitions) {
+        this(partitions, new DbOptions());
+    }
+
+    /** Only the session settings of {@code options} are used here. */
+    public PartitionRouter(List<Partition> partitions, DbOptions options) {
+        if (partitions.isEmpty()) throw new IllegalArgumentException("no partitions");
+        this.partitions = List.copyOf(partitions);
+        this.sessions = new SessionStore(options.maxSessions, options.sessionTtlMillis);
+    }
+
+    /** Loads every partition of {@code dataDir} in this JVM, side by side; each gets fresh options from {@code options}. */
+    public static PartitionRouter openLocal(Path dataDir, Supplier<DbOptions> options) throws IOException {
+        int n = PartitionLayout.count(dataDir);
+        List<CompletableFuture<Partition>> opening = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            int part = k;
+            opening.add(CompletableFuture.supplyAsync(() -> {
+                DbOptions o = options.get();
+                o.pledgeIdPrefix = PartitionLayout.pledgeIdPrefix(part);
+                try {
+                    return Partition.local(new CrowdfundController(PartitionLayout.dir(dataDir, part), o));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        List<Partition> opened = new ArrayList<>();
+        IOException failed = null;
+        for (CompletableFuture<Partition> f : opening) {
+            try {
+                opened.add(f.join());
+            } catch (CompletionException e) {
+                if (failed == null) failed = e.getCause() instanceof UncheckedIOException
+                        ? ((UncheckedIOException) e.getCause()).getCause() : new IOException(e.getCause());
+            }
+        }
+        if (failed != null) {
+            for (Partition p : opened) p.close();
+            throw failed;
+        }
+        return new PartitionRouter(opened, options.get());
+    }
+
+    public int partitionCount() { return partitions.size(); }
+
+    private Partition owner(String projectId) {
+        return partitions.get(PartitionLayout.partitionOf(projectId, partitions.size()));
+    }
+
+    private static <T> T one(Partition p, Call<T> call) {
+        try {
+            return call.on(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Runs the call on every partition at once (partition 0 on this thread); results in partition order. */
+    private <T> List<T> all(Call<T> call) {
+        List<CompletableFuture<T>> running = new ArrayList<>(partitions.size());
+        for (int k = 1; k < partitions.size(); k++) {
+            Partition p = partitions.get(k);
+            running.add(CompletableFuture.supplyAsync(() -> one(p, call), executor));
+        }
+        List<T> out = new ArrayList<>(partitions.size());
+        out.add(one(partitions.get(0), call));
+        try {
+            for (CompletableFuture<T> f : running) out.add(f.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return out;
+    }
+
+    // --- Sessions ---
+    @Override
+    public Session openSession(String username) {
+        User u = one(partitions.get(0), p -> p.findUser(username));
+        if (u == null) return null;
+        return sessions.open(u);
+    }
+    @Override public Session findSession(String token) { return sessions.find(token); }
+    @Override public void closeSession(String token) { sessions.close(token); }
+
+    // --- Scatter-gather search ---
+    @Override
+    public ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, int offset, int limit) {
+        offset = Math.max(0, offset);
+        limit = Math.max(0, limit);
+        int want = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        return merge(sortKey, offset, limit, all(p -> p.search(keyword, category, sortKey, openOnly, null, want)));
+    }
+
+    @Override
+    public ProjectPage searchAfter(String keyword, String category, String sortKey, boolean openOnly, String afterProjectId, int limit) {
+        if (afterProjectId != null && CrowdfundController.trendWindowFor(sortKey) != null) {
+            // a partition can only rank the cursor by its own window counters, which other partitions do not have
+            throw new IllegalArgumentException("trending sorts page by offset on a partitioned catalog, not by cursor");
+        }
+        Project after = afterProjectId == null ? null : getProject(afterProjectId);
+        int want = Math.max(0, limit);
+        return merge(sortKey, 0, want, all(p -> p.search(keyword, category, sortKey, openOnly, after, want)));
+    }
+
+    // k-way merge of per-partition pages, each already in listing order
+    private ProjectPage merge(String sortKey, int offset, int limit, List<ProjectPage> pages) {
+        long t = Metrics.start();
+        Map<String, Long> scores = new HashMap<>();
+        for (ProjectPage page : pages) scores.putAll(page.scores); // a project's window counters live in its owner only
+        boolean trending = CrowdfundController.trendWindowFor(sortKey) != null;
+        Comparator<Project> cmp = trending ? CrowdfundController.trendingOrder(scores) : CrowdfundController.orderFor(sortKey).comparator;
+        int total = 0;
+        int[] pos = new int[pages.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>((a, b) -> cmp.compare(pages.get(a).items.get(pos[a]), pages.get(b).items.get(pos[b])));
+        for (int k = 0; k < pages.size(); k++) {
+            total += pages.get(k).total;
+            if (!pages.get(k).items.isEmpty()) heads.add(k);
+        }
+        List<Project> items = new ArrayList<>(Math.min(limit, 1024));
+        for (int skipped = 0; !heads.isEmpty() && items.size() < limit; ) {
+            int k = heads.poll();
+            Project p = pages.get(k).items.get(pos[k]++);
+            if (pos[k] < pages.get(k).items.size()) heads.add(k);
+            if (skipped < offset) skipped++; else items.add(p);
+        }
+        // trending pages have no cursor here, see searchAfter
+        String next = items.size() == limit && limit > 0 && !trending ? items.get(items.size() - 1).projectId : null;
+        SEARCH.recordSince(t);
+        if (!trending) return new ProjectPage(items, offset, total, next);
+        Map<String, Long> pageScores = new HashMap<>();
+        for (Project p : items) pageScores.put(p.projectId, scores.getOrDefault(p.projectId, 0L));
+        return new ProjectPage(items, offset, total, next, pageScores);
+    }
+
+    /** Union over the partitions, sorted case-insensitively; unmodifiable. Cached, as projects do not change after load. */
+    @Override
+    public Set<String> listCategories() {
+        Set<String> c = categories;
+        if (c == null) {
+            Set<String> cats = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (Set<String> part : all(Partition::listCategories)) cats.addAll(part);
+            categories = c = Collections.unmodifiableSet(cats);
+        }
+        return c;
+    }
+
+    // --- Single-project calls go to the owner ---
+    @Override public Project getProject(String id) { return id == null ? null : one(owner(id), p -> p.getProject(id)); }
+    @Override public List<RewardTier> getTiers(String projectId) { return one(owner(projectId), p -> p.getTiers(projectId)); }
+    @Override public int getBackerCount(String projectId) { return one(owner(projectId), p -> p.getBackerCount(projectId)); }
+
+    @Override
+    public String pledge(Session session, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException {
+        if (session == null) return "Please login first.";
+        if (projectId == null) return "Project not found.";
+        long t = Metrics.start();
+        // keys are per user, but a pledge's key only ever reaches its project's owner, which dedups it
+        String msg = owner(projectId).pledge(session.user.userId, projectId, amount, tierNameOrEmpty, idempotencyKey);
+        PLEDGE.recordSince(t);
+        return msg;
+    }
+
+    /** The user's pledges from every partition, oldest first. */
+    @Override
+    public List<Pledge> getMyPledges(Session session) {
+        if (session == null) return new ArrayList<>();
+        List<Pledge> out = new ArrayList<>();
+        for (List<Pledge> part : all(p -> p.pledgesOf(session.user.userId))) out.addAll(part);
+        out.sort(Comparator.comparing(pl -> pl.datetime));
+        return out;
+    }
+
+    // --- Stats, summed over partitions ---
+    @Override public long getSuccessCount() { return sum("total.success"); }
+    @Override public long getRejectedCount() { return sum("rejectedCount"); }
+
+    private long sum(String key) {
+        long n = 0;
+        for (Map<String, Long> s : all(Partition::stats)) n += s.getOrDefault(key, 0L);
+        return n;
+    }
+
+    /** Total, per-category and per-reason counters of all partitions (per project / user / day are not gathered). */
+    @Override
+    public PledgeAggregates getAggregates() {
+        PledgeAggregates agg = new PledgeAggregates();
+        for (Map<String, Long> s : all(Partition::stats)) agg.addSummary(s);
+        return agg;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException first = null;
+        for (Partition p : partitions) {
+            try {
+                p.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+            }
+        }
+        executor.shutdown();
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,20 @@
+package controller;
+
+import java.time.LocalDateTime;
+
+/** One line of a bulk import: who pledges how much to which project, as {@link CrowdfundController#pledge} takes it. */
+public class PledgeRequest {
+    public final String user;              // userId, or a username when no user has that id
+    public final String projectId;
+    public final long amount;
+    public final String tierName;          // "" for no tier
+    public final LocalDateTime datetime;   // recorded on the pledge; null = time of import
+
+    public PledgeRequest(String user, String projectId, long amount, String tierName, LocalDateTime datetime) {
+        this.user = user;
+        this.projectId = projectId;
+        this.amount = amount;
+        this.tierName = tierName == null ? "" : tierName;
+        this.datetime = datetime;
+    }
+}
@@ -0,0 +1,24 @@
+package controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One lock per projectId, created on first use.
+ * Pledges to different projects never share a lock, so they never contend.
+ */
+class ProjectLocks {
+    private final ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Pledges hold the read side from validation until their state changes are logged or queued; a bulk import
+     * chunk holds the write side until its batch is written. So an import's absolute raised/quota values never
+     * interleave in the WAL with those of a concurrent pledge to the same project.
+     */
+    final ReentrantReadWriteLock imports = new ReentrantReadWriteLock();
+
+    ReentrantLock forProject(String projectId) {
+        return locks.computeIfAbsent(projectId, k -> new ReentrantLock());
+    }
+}
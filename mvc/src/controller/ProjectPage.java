@@ -0,0 +1,28 @@
+package controller;
+
+import model.Project;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** One page of a project listing. */
+public class ProjectPage {
+    public final List<Project> items;
+    public final int offset;
+    public final int total;          // all matches, not just this page
+    public final String nextCursor;  // projectId to pass to searchAfter, null on the last page
+    public final Map<String, Long> scores; // trending sorts: each item's raised in the window; empty otherwise
+
+    public ProjectPage(List<Project> items, int offset, int total, String nextCursor) {
+        this(items, offset, total, nextCursor, Collections.emptyMap());
+    }
+
+    public ProjectPage(List<Project> items, int offset, int total, String nextCursor, Map<String, Long> scores) {
+        this.items = items;
+        this.offset = offset;
+        this.total = total;
+        this.nextCursor = nextCursor;
+        this.scores = scores;
+    }
+}
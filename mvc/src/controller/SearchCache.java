@@ -0,0 +1,190 @@
+package controller;
+
+import model.Project;
+import repo.ProjectOrder;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU of filtered search results: normalized (keyword, category, order) to every match, sorted,
+ * plus the category set. Cached lists hold the live Project objects, so names and raised totals on
+ * screen are always current; what can go stale is the order, and only RAISED_DESC depends on raised.
+ * A change to one project's raised therefore drops just the RAISED_DESC entries whose filter matches it,
+ * and only keeps a list being computed out of the cache when that list's filter matches the project.
+ * Open-only lists also drop out when a campaign they list closes.
+ * Projects are fixed after load, so everything else lives until evicted or {@link #clear()}.
+ */
+class SearchCache {
+    /** Keyword already trimmed and lowercased, category null for all. */
+    static final class Key {
+        final String kw;
+        final String category;
+        final ProjectOrder order;
+        final boolean openOnly;
+
+        Key(String kw, String category, ProjectOrder order, boolean openOnly) {
+            this.kw = kw;
+            this.category = category == null ? null : category.toLowerCase(Locale.ROOT);
+            this.order = order;
+            this.openOnly = openOnly;
+        }
+
+        /** Same test as {@link repo.ProjectIndex#query}. */
+        boolean matches(Project p) {
+            if (category != null && !category.equalsIgnoreCase(p.category)) return false;
+            return kw.isEmpty() || p.projectId.contains(kw) || p.name.toLowerCase().contains(kw);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return kw.equals(k.kw) && Objects.equals(category, k.category) && order == k.order && openOnly == k.openOnly;
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(kw, category, order, openOnly); }
+    }
+
+    /** A match list being computed, from {@link #begin} to {@link #put}. */
+    static final class Pending {
+        final Key key;
+        final long closedVersion;
+        boolean stale;   // guarded by the cache: a project the key matches changed raised meanwhile
+
+        Pending(Key key, long closedVersion) {
+            this.key = key;
+            this.closedVersion = closedVersion;
+        }
+    }
+
+    final int maxResults;
+    private final LinkedHashMap<Key, List<Project>> entries;
+    private final Map<String, Set<Key>> raisedKeys = new HashMap<>();  // cached RAISED_DESC keys by category, "" = any
+    private final Set<Pending> pending = new HashSet<>();               // RAISED_DESC lists being computed
+    private final AtomicInteger raisedTracked = new AtomicInteger();    // both of the above, so pledges skip the lock when 0
+    private final AtomicLong closedVersion = new AtomicLong();  // bumped when a campaign closes, guards puts of open-only lists
+    private long hits, misses, evictions, invalidations;
+    private volatile Set<String> categories;
+
+    SearchCache(int maxEntries, int maxResults) {
+        this.maxResults = maxResults;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Project>> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions++;
+                if (eldest.getKey().order == ProjectOrder.RAISED_DESC) untrack(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    synchronized List<Project> get(Key key) {
+        List<Project> l = entries.get(key);
+        if (l == null) misses++; else hits++;
+        return l;
+    }
+
+    /** Call before computing the matches for {@code key}; hand the result to {@link #put}. */
+    Pending begin(Key key) {
+        Pending c = new Pending(key, closedVersion.get());
+        if (key.order != ProjectOrder.RAISED_DESC) return c;
+        synchronized (this) {
+            pending.add(c);
+            raisedTracked.incrementAndGet();
+        }
+        return c;
+    }
+
+    /**
+     * Ends a computation from {@link #begin} and stores its sorted list ({@code null} = not cacheable) unless
+     * a project its filter matches changed raised meanwhile, or (open-only lists) a campaign closed.
+     */
+    synchronized void put(Pending c, List<Project> sorted) {
+        Key key = c.key;
+        boolean fresh = !c.stale && (!key.openOnly || c.closedVersion == closedVersion.get());
+        if (sorted != null && fresh && entries.put(key, sorted) == null && key.order == ProjectOrder.RAISED_DESC) {
+            raisedKeys.computeIfAbsent(bucket(key.category), k -> new HashSet<>()).add(key);
+            raisedTracked.incrementAndGet();
+        }
+        // after tracking the entry, so the count never drops to 0 in between
+        if (key.order == ProjectOrder.RAISED_DESC && pending.remove(c)) raisedTracked.decrementAndGet();
+    }
+
+    /** Call after p.raised changed. */
+    void raisedChanged(Project p) {
+        // an atomic read-modify-write, not get(): ordered against begin()'s, so a computation that starts
+        // meanwhile either is seen here or sorts with the new raised
+        if (raisedTracked.getAndAdd(0) == 0) return;
+        synchronized (this) {
+            for (Pending c : pending) if (c.key.matches(p)) c.stale = true;
+            invalidate(raisedKeys.get(""), p);
+            invalidate(raisedKeys.get(bucket(p.category)), p);
+        }
+    }
+
+    private void invalidate(Set<Key> keys, Project p) {
+        if (keys == null) return;
+        for (Iterator<Key> it = keys.iterator(); it.hasNext(); ) {
+            Key k = it.next();
+            if (!k.matches(p)) continue;
+            it.remove();
+            entries.remove(k);
+            raisedTracked.decrementAndGet();
+            invalidations++;
+        }
+    }
+
+    private void untrack(Key k) {
+        Set<Key> keys = raisedKeys.get(bucket(k.category));
+        if (keys != null && keys.remove(k)) raisedTracked.decrementAndGet();
+    }
+
+    private static String bucket(String category) { return category == null ? "" : category.toLowerCase(Locale.ROOT); }
+
+    /** Call after p was closed: drops the open-only entries whose filter matches it. */
+    void projectClosed(Project p) {
+        closedVersion.incrementAndGet();
+        synchronized (this) {
+            for (Iterator<Map.Entry<Key, List<Project>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Key k = it.next().getKey();
+                if (k.openOnly && k.matches(p)) {
+                    it.remove();
+                    if (k.order == ProjectOrder.RAISED_DESC) untrack(k);
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    Set<String> categories(Collection<Project> projects) {
+        Set<String> c = categories;
+        if (c == null) {
+            Set<String> cats = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (Project p : projects) cats.add(p.category);
+            categories = c = Collections.unmodifiableSet(cats);
+        }
+        return c;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        raisedKeys.clear();
+        for (Pending c : pending) c.stale = true;
+        raisedTracked.set(pending.size());
+        categories = null;
+    }
+
+    synchronized Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("entries", (long) entries.size());
+        out.put("hits", hits);
+        out.put("misses", misses);
+        out.put("evictions", evictions);
+        out.put("invalidations", invalidations);
+        return out;
+    }
+}
@@ -0,0 +1,16 @@
+package controller;
+
+import model.User;
+
+/** One logged-in user. Each client holds its own session instead of sharing currentUser. */
+public class Session {
+    public final String token;
+    public final User user;
+    public final long createdAtMillis;
+
+    Session(String token, User user) {
+        this.token = token;
+        this.user = user;
+        this.createdAtMillis = System.currentTimeMillis();
+    }
+}
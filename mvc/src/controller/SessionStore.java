@@ -0,0 +1,66 @@
+package controller;
+
+import model.User;
+
+import java.util.*;
+
+/**
+ * Open sessions by token. A session lives {@code ttlMillis} from {@link Session#createdAtMillis} and at most
+ * {@code maxSessions} are kept, oldest dropped first, so clients that log in and never log out cannot grow it
+ * without bound. An expired or dropped token is simply not found (HTTP answers 401).
+ */
+class SessionStore {
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Session> sessions;   // insertion order, which is expiry order
+    private long expired, evictions;
+
+    SessionStore(int maxSessions, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                if (size() <= maxSessions) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    synchronized Session open(User u) {
+        expire(System.currentTimeMillis());
+        Session s = new Session(UUID.randomUUID().toString(), u);
+        sessions.put(s.token, s);
+        return s;
+    }
+
+    synchronized Session find(String token) {
+        if (token == null) return null;
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        if (s.createdAtMillis + ttlMillis > System.currentTimeMillis()) return s;
+        sessions.remove(token);
+        expired++;
+        return null;
+    }
+
+    synchronized void close(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    // drop expired sessions from the head; stops at the first live one
+    private void expire(long now) {
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (it.next().createdAtMillis + ttlMillis > now) return;
+            it.remove();
+            expired++;
+        }
+    }
+
+    synchronized Map<String, Long> stats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("open", (long) sessions.size());
+        out.put("expired", expired);
+        out.put("evictions", evictions);
+        return out;
+    }
+}
@@ -0,0 +1,20 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic counter; a no-op while {@link Metrics} is disabled. */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        if (Metrics.enabled()) value.increment();
+    }
+
+    public void add(long n) {
+        if (Metrics.enabled()) value.add(n);
+    }
+
+    public long get() { return value.sum(); }
+
+    void reset() { value.reset(); }
+}
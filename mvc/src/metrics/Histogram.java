@@ -0,0 +1,99 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR-style histogram: log-linear buckets (32 per power of two, so any recorded value is reported within ~3%),
+ * lock-free recording and a fixed 15 KB footprint whatever the range. Values are nanoseconds for latencies
+ * and bytes for sizes. Recording is a no-op while {@link Metrics} is disabled.
+ */
+public final class Histogram implements HistogramMXBean {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final String name;
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS) * SUB);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    static int index(long v) {
+        if (v < SUB) return (int) Math.max(0, v);
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+    }
+
+    // largest value that lands in bucket i
+    static long upperBound(int i) {
+        int b = i >>> SUB_BITS;
+        if (b == 0) return i;
+        long lower = (long) (SUB + (i & (SUB - 1))) << (b - 1);
+        return lower + (1L << (b - 1)) - 1;
+    }
+
+    public void record(long value) {
+        if (!Metrics.enabled()) return;
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time since {@code t0} (from {@link Metrics#start()} or a previous call) and returns now,
+     * so consecutive phases chain: {@code t = LOCK.recordSince(t); ... t = VALIDATE.recordSince(t);}.
+     * Returns 0 and records nothing when t0 is 0, i.e. metrics were off when the operation started.
+     */
+    public long recordSince(long t0) {
+        if (t0 == 0) return 0;
+        long now = System.nanoTime();
+        record(now - t0);
+        return now;
+    }
+
+    public String getName() { return name; }
+    @Override public String getUnit() { return unit; }
+    @Override public long getCount() { return count.sum(); }
+    @Override public long getMax() { return max.get(); }
+
+    @Override
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /** Value at quantile q (0..1), as the upper bound of its bucket. */
+    public long percentile(double q) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    @Override public long getP50() { return percentile(0.50); }
+    @Override public long getP90() { return percentile(0.90); }
+    @Override public long getP99() { return percentile(0.99); }
+    @Override public long getP999() { return percentile(0.999); }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,14 @@
+package metrics;
+
+/** JMX view of one {@link Histogram}: crowdfund:type=Histogram,name=&lt;metric name&gt;. */
+public interface HistogramMXBean {
+    String getUnit();
+    long getCount();
+    double getMean();
+    long getP50();
+    long getP90();
+    long getP99();
+    long getP999();
+    long getMax();
+    void reset();
+}
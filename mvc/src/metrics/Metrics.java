@@ -0,0 +1,116 @@
+package metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of hot-path counters and histograms.
+ * Off by default ({@code -Dcrowdfund.metrics=true} or {@link #setEnabled} turns it on); while off,
+ * instrumented code pays one volatile read per measuring point and never calls {@code nanoTime}.
+ * <pre>
+ * long t = Metrics.start();
+ * ...
+ * SEARCH.recordSince(t);
+ * </pre>
+ */
+public final class Metrics {
+    private static volatile boolean enabled = Boolean.getBoolean("crowdfund.metrics");
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static MBeanServer jmx; // set once registerMBeans() ran
+
+    private Metrics() {}
+
+    public static boolean enabled() { return enabled; }
+
+    public static void setEnabled(boolean on) { enabled = on; }
+
+    /** Start of a measured operation: nanoTime, or 0 when metrics are off. */
+    public static long start() { return enabled ? System.nanoTime() : 0; }
+
+    /** Histogram of durations in nanoseconds. */
+    public static Histogram latency(String name) { return histogram(name, "ns"); }
+
+    public static Histogram histogram(String name, String unit) {
+        return histograms.computeIfAbsent(name, n -> register(new Histogram(n, unit)));
+    }
+
+    public static Counter counter(String name) { return counters.computeIfAbsent(name, n -> new Counter()); }
+
+    public static void reset() {
+        histograms.values().forEach(Histogram::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /** Fixed-width table of every metric; latencies in microseconds. */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-32s %9s %10s %10s %10s %10s %10s %10s%n",
+                "histogram", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Histogram h : histograms.values()) {
+            boolean ns = h.getUnit().equals("ns");
+            String name = h.getName() + (ns ? " (us)" : " (" + h.getUnit() + ")");
+            double div = ns ? 1000.0 : 1.0;
+            sb.append(String.format("%-32s %9d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, h.getCount(),
+                    h.getMean() / div, h.getP50() / div, h.getP90() / div, h.getP99() / div, h.getP999() / div, h.getMax() / div));
+        }
+        if (!counters.isEmpty()) {
+            sb.append(String.format("%n%-32s %12s%n", "counter", "value"));
+            counters.forEach((k, c) -> sb.append(String.format("%-32s %12d%n", k, c.get())));
+        }
+        return sb.toString();
+    }
+
+    public static void dump(Path file) throws IOException {
+        String header = "# crowdfund metrics " + LocalDateTime.now() + (enabled ? "" : " (collection disabled)") + "\n";
+        Files.writeString(file, header + report(), StandardCharsets.UTF_8);
+    }
+
+    /** Publishes the registry and every histogram on the platform MBean server (idempotent). */
+    public static synchronized void registerMBeans() {
+        if (jmx != null) return;
+        jmx = ManagementFactory.getPlatformMBeanServer();
+        try {
+            jmx.registerMBean(new Bean(), new ObjectName("crowdfund:type=Metrics"));
+        } catch (Exception e) {
+            System.err.println("metrics: JMX registration failed: " + e);
+        }
+        histograms.values().forEach(Metrics::register);
+    }
+
+    private static synchronized Histogram register(Histogram h) {
+        if (jmx == null) return h;
+        try {
+            ObjectName name = new ObjectName("crowdfund:type=Histogram,name=" + ObjectName.quote(h.getName()));
+            if (!jmx.isRegistered(name)) jmx.registerMBean(h, name);
+        } catch (Exception e) {
+            System.err.println("metrics: JMX registration of " + h.getName() + " failed: " + e);
+        }
+        return h;
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override public boolean isEnabled() { return enabled; }
+        @Override public void setEnabled(boolean on) { Metrics.setEnabled(on); }
+        @Override public String getReport() { return report(); }
+        @Override public void reset() { Metrics.reset(); }
+        @Override public void dump(String path) throws IOException { Metrics.dump(Paths.get(path)); }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> out = new TreeMap<>();
+            counters.forEach((k, c) -> out.put(k, c.get()));
+            return out;
+        }
+    }
+}
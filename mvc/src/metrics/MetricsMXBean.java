@@ -0,0 +1,14 @@
+package metrics;
+
+import java.util.Map;
+
+/** JMX control for the whole registry: crowdfund:type=Metrics. */
+public interface MetricsMXBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    Map<String, Long> getCounters();
+    String getReport();
+    void reset();
+    /** Writes {@link #getReport()} to a file on the server side. */
+    void dump(String path) throws java.io.IOException;
+}
@@ -10,9 +10,21 @@ public class Pledge {
     public final long amount;
     public final String tierName; // nullable: empty string means no tier
     public final String status;   // "SUCCESS" / "REJECTED"
+    public final String reason;   // RejectReason name for rejected pledges, "" otherwise or when unknown
+    public final String idempotencyKey; // client's retry key, "" when none
 
     public Pledge(String pledgeId, String userId, String projectId,
                   LocalDateTime datetime, long amount, String tierName, String status) {
+        this(pledgeId, userId, projectId, datetime, amount, tierName, status, "");
+    }
+
+    public Pledge(String pledgeId, String userId, String projectId,
+                  LocalDateTime datetime, long amount, String tierName, String status, String reason) {
+        this(pledgeId, userId, projectId, datetime, amount, tierName, status, reason, "");
+    }
+
+    public Pledge(String pledgeId, String userId, String projectId, LocalDateTime datetime, long amount,
+                  String tierName, String status, String reason, String idempotencyKey) {
         this.pledgeId = pledgeId;
         this.userId = userId;
         this.projectId = projectId;
@@ -20,5 +32,7 @@ public class Pledge {
         this.amount = amount;
         this.tierName = tierName == null ? "" : tierName;
         this.status = status;
+        this.reason = reason == null ? "" : reason;
+        this.idempotencyKey = idempotencyKey == null ? "" : idempotencyKey;
     }
 }
@@ -1,5 +1,7 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 
 public class Project {
@@ -8,7 +10,8 @@ public class Project {
     public final String category;
     public final long target;          // > 0
     public final LocalDate deadline;   // must be future
-    public long raised;                // start at 0
+    public volatile long raised;       // start at 0
+    public volatile boolean closed;    // deadline passed; set by the controller's expiry scheduler, not stored
 
     public Project(String projectId, String name, String category, long target, LocalDate deadline, long raised) {
         this.projectId = projectId;
@@ -19,6 +22,11 @@ public class Project {
         this.raised = raised;
     }
 
+    /** Atomically adds to raised and returns the new total. */
+    public long addRaised(long amount) {
+        return (long) RAISED.getAndAdd(this, amount) + amount;
+    }
+
     public long remaining() {
         return Math.max(0, target - raised);
     }
@@ -27,4 +35,13 @@ public class Project {
         if (target <= 0) return 0.0;
         return Math.min(1.0, (double)raised / (double)target);
     }
+
+    private static final VarHandle RAISED;
+    static {
+        try {
+            RAISED = MethodHandles.lookup().findVarHandle(Project.class, "raised", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package model;
+
+/** Why a pledge was rejected; stored in the reason column of pledges.csv. */
+public enum RejectReason {
+    DEADLINE_PASSED("Rejected: Project deadline has passed."),
+    TIER_NOT_FOUND("Rejected: Reward tier not found."),
+    BELOW_TIER_MIN("Rejected: Amount below tier minimum."),
+    QUOTA_EXHAUSTED("Rejected: Tier quota exhausted."),
+    INVALID_AMOUNT("Rejected: Invalid amount.");   // not positive, or would overflow raised
+
+    public final String message;
+
+    RejectReason(String message) {
+        this.message = message;
+    }
+
+    /** Null for "" (success, or rows written before the column existed) and unknown codes. */
+    public static RejectReason parse(String code) {
+        if (code == null || code.isEmpty()) return null;
+        for (RejectReason r : values()) if (r.name().equals(code)) return r;
+        return null;
+    }
+}
@@ -1,10 +1,13 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 public class RewardTier {
     public final String projectId;
     public final String tierName;
     public final long minAmount;
-    public int quota;
+    public volatile int quota;
 
     public RewardTier(String projectId, String tierName, long minAmount, int quota) {
         this.projectId = projectId;
@@ -12,4 +15,22 @@ public class RewardTier {
         this.minAmount = minAmount;
         this.quota = quota;
     }
+
+    /** Takes one unit of quota with a CAS loop; false when the tier is sold out. */
+    public boolean tryReserve() {
+        while (true) {
+            int q = quota;
+            if (q <= 0) return false;
+            if (QUOTA.compareAndSet(this, q, q - 1)) return true;
+        }
+    }
+
+    private static final VarHandle QUOTA;
+    static {
+        try {
+            QUOTA = MethodHandles.lookup().findVarHandle(RewardTier.class, "quota", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 }
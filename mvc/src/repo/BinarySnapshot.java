@@ -0,0 +1,299 @@
+package repo;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary copy of all tables (data/snapshot.bin) for fast cold start.
+ * <pre>
+ * magic "CFSB", int version
+ * fingerprint: per CSV table, long size + long lastModified (-1/-1 when missing; summed over data/pledges/ when segmented)
+ * dictionary:  int count, then int byteLength + UTF-8 bytes per string
+ * sections:    projects, tiers, users, pledges: long count, then int length + payload per record
+ * long rejectedCount
+ * long CRC32 of everything above
+ * </pre>
+ * Strings inside records are dictionary indexes; dates are epoch day / epoch second + nano.
+ * A pledge with an idempotency key has its index after the reason; keyless pledge records end at the reason.
+ * Length prefixes let a reader skip fields appended by a later version.
+ * A snapshot is only used while every CSV still has the size and mtime it was written from,
+ * so an edited or appended CSV always wins.
+ */
+public final class BinarySnapshot {
+    public static final String FILE = "snapshot.bin";
+    static final String[] TABLES = {"projects.csv", "reward_tiers.csv", "users.csv", "pledges.csv", "stats.csv"};
+    private static final int MAGIC = 0x43465342; // "CFSB"
+    private static final int VERSION = 1;
+    private static final int WINDOW = 256 << 20;  // bytes mapped at a time, so files over 2 GB work too
+
+    /** Receives the rows of a snapshot in file order. */
+    interface Target {
+        void project(Project p);
+        void tier(RewardTier t);
+        void user(User u);
+        void pledge(Pledge pl);
+        void rejectedCount(long n);
+    }
+
+    private BinarySnapshot() {}
+
+    /** Size and mtime of each CSV table, in {@link #TABLES} order. */
+    static long[] fingerprint(Path dataDir) throws IOException {
+        long[] fp = new long[TABLES.length * 2];
+        for (int i = 0; i < TABLES.length; i++) {
+            Path p = dataDir.resolve(TABLES[i]);
+            boolean there = Files.exists(p);
+            if (!there && TABLES[i].equals("pledges.csv") && SegmentedPledgeLog.exists(dataDir)) {
+                long[] seg = SegmentedPledgeLog.fingerprint(dataDir);
+                fp[2 * i] = seg[0];
+                fp[2 * i + 1] = seg[1];
+                continue;
+            }
+            fp[2 * i] = there ? Files.size(p) : -1;
+            fp[2 * i + 1] = there ? Files.getLastModifiedTime(p).toMillis() : -1;
+        }
+        return fp;
+    }
+
+    /** True when the snapshot exists, has this version and was written from the CSVs as they are now. */
+    static boolean isCurrent(Path dataDir) throws IOException {
+        Path file = dataDir.resolve(FILE);
+        if (!Files.exists(file) || Files.size(file) < 8 + TABLES.length * 16 + 8) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            long[] now = fingerprint(dataDir);
+            for (long v : now) if (in.readLong() != v) return false;
+            return true;
+        }
+    }
+
+    /** Writes the tables aside and renames into place; fp is the CSV fingerprint to stamp. */
+    static void write(Path dataDir, long[] fp, Collection<Project> projects, Map<String, List<RewardTier>> tiers,
+                      Collection<User> users, List<Pledge> pledges, long rejectedCount) throws IOException {
+        Map<String, Integer> dict = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Project p : projects) { code(dict, strings, p.projectId); code(dict, strings, p.name); code(dict, strings, p.category); }
+        for (List<RewardTier> l : tiers.values()) {
+            for (RewardTier t : l) { code(dict, strings, t.projectId); code(dict, strings, t.tierName); }
+        }
+        for (User u : users) { code(dict, strings, u.userId); code(dict, strings, u.username); }
+        int pledgeCount; // pledges only ever grow, so later writes stop at what the dictionary covers
+        synchronized (pledges) {
+            pledgeCount = pledges.size();
+            for (int i = 0; i < pledgeCount; i++) {
+                Pledge pl = pledges.get(i);
+                if (ColumnarPledgeStore.idNumber(pl.pledgeId) < 0) code(dict, strings, pl.pledgeId);
+                code(dict, strings, pl.userId); code(dict, strings, pl.projectId); code(dict, strings, pl.tierName);
+                code(dict, strings, pl.status); code(dict, strings, pl.reason);
+                if (!pl.idempotencyKey.isEmpty()) code(dict, strings, pl.idempotencyKey);
+            }
+        }
+
+        Path file = dataDir.resolve(FILE);
+        Path tmp = file.resolveSibling(FILE + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fos, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (long v : fp) out.writeLong(v);
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream rec = new DataOutputStream(bytes);
+            out.writeLong(projects.size());
+            for (Project p : projects) {
+                bytes.reset();
+                rec.writeInt(dict.get(p.projectId));
+                rec.writeInt(dict.get(p.name));
+                rec.writeInt(dict.get(p.category));
+                rec.writeLong(p.target);
+                rec.writeLong(p.deadline.toEpochDay());
+                rec.writeLong(p.raised);
+                record(out, bytes);
+            }
+            long tierCount = 0;
+            for (List<RewardTier> l : tiers.values()) tierCount += l.size();
+            out.writeLong(tierCount);
+            for (List<RewardTier> l : tiers.values()) {
+                for (RewardTier t : l) {
+                    bytes.reset();
+                    rec.writeInt(dict.get(t.projectId));
+                    rec.writeInt(dict.get(t.tierName));
+                    rec.writeLong(t.minAmount);
+                    rec.writeInt(t.quota);
+                    record(out, bytes);
+                }
+            }
+            out.writeLong(users.size());
+            for (User u : users) {
+                bytes.reset();
+                rec.writeInt(dict.get(u.userId));
+                rec.writeInt(dict.get(u.username));
+                record(out, bytes);
+            }
+            synchronized (pledges) {
+                out.writeLong(pledgeCount);
+                for (int i = 0; i < pledgeCount; i++) {
+                    Pledge pl = pledges.get(i);
+                    bytes.reset();
+                    long n = ColumnarPledgeStore.idNumber(pl.pledgeId);
+                    rec.writeLong(n);
+                    if (n < 0) rec.writeInt(dict.get(pl.pledgeId));
+                    rec.writeInt(dict.get(pl.userId));
+                    rec.writeInt(dict.get(pl.projectId));
+                    rec.writeLong(pl.datetime.toEpochSecond(ZoneOffset.UTC));
+                    rec.writeInt(pl.datetime.getNano());
+                    rec.writeLong(pl.amount);
+                    rec.writeInt(dict.get(pl.tierName));
+                    rec.writeInt(dict.get(pl.status));
+                    rec.writeInt(dict.get(pl.reason));
+                    if (!pl.idempotencyKey.isEmpty()) rec.writeInt(dict.get(pl.idempotencyKey));
+                    record(out, bytes);
+                }
+            }
+            out.writeLong(rejectedCount);
+            out.flush();
+            fos.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+            fos.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void code(Map<String, Integer> dict, List<String> strings, String s) {
+        if (dict.putIfAbsent(s, strings.size()) == null) strings.add(s);
+    }
+
+    private static void record(DataOutputStream out, ByteArrayOutputStream bytes) throws IOException {
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /** Checks the CRC, then feeds every row to the target straight from the mapped file. */
+    static void read(Path dataDir, Target target) throws IOException {
+        try (FileChannel fc = FileChannel.open(dataDir.resolve(FILE), StandardOpenOption.READ)) {
+            long size = fc.size();
+            verify(fc, size);
+            Mapped in = new Mapped(fc, size - 8);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) throw new IOException("not a version " + VERSION + " snapshot");
+            for (int i = 0; i < TABLES.length * 2; i++) in.getLong();
+
+            String[] dict = new String[in.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < dict.length; i++) {
+                int len = in.getInt();
+                if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+                in.ensure(len);
+                in.buf.get(scratch, 0, len);
+                dict[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+            }
+
+            for (long n = in.getLong(); n > 0; n--) {
+                ByteBuffer r = in.record();
+                target.project(new Project(dict[r.getInt()], dict[r.getInt()], dict[r.getInt()], r.getLong(),
+                        LocalDate.ofEpochDay(r.getLong()), r.getLong()));
+                in.skipRecord();
+            }
+            for (long n = in.getLong(); n > 0; n--) {
+                ByteBuffer r = in.record();
+                target.tier(new RewardTier(dict[r.getInt()], dict[r.getInt()], r.getLong(), r.getInt()));
+                in.skipRecord();
+            }
+            for (long n = in.getLong(); n > 0; n--) {
+                ByteBuffer r = in.record();
+                target.user(new User(dict[r.getInt()], dict[r.getInt()]));
+                in.skipRecord();
+            }
+            for (long n = in.getLong(); n > 0; n--) {
+                ByteBuffer r = in.record();
+                long num = r.getLong();
+                String id = num >= 0 ? "pl" + num : dict[r.getInt()];
+                String user = dict[r.getInt()], project = dict[r.getInt()];
+                LocalDateTime at = LocalDateTime.ofEpochSecond(r.getLong(), r.getInt(), ZoneOffset.UTC);
+                long amount = r.getLong();
+                String tier = dict[r.getInt()], status = dict[r.getInt()], reason = dict[r.getInt()];
+                target.pledge(new Pledge(id, user, project, at, amount, tier, status, reason,
+                        in.inRecord() ? dict[r.getInt()] : ""));
+                in.skipRecord();
+            }
+            target.rejectedCount(in.getLong());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("corrupt snapshot", e);
+        }
+    }
+
+    private static void verify(FileChannel fc, long size) throws IOException {
+        if (size < 16) throw new IOException("snapshot truncated");
+        CRC32 crc = new CRC32();
+        for (long pos = 0; pos < size - 8; pos += WINDOW) {
+            crc.update(fc.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - 8 - pos)));
+        }
+        ByteBuffer stored = ByteBuffer.allocate(8);
+        fc.read(stored, size - 8);
+        if (stored.getLong(0) != crc.getValue()) throw new IOException("snapshot checksum mismatch");
+    }
+
+    /** Sequential reader over a file mapped one window at a time. */
+    private static final class Mapped {
+        private final FileChannel fc;
+        private final long end;
+        private long base = 0;
+        private MappedByteBuffer buf;
+        private int recordEnd;
+
+        Mapped(FileChannel fc, long end) throws IOException {
+            this.fc = fc;
+            this.end = end;
+            map(0);
+        }
+
+        private void map(long pos) throws IOException {
+            base = pos;
+            buf = fc.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, end - pos));
+        }
+
+        void ensure(int n) throws IOException {
+            if (buf.remaining() >= n) return;
+            long pos = base + buf.position();
+            if (n < 0 || end - pos < n) throw new IOException("snapshot truncated at byte " + pos);
+            map(pos);
+        }
+
+        int getInt() throws IOException { ensure(4); return buf.getInt(); }
+        long getLong() throws IOException { ensure(8); return buf.getLong(); }
+
+        /** Positions on the next record's payload; the caller reads its fields, then calls {@link #skipRecord}. */
+        ByteBuffer record() throws IOException {
+            int len = getInt();
+            ensure(len);
+            recordEnd = buf.position() + len;
+            return buf;
+        }
+
+        /** True while the current record has fields left, e.g. ones a newer writer appended. */
+        boolean inRecord() { return buf.position() < recordEnd; }
+
+        void skipRecord() { buf.position(recordEnd); }
+    }
+}
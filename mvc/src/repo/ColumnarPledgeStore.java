@@ -0,0 +1,187 @@
+package repo;
+
+import model.Pledge;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Pledge list stored as columns instead of one object per pledge.
+ * userId, projectId, tierName, status and reason are dictionary-encoded ints; amount and datetime
+ * (epoch second + nano, local time taken as UTC) are primitives; "pl&lt;n&gt;" ids keep only n.
+ * Idempotency keys are unique per pledge and rare, so they sit in a side map by row.
+ * Columns live in fixed-size chunks, so growing never copies what is already stored.
+ * About 48 bytes per pledge instead of 200+. {@link #get} builds a {@link Pledge} view on demand.
+ * Not thread-safe on its own: CsvDb wraps it in {@link Collections#synchronizedList}.
+ */
+public class ColumnarPledgeStore extends AbstractList<Pledge> implements RandomAccess {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+
+    /** Interns strings to dense int codes. */
+    static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String s) {
+            Integer c = codes.get(s);
+            if (c != null) return c;
+            codes.put(s, values.size());
+            values.add(s);
+            return values.size() - 1;
+        }
+
+        String decode(int code) { return values.get(code); }
+
+        /** Code for s, or -1 when s never occurred. */
+        int find(String s) { return codes.getOrDefault(s, -1); }
+
+        int size() { return values.size(); }
+    }
+
+    private static class Chunk {
+        final long[] idNum = new long[CHUNK];     // n of "pl<n>", -1 = see oddIds
+        final int[] user = new int[CHUNK];
+        final int[] project = new int[CHUNK];
+        final int[] tier = new int[CHUNK];
+        final int[] status = new int[CHUNK];
+        final int[] reason = new int[CHUNK];
+        final long[] amount = new long[CHUNK];
+        final long[] epochSecond = new long[CHUNK];
+        final int[] nano = new int[CHUNK];
+    }
+
+    private final Dictionary users = new Dictionary();
+    private final Dictionary projects = new Dictionary();
+    private final Dictionary tiers = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+    private final Dictionary reasons = new Dictionary();
+    private final Map<Integer, String> oddIds = new HashMap<>();
+    private final Map<Integer, String> keys = new HashMap<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int size = 0;
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean add(Pledge pl) {
+        if ((size & MASK) == 0 && (size >>> CHUNK_BITS) == chunks.size()) chunks.add(new Chunk());
+        Chunk c = chunks.get(size >>> CHUNK_BITS);
+        int i = size & MASK;
+        long n = idNumber(pl.pledgeId);
+        c.idNum[i] = n;
+        if (n < 0) oddIds.put(size, pl.pledgeId);
+        if (!pl.idempotencyKey.isEmpty()) keys.put(size, pl.idempotencyKey);
+        c.user[i] = users.encode(pl.userId);
+        c.project[i] = projects.encode(pl.projectId);
+        c.tier[i] = tiers.encode(pl.tierName);
+        c.status[i] = statuses.encode(pl.status);
+        c.reason[i] = reasons.encode(pl.reason);
+        c.amount[i] = pl.amount;
+        c.epochSecond[i] = pl.datetime.toEpochSecond(ZoneOffset.UTC);
+        c.nano[i] = pl.datetime.getNano();
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Pledge pl) {
+        if (index != size) throw new UnsupportedOperationException("append only");
+        add(pl);
+    }
+
+    @Override
+    public Pledge get(int row) {
+        Objects.checkIndex(row, size);
+        Chunk c = chunks.get(row >>> CHUNK_BITS);
+        int i = row & MASK;
+        String id = c.idNum[i] >= 0 ? "pl" + c.idNum[i] : oddIds.get(row);
+        return new Pledge(id, users.decode(c.user[i]), projects.decode(c.project[i]),
+                LocalDateTime.ofEpochSecond(c.epochSecond[i], c.nano[i], ZoneOffset.UTC),
+                c.amount[i], tiers.decode(c.tier[i]), statuses.decode(c.status[i]), reasons.decode(c.reason[i]),
+                keys.getOrDefault(row, ""));
+    }
+
+    @Override
+    public void clear() {
+        users.codes.clear(); users.values.clear();
+        projects.codes.clear(); projects.values.clear();
+        tiers.codes.clear(); tiers.values.clear();
+        statuses.codes.clear(); statuses.values.clear();
+        reasons.codes.clear(); reasons.values.clear();
+        oddIds.clear();
+        keys.clear();
+        chunks.clear();
+        size = 0;
+        modCount++;
+    }
+
+    /** Totals per dictionary value, as {@link #aggregate} hands them out. */
+    interface AggregateSink {
+        void project(String projectId, long success, long rejected, long raised);
+        void user(String userId, long success, long rejected, long raised);
+        void rejected(String reason, long count);
+        void raisedOnDay(long epochDay, long raised);
+    }
+
+    /**
+     * Success/rejected/raised per project and user, rejections per reason and raised per day in one pass over
+     * the primitive columns, counted into arrays indexed by dictionary code; no {@link Pledge} is built.
+     * Anything but SUCCESS counts as rejected, as in {@link PledgeAggregates#record}.
+     */
+    void aggregate(AggregateSink out) {
+        int ok = statuses.find("SUCCESS");
+        long[] pOk = new long[projects.size()], pRej = new long[projects.size()], pRaised = new long[projects.size()];
+        long[] uOk = new long[users.size()], uRej = new long[users.size()], uRaised = new long[users.size()];
+        long[] byReason = new long[reasons.size()];
+        Map<Long, Long> perDay = new HashMap<>();
+        long day = Long.MIN_VALUE, dayRaised = 0;   // rows come mostly in time order: add to the map once per run of a day
+        for (int ci = 0; ci < chunks.size(); ci++) {
+            Chunk c = chunks.get(ci);
+            int n = Math.min(CHUNK, size - (ci << CHUNK_BITS));
+            for (int i = 0; i < n; i++) {
+                int p = c.project[i], u = c.user[i];
+                if (c.status[i] != ok) {
+                    pRej[p]++;
+                    uRej[u]++;
+                    byReason[c.reason[i]]++;
+                    continue;
+                }
+                long amount = c.amount[i];
+                pOk[p]++;
+                pRaised[p] += amount;
+                uOk[u]++;
+                uRaised[u] += amount;
+                long d = Math.floorDiv(c.epochSecond[i], 86_400L);
+                if (d != day) {
+                    if (day != Long.MIN_VALUE) perDay.merge(day, dayRaised, Long::sum);
+                    day = d;
+                    dayRaised = 0;
+                }
+                dayRaised += amount;
+            }
+        }
+        if (day != Long.MIN_VALUE) perDay.merge(day, dayRaised, Long::sum);
+
+        for (int p = 0; p < pOk.length; p++) out.project(projects.decode(p), pOk[p], pRej[p], pRaised[p]);
+        for (int u = 0; u < uOk.length; u++) out.user(users.decode(u), uOk[u], uRej[u], uRaised[u]);
+        for (int r = 0; r < byReason.length; r++) if (byReason[r] > 0) out.rejected(reasons.decode(r), byReason[r]);
+        perDay.forEach(out::raisedOnDay);
+    }
+
+    // canonical "pl<digits>" without leading zeros, so "pl" + n reproduces the id exactly
+    static long idNumber(String id) {
+        if (id == null || id.length() < 3 || id.length() > 20 || !id.startsWith("pl") || id.charAt(2) == '0') return -1;
+        long n = 0;
+        for (int k = 2; k < id.length(); k++) {
+            int d = id.charAt(k) - '0';
+            if (d < 0 || d > 9) return -1;
+            n = n * 10 + d;
+        }
+        return n;
+    }
+}
@@ -1,41 +1,136 @@
 package repo;
 
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
 import model.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-public class CsvDb {
+public class CsvDb implements Closeable {
+    static final String PLEDGE_HEADER = "pledgeId,userId,projectId,datetime,amount,tierName,status,reason,idempotencyKey";
+
+    private static final Histogram SAVE_PROJECTS = Metrics.latency("save.projects");
+    private static final Histogram SAVE_PROJECTS_BYTES = Metrics.histogram("save.projects.bytes", "bytes");
+    private static final Histogram SAVE_TIERS = Metrics.latency("save.reward_tiers");
+    private static final Histogram SAVE_TIERS_BYTES = Metrics.histogram("save.reward_tiers.bytes", "bytes");
+    private static final Histogram SAVE_STATS = Metrics.latency("save.stats");
+    private static final Histogram SAVE_STATS_BYTES = Metrics.histogram("save.stats.bytes", "bytes");
+    private static final Histogram APPEND_PLEDGE = Metrics.latency("append.pledge");
+    private static final Histogram WAL_APPEND = Metrics.latency("wal.append");
+    private static final Histogram BATCH_WRITE = Metrics.latency("batch.write");
+    private static final Histogram BATCH_SIZE = Metrics.histogram("batch.size", "pledges");
+    private static final Counter SAVE_BYTES_WRITTEN = Metrics.counter("save.bytes_written");   // all table rewrites
+    private static final Counter SAVE_FSYNCS = Metrics.counter("save.fsyncs");
+
     private final Path dataDir;
+    private final DbOptions options;
+    private PledgeSink sink;                       // pledges.csv journal or the segment log
+    private SegmentedPledgeLog segments;           // null unless options.segmentedPledges
+    private MutationLog wal;
+    private GroupCommitWriter batchWriter;
+    private ScheduledExecutorService checkpointer;
+    private final AtomicBoolean checkpointRunning = new AtomicBoolean(false);
+    private ScheduledExecutorService rejectedFlusher;                 // null when rejectedFlushMillis is 0
+    private final AtomicBoolean rejectedDirty = new AtomicBoolean(false);
+    private int walReplayed = 0;
+    private Map<String, Long> loadTimings = Collections.emptyMap();
     public Map<String, Project> projects = new HashMap<>();
     public Map<String, List<RewardTier>> tiersByProject = new HashMap<>();
     public Map<String, User> users = new HashMap<>();
-    public List<Pledge> pledges = new ArrayList<>();
-    public long rejectedCount = 0;
+    private final Map<String, User> usersByName = new HashMap<>();                    // case-folded username
+    private final Map<String, IntList> pledgesByUser = new HashMap<>();               // userId -> rows in pledges, guarded by pledges
+    private final Map<String, Map<String, RewardTier>> tierIndex = new HashMap<>();    // projectId -> folded tier name
+    public final ProjectPledgeIndex projectPledges = new ProjectPledgeIndex();
+    public final List<Pledge> pledges;
+    private final ColumnarPledgeStore columnar;                                        // behind pledges when columnarPledges, else null
+    public final PledgeAggregates aggregates = new PledgeAggregates();
+    public final TrendingIndex trending;
+    public final ProjectIndex projectIndex = new ProjectIndex();
+    public final ProjectOrderIndex projectOrder = new ProjectOrderIndex();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final PledgeIdGenerator pledgeIds;
 
     public CsvDb(Path dataDir) throws IOException {
+        this(dataDir, new DbOptions());
+    }
+
+    public CsvDb(Path dataDir, DbOptions options) throws IOException {
+        if (PartitionLayout.exists(dataDir)) {
+            throw new IOException(dataDir + " is partitioned; open it through controller.PartitionRouter or run PartitionTool merge");
+        }
         this.dataDir = dataDir;
+        this.options = options;
+        this.pledgeIds = new PledgeIdGenerator(options.pledgeIdPrefix);
+        this.trending = new TrendingIndex(options.trendingTopK);
+        this.columnar = options.columnarPledges ? new ColumnarPledgeStore() : null;
+        this.pledges = Collections.synchronizedList(columnar != null ? columnar : new ArrayList<>());
+        if (options.segmentedPledges) {
+            sink = segments = new SegmentedPledgeLog(dataDir, options, PLEDGE_HEADER); // moves pledges.csv in on first use
+        } else if (SegmentedPledgeLog.exists(dataDir)) {
+            SegmentedPledgeLog.unsegment(dataDir, PLEDGE_HEADER);
+        }
         loadAll();
+        if (sink == null) {
+            sink = PledgeSink.of(new PledgeJournal(dataDir.resolve("pledges.csv"), PLEDGE_HEADER,
+                    options.fsyncPolicy, options.groupCommitMillis));
+        }
+        if (options.wal) {
+            wal = new MutationLog(dataDir, options);
+            checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "csvdb-checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpointQuietly,
+                    options.checkpointEveryMillis, options.checkpointEveryMillis, TimeUnit.MILLISECONDS);
+            if (walReplayed > 0) writeCheckpoint();
+        } else if (MutationLog.exists(dataDir)) {
+            // left over from an earlier WAL run: fold it into the tables and drop it
+            saveProjects();
+            saveRewardTiers();
+            saveStats();
+            MutationLog.deleteAll(dataDir);
+        }
+        if (options.batchSize > 0) {
+            batchWriter = new GroupCommitWriter(this, options.batchSize, options.batchMaxLingerMillis, options.batchQueueCapacity);
+        }
+        if (options.rejectedFlushMillis > 0) {
+            rejectedFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "csvdb-rejected-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            rejectedFlusher.scheduleWithFixedDelay(this::flushRejectedQuietly,
+                    options.rejectedFlushMillis, options.rejectedFlushMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
-    private static List<String[]> readCsv(Path p) throws IOException {
-        if (!Files.exists(p)) return new ArrayList<>();
-        List<String> lines = Files.readAllLines(p, StandardCharsets.UTF_8);
-        List<String[]> rows = new ArrayList<>();
-        for (int i = 1 /* skip header */; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (line.isEmpty()) continue;
-            rows.add(parseCsvLine(lines.get(i)));
-        }
-        return rows;
+    /** Opens a table positioned after its header line; null when the file does not exist. */
+    private static CsvReader openTable(Path p) throws IOException {
+        if (!Files.exists(p)) return null;
+        CsvReader in = CsvReader.open(p);
+        in.next(); // skip header
+        return in;
     }
 
-    private static String[] parseCsvLine(String line) {
+    public static String[] parseCsvLine(String line) {
         // Simple CSV parser handling quotes
         List<String> out = new ArrayList<>();
         StringBuilder cur = new StringBuilder();
@@ -57,86 +152,388 @@ public class CsvDb {
         return out.toArray(new String[0]);
     }
 
-    private static void writeCsv(Path p, List<String> lines) throws IOException {
-        Files.createDirectories(p.getParent());
-        Files.write(p, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    /**
+     * Returns the bytes written when metrics are on, 0 otherwise.
+     * With {@code durable} the file and then its directory are forced, so the rename itself survives a crash.
+     */
+    private static long writeCsv(Path p, List<String> lines, boolean durable) throws IOException {
+        Files.createDirectories(p.toAbsolutePath().getParent());
+        // write aside then rename, so a crash never leaves a half-written table behind
+        Path tmp = p.resolveSibling(p.getFileName() + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (durable) {
+            try (FileChannel fc = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                fc.force(true);
+            }
+            SAVE_FSYNCS.increment();
+        }
+        long bytes = Metrics.enabled() ? Files.size(tmp) : 0;
+        SAVE_BYTES_WRITTEN.add(bytes);
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (durable) syncDirectory(p.toAbsolutePath().getParent());
+        return bytes;
+    }
+
+    /** Forces a directory's entries (renames, creates) to disk. Not possible on every platform (e.g. Windows). */
+    static void syncDirectory(Path dir) throws IOException {
+        try (FileChannel fc = FileChannel.open(dir, StandardOpenOption.READ)) {
+            fc.force(true);
+            SAVE_FSYNCS.increment();
+        } catch (AccessDeniedException e) {
+            // directories cannot be opened for forcing here; the file itself is already on disk
+        }
     }
 
+    /**
+     * Whether a table rewrite must reach disk before the pledge is answered: only where durability is promised
+     * (a group-commit batch, EVERY_RECORD). A single GROUP_COMMIT pledge leaves the tables to the OS, just as its
+     * journal line waits for the fsync timer.
+     */
+    private boolean durableRewrite(boolean batch) {
+        PledgeJournal.FsyncPolicy policy = options.fsyncPolicy;
+        return policy == PledgeJournal.FsyncPolicy.EVERY_RECORD || (batch && policy != PledgeJournal.FsyncPolicy.OS);
+    }
+
+    private interface Loader { void load() throws IOException; }
+
     public void loadAll() throws IOException {
-        loadProjects();
-        loadRewardTiers();
-        loadUsers();
-        loadPledges();
-        loadStats();
+        Map<String, Loader> tables = new LinkedHashMap<>();
+        if (options.snapshot && BinarySnapshot.isCurrent(dataDir)) {
+            tables.put("snapshot", this::loadSnapshot);
+        } else {
+            tables.put("projects", this::loadProjects);
+            tables.put("reward_tiers", this::loadRewardTiers);
+            tables.put("users", this::loadUsers);
+            tables.put("pledges", this::loadPledges);
+            tables.put("stats", this::loadStats);
+        }
+
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        long t0 = System.nanoTime();
+        if (options.parallelLoad) {
+            // the five tables fill disjoint structures, so they can load side by side
+            List<CompletableFuture<Void>> running = new ArrayList<>();
+            tables.forEach((name, loader) -> running.add(CompletableFuture.runAsync(() -> {
+                try {
+                    timed(name, loader, timings);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })));
+            try {
+                CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+                throw e;
+            }
+        } else {
+            for (Map.Entry<String, Loader> t : tables.entrySet()) timed(t.getKey(), t.getValue(), timings);
+        }
+        timed("wal_replay", () -> walReplayed = MutationLog.replay(dataDir, this::apply), timings);
+        timed("aggregates", () -> {
+            if (columnar != null) aggregates.rebuild(columnar, projects); // column scan, no Pledge per row
+            else aggregates.rebuild(pledges, projects);
+        }, timings);
+        // every rejection leaves a REJECTED row, so the rows cover counts a crash kept out of stats.csv (see commitRejected)
+        if (aggregates.total().rejected() > rejectedCount.get()) {
+            rejectedCount.set(aggregates.total().rejected());
+            rejectedDirty.set(true); // written by the next flush or close
+        }
+        timed("trending", () -> trending.rebuild(pledges, projects), timings);
+        timed("user_index", this::indexPledgesByUser, timings);
+        timed("project_index", () -> projectPledges.rebuild(pledges), timings);
+        projectOrder.rebuild(projects.values()); // after replay: raised may have moved
+        timings.put("total", (System.nanoTime() - t0) / 1_000_000);
+
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        for (String name : tables.keySet()) ordered.put(name, timings.get(name));
+        ordered.put("wal_replay", timings.get("wal_replay"));
+        ordered.put("aggregates", timings.get("aggregates"));
+        ordered.put("trending", timings.get("trending"));
+        ordered.put("user_index", timings.get("user_index"));
+        ordered.put("project_index", timings.get("project_index"));
+        ordered.put("total", timings.get("total"));
+        loadTimings = Collections.unmodifiableMap(ordered);
+    }
+
+    private static void timed(String name, Loader loader, Map<String, Long> timings) throws IOException {
+        long t0 = System.nanoTime();
+        loader.load();
+        long ns = System.nanoTime() - t0;
+        Metrics.latency("load." + name).record(ns);
+        timings.put(name, ns / 1_000_000);
+    }
+
+    /** Milliseconds spent per table in the last {@link #loadAll()}, plus "wal_replay", the derived indexes and "total". */
+    public Map<String, Long> getLoadTimings() { return loadTimings; }
+
+    private void apply(Mutation m) {
+        switch (m.type) {
+            case RAISED: {
+                Project p = projects.get(m.projectId);
+                if (p != null) p.raised = m.value;
+                break;
+            }
+            case QUOTA:
+                for (RewardTier t : tiersByProject.getOrDefault(m.projectId, Collections.emptyList())) {
+                    if (t.tierName.equals(m.tierName)) { t.quota = (int) m.value; break; }
+                }
+                break;
+            case REJECTED:
+                // rejected records from concurrent pledges may land out of order
+                rejectedCount.accumulateAndGet(m.value, Math::max);
+                break;
+        }
     }
 
     private void loadProjects() throws IOException {
         Path p = dataDir.resolve("projects.csv");
         projects.clear();
-        List<String[]> rows = readCsv(p);
-        for (String[] r : rows) {
-            // projectId,name,category,target,deadline,raised
-            String id = r[0];
-            Project prj = new Project(
-                id, r[1], r[2],
-                Long.parseLong(r[3]),
-                LocalDate.parse(r[4]),
-                Long.parseLong(r[5])
-            );
-            projects.put(id, prj);
+        try (CsvReader in = openTable(p)) {
+            while (in != null && in.next()) {
+                if (in.isBlank()) continue;
+                // projectId,name,category,target,deadline,raised
+                String id = in.field(0);
+                Project prj = new Project(
+                    id, in.field(1), in.cachedField(2),
+                    in.longField(3),
+                    in.dateField(4),
+                    in.longField(5)
+                );
+                projects.put(id, prj);
+            }
         }
+        projectIndex.rebuild(projects.values());
     }
 
     private void loadRewardTiers() throws IOException {
         Path p = dataDir.resolve("reward_tiers.csv");
         tiersByProject.clear();
-        for (String[] r : readCsv(p)) {
-            RewardTier t = new RewardTier(
-                r[0], r[1], Long.parseLong(r[2]), Integer.parseInt(r[3])
-            );
-            tiersByProject.computeIfAbsent(t.projectId, k -> new ArrayList<>()).add(t);
+        tierIndex.clear();
+        try (CsvReader in = openTable(p)) {
+            while (in != null && in.next()) {
+                if (in.isBlank()) continue;
+                putTier(new RewardTier(
+                    in.cachedField(0), in.cachedField(1), in.longField(2), in.intField(3)
+                ));
+            }
         }
     }
 
+    private void putTier(RewardTier t) {
+        tiersByProject.computeIfAbsent(t.projectId, k -> new ArrayList<>()).add(t);
+        tierIndex.computeIfAbsent(t.projectId, k -> new HashMap<>()).putIfAbsent(fold(t.tierName), t);
+    }
+
     private void loadUsers() throws IOException {
         Path p = dataDir.resolve("users.csv");
         users.clear();
-        for (String[] r : readCsv(p)) {
-            users.put(r[0], new User(r[0], r[1]));
+        usersByName.clear();
+        try (CsvReader in = openTable(p)) {
+            while (in != null && in.next()) {
+                if (in.isBlank()) continue;
+                putUser(new User(in.field(0), in.field(1)));
+            }
         }
     }
 
+    private void putUser(User u) {
+        users.put(u.userId, u);
+        usersByName.putIfAbsent(fold(u.username), u);
+    }
+
     private void loadPledges() throws IOException {
         Path p = dataDir.resolve("pledges.csv");
         pledges.clear();
+        pledgeIds.reset();
+        if (segments != null) {
+            for (List<Pledge> part : segments.readAll(options.parallelLoad)) pledges.addAll(part);
+            synchronized (pledges) {
+                for (Pledge pl : pledges) pledgeIds.observe(pl.pledgeId);
+            }
+            return;
+        }
         if (!Files.exists(p)) return;
-        List<String> lines = Files.readAllLines(p, StandardCharsets.UTF_8);
-        for (int i = 1; i < lines.size(); i++) {
-            String[] r = parseCsvLine(lines.get(i));
-            if (r.length < 7) continue;
-            pledges.add(new Pledge(
-                r[0], r[1], r[2], LocalDateTime.parse(r[3]), Long.parseLong(r[4]), r[5], r[6]
-            ));
+        if (sink != null) sink.sync();
+        PledgeJournal.recover(p, CsvDb::isCompletePledgeRow);
+        try (FileChannel fc = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = fc.size();
+            long start = nextLineStart(fc, 0); // skip header
+            List<long[]> ranges = new ArrayList<>();
+            int chunk = options.parallelLoad ? Math.max(64 * 1024, options.loadChunkBytes) : Integer.MAX_VALUE;
+            while (start < size) {
+                long end = start + chunk >= size ? size : nextLineStart(fc, start + chunk);
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+            // lines are independent, so chunks parse on the fork-join pool and are merged in file order
+            List<List<Pledge>> parts = (ranges.size() > 1 ? ranges.parallelStream() : ranges.stream())
+                    .map(r -> parsePledges(fc, r[0], r[1]))
+                    .collect(Collectors.toList());
+            for (List<Pledge> part : parts) pledges.addAll(part);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        synchronized (pledges) {
+            for (Pledge pl : pledges) pledgeIds.observe(pl.pledgeId);
         }
     }
 
+    private static List<Pledge> parsePledges(FileChannel fc, long from, long to) {
+        List<Pledge> out = new ArrayList<>();
+        Reader r = new InputStreamReader(new RangeInputStream(fc, from, to), StandardCharsets.UTF_8);
+        try (CsvReader in = new CsvReader(r)) {
+            while (in.next()) {
+                Pledge pl = readPledge(in);
+                if (pl != null) out.add(pl);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /** The pledge on the reader's current line; null for lines with too few fields. */
+    static Pledge readPledge(CsvReader in) {
+        if (in.fieldCount() < 7) return null;
+        return new Pledge(
+            in.field(0), in.cachedField(1), in.cachedField(2), in.dateTimeField(3), in.longField(4),
+            in.cachedField(5), in.cachedField(6), in.fieldCount() > 7 ? in.cachedField(7) : "",
+            in.fieldCount() > 8 ? in.field(8) : ""
+        );
+    }
+
+    /** Offset just past the first '\n' at or after pos (or the file size). */
+    private static long nextLineStart(FileChannel fc, long pos) throws IOException {
+        long size = fc.size();
+        java.nio.ByteBuffer b = ByteBuffer.allocate(4096);
+        while (pos < size) {
+            b.clear();
+            int n = fc.read(b, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (b.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /** Reads [from, to) of a channel with positional reads, so several can share one channel. */
+    static class RangeInputStream extends InputStream {
+        private final FileChannel fc;
+        private long pos;
+        private final long end;
+
+        RangeInputStream(FileChannel fc, long from, long to) {
+            this.fc = fc;
+            this.pos = from;
+            this.end = to;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= end) return -1;
+            int n = fc.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - pos)), pos);
+            if (n <= 0) return -1;
+            pos += n;
+            return n;
+        }
+    }
+
+    /** All tables from snapshot.bin; a damaged snapshot falls back to the CSVs. */
+    private void loadSnapshot() throws IOException {
+        projects.clear();
+        tiersByProject.clear();
+        tierIndex.clear();
+        users.clear();
+        usersByName.clear();
+        pledges.clear();
+        pledgeIds.reset();
+        try {
+            BinarySnapshot.read(dataDir, new BinarySnapshot.Target() {
+                public void project(Project p) { projects.put(p.projectId, p); }
+                public void tier(RewardTier t) { putTier(t); }
+                public void user(User u) { putUser(u); }
+                public void pledge(Pledge pl) { pledges.add(pl); pledgeIds.observe(pl.pledgeId); }
+                public void rejectedCount(long n) { rejectedCount.set(n); }
+            });
+            projectIndex.rebuild(projects.values());
+        } catch (IOException e) {
+            System.err.println("Ignoring " + BinarySnapshot.FILE + " (" + e.getMessage() + "), loading CSV tables");
+            loadProjects();
+            loadRewardTiers();
+            loadUsers();
+            loadPledges();
+            loadStats();
+        }
+    }
+
+    /**
+     * Writes snapshot.bin from memory, stamped with the CSVs as they are now.
+     * Done by {@link #close()} when {@link DbOptions#snapshot} is on; call it while no pledges are in flight.
+     */
+    public void writeSnapshot() throws IOException {
+        if (sink != null) sink.sync();
+        BinarySnapshot.write(dataDir, BinarySnapshot.fingerprint(dataDir), projects.values(), tiersByProject,
+                users.values(), pledges, rejectedCount.get());
+    }
+
+    /** Writes all five tables as CSV into another directory (e.g. to read a snapshot-only dataset). */
+    public void exportCsv(Path dir) throws IOException {
+        List<Pledge> copy;
+        synchronized (pledges) { copy = new ArrayList<>(pledges); }
+        writeTables(dir, projects.values(), tiersByProject, users.values(), copy, rejectedCount.get());
+    }
+
+    /** Writes the given rows as a complete set of CSV tables (users.csv is left alone when users is null). */
+    static void writeTables(Path dir, Collection<Project> projects, Map<String, List<RewardTier>> tiers, Collection<User> users,
+                            List<Pledge> pledges, long rejected) throws IOException {
+        writeCsv(dir.resolve("projects.csv"), projectLines(projects), true);
+        writeCsv(dir.resolve("reward_tiers.csv"), tierLines(tiers), true);
+        if (users != null) {
+            List<String> out = new ArrayList<>();
+            out.add("userId,username");
+            for (User u : users) out.add(String.join(",", u.userId, esc(u.username)));
+            writeCsv(dir.resolve("users.csv"), out, true);
+        }
+        List<String> out = new ArrayList<>(pledges.size() + 1);
+        out.add(PLEDGE_HEADER);
+        for (Pledge pl : pledges) out.add(pledgeLine(pl));
+        writeCsv(dir.resolve("pledges.csv"), out, true);
+        writeCsv(dir.resolve("stats.csv"), statsLines(rejected), true);
+    }
+
     private void loadStats() throws IOException {
         Path p = dataDir.resolve("stats.csv");
-        if (!Files.exists(p)) { rejectedCount = 0; return; }
-        List<String> lines = Files.readAllLines(p, StandardCharsets.UTF_8);
-        for (int i = 1; i < lines.size(); i++) {
-            String[] r = parseCsvLine(lines.get(i));
-            if ("rejectedCount".equals(r[0])) {
-                rejectedCount = Long.parseLong(r[1]);
+        if (!Files.exists(p)) { rejectedCount.set(0); return; }
+        try (CsvReader in = openTable(p)) {
+            while (in.next()) {
+                if (in.fieldEquals(0, "rejectedCount")) {
+                    rejectedCount.set(in.longField(1));
+                }
             }
         }
     }
 
-    public void saveProjects() throws IOException {
-        Path p = dataDir.resolve("projects.csv");
+    public void saveProjects() throws IOException { saveProjects(durableRewrite(false)); }
+
+    private synchronized void saveProjects(boolean durable) throws IOException {
+        long t = Metrics.start();
+        SAVE_PROJECTS_BYTES.record(writeCsv(dataDir.resolve("projects.csv"), projectLines(projects.values()), durable));
+        SAVE_PROJECTS.recordSince(t);
+    }
+
+    private static List<String> projectLines(Collection<Project> projects) {
         List<String> out = new ArrayList<>();
         out.add("projectId,name,category,target,deadline,raised");
-        List<Project> sorted = projects.values().stream()
+        List<Project> sorted = projects.stream()
                 .sorted(Comparator.comparing(a -> a.projectId))
                 .collect(Collectors.toList());
         for (Project prj : sorted) {
@@ -147,11 +544,18 @@ public class CsvDb {
                 String.valueOf(prj.raised)
             ));
         }
-        writeCsv(p, out);
+        return out;
     }
 
-    public void saveRewardTiers() throws IOException {
-        Path p = dataDir.resolve("reward_tiers.csv");
+    public void saveRewardTiers() throws IOException { saveRewardTiers(durableRewrite(false)); }
+
+    private synchronized void saveRewardTiers(boolean durable) throws IOException {
+        long t = Metrics.start();
+        SAVE_TIERS_BYTES.record(writeCsv(dataDir.resolve("reward_tiers.csv"), tierLines(tiersByProject), durable));
+        SAVE_TIERS.recordSince(t);
+    }
+
+    private static List<String> tierLines(Map<String, List<RewardTier>> tiersByProject) {
         List<String> out = new ArrayList<>();
         out.add("projectId,tierName,minAmount,quota");
         for (String pid : tiersByProject.keySet()) {
@@ -161,35 +565,301 @@ public class CsvDb {
                 ));
             }
         }
-        writeCsv(p, out);
+        return out;
+    }
+
+    private void indexPledgesByUser() {
+        pledgesByUser.clear();
+        synchronized (pledges) {
+            for (int row = 0; row < pledges.size(); row++) {
+                pledgesByUser.computeIfAbsent(pledges.get(row).userId, k -> new IntList()).add(row);
+            }
+        }
+    }
+
+    /** Case folding used by the lookup maps (close to equalsIgnoreCase). */
+    static String fold(String s) {
+        return s.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /** Case-insensitive username lookup in O(1). */
+    public User findUserByName(String username) {
+        return username == null ? null : usersByName.get(fold(username));
+    }
+
+    /** Case-insensitive tier lookup within one project in O(1); null when absent. */
+    public RewardTier findTier(String projectId, String tierName) {
+        Map<String, RewardTier> m = tierIndex.get(projectId);
+        return m == null || tierName == null ? null : m.get(fold(tierName));
+    }
+
+    /** A user's pledges in the order they were made (a copy). */
+    public List<Pledge> pledgesOf(String userId) {
+        synchronized (pledges) {
+            IntList rows = pledgesByUser.get(userId);
+            if (rows == null) return new ArrayList<>();
+            List<Pledge> out = new ArrayList<>(rows.n);
+            for (int i = 0; i < rows.n; i++) out.add(pledges.get(rows.a[i]));
+            return out;
+        }
+    }
+
+    /** The segment log when {@link DbOptions#segmentedPledges} is on, else null. */
+    public SegmentedPledgeLog getSegments() { return segments; }
+
+    /**
+     * Pledges with {@code from <= datetime < to} (null = open) of one project (null = all), read from disk.
+     * Segmented storage skips segments and blocks by their footers; otherwise the in-memory list is filtered.
+     */
+    public SegmentedPledgeLog.Scan scanPledges(String projectId, LocalDateTime from, LocalDateTime to) throws IOException {
+        if (segments != null) return segments.scan(projectId, from, to);
+        SegmentedPledgeLog.Scan out = new SegmentedPledgeLog.Scan();
+        synchronized (pledges) {
+            for (Pledge pl : pledges) {
+                if (projectId != null && !projectId.equals(pl.projectId)) continue;
+                if (from != null && pl.datetime.isBefore(from)) continue;
+                if (to != null && !pl.datetime.isBefore(to)) continue;
+                out.pledges.add(pl);
+            }
+        }
+        return out;
+    }
+
+    /** Adds to raised and keeps the raised ordering current; call with the project's lock held. */
+    public long addRaised(Project p, long amount) { return projectOrder.addRaised(p, amount); }
+
+    public long getRejectedCount() { return rejectedCount.get(); }
+
+    /** Bumps the rejected counter and returns the new value (persist it via {@link Mutation#rejected}). */
+    public long incrementRejected() { return rejectedCount.incrementAndGet(); }
+
+    public String nextPledgeId() { return pledgeIds.next(); }
+
+    /**
+     * Records a pledge already applied in memory and persists it with its state changes.
+     * With group commit on, the future completes once the pledge's batch is on disk;
+     * otherwise everything is written before this returns.
+     */
+    public CompletableFuture<Void> commit(Pledge pl, List<Mutation> muts) throws IOException {
+        synchronized (pledges) {
+            pledgesByUser.computeIfAbsent(pl.userId, k -> new IntList()).add(pledges.size());
+            pledges.add(pl);
+        }
+        Project prj = projects.get(pl.projectId);
+        aggregates.record(pl, prj == null ? null : prj.category);
+        trending.record(pl, prj);
+        projectPledges.record(pl);
+        if (batchWriter != null) return batchWriter.submit(pl, muts);
+        persist(muts);
+        appendPledge(pl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Records a rejected pledge (its counter already bumped through {@link #incrementRejected}) without writing
+     * the counter now: it goes out with the next flush, at most {@link DbOptions#rejectedFlushMillis} later,
+     * so a flood of rejections appends pledge lines but does not rewrite stats.csv per request.
+     */
+    public CompletableFuture<Void> commitRejected(Pledge pl) throws IOException {
+        if (rejectedFlusher == null) return commit(pl, List.of(Mutation.rejected(rejectedCount.get())));
+        rejectedDirty.set(true);
+        return commit(pl, List.of());
+    }
+
+    /** Persists the rejected counter if {@link #commitRejected} changed it since the last flush. */
+    public void flushRejected() throws IOException {
+        if (rejectedDirty.getAndSet(false)) persist(List.of(Mutation.rejected(rejectedCount.get())));
+    }
+
+    private void flushRejectedQuietly() {
+        try { flushRejected(); } catch (IOException e) { rejectedDirty.set(true); e.printStackTrace(); }
+    }
+
+    /**
+     * Records pledges already applied in memory, in list order, and persists them as one batch:
+     * one table rewrite or WAL append for {@code muts}, one journal write, one fsync per file.
+     * Used by bulk import; {@code muts} should already be coalesced to the final value per project / tier.
+     */
+    public void commitAll(List<Pledge> batch, List<Mutation> muts) throws IOException {
+        if (batch.isEmpty() && muts.isEmpty()) return;
+        synchronized (pledges) {
+            for (Pledge pl : batch) {
+                pledgesByUser.computeIfAbsent(pl.userId, k -> new IntList()).add(pledges.size());
+                pledges.add(pl);
+            }
+        }
+        for (Pledge pl : batch) {
+            Project prj = projects.get(pl.projectId);
+            aggregates.record(pl, prj == null ? null : prj.category);
+            trending.record(pl, prj);
+            projectPledges.record(pl);
+        }
+        if (batchWriter == null) {
+            writeBatch(batch, muts);
+            return;
+        }
+        // behind the pledges already queued, so none of their older values is written after the batch's
+        try {
+            batchWriter.submitAll(batch, muts).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    /** Writes one group-commit batch: state changes, then pledge lines, then one fsync per file. */
+    void writeBatch(List<Pledge> batch, List<Mutation> muts) throws IOException {
+        long t = Metrics.start();
+        BATCH_SIZE.record(batch.size());
+        if (wal != null) {
+            wal.appendBatch(muts);
+            maybeCheckpoint();
+        } else {
+            rewriteTables(muts, durableRewrite(true));
+        }
+        sink.appendBatch(batch);
+        if (options.fsyncPolicy != PledgeJournal.FsyncPolicy.OS) {
+            if (wal != null) wal.sync();
+            sink.sync();
+        }
+        BATCH_WRITE.recordSince(t);
     }
 
     public void appendPledge(Pledge pl) throws IOException {
-        Path p = dataDir.resolve("pledges.csv");
-        boolean exists = Files.exists(p);
-        List<String> out = new ArrayList<>();
-        if (exists) out = Files.readAllLines(p, StandardCharsets.UTF_8);
-        else out.add("pledgeId,userId,projectId,datetime,amount,tierName,status");
-        out.add(String.join(",",
+        long t = Metrics.start();
+        sink.append(pl);
+        APPEND_PLEDGE.recordSince(t);
+    }
+
+    /** The idempotency key column is only written when there is a key, so keyless rows stay 8 columns. */
+    static String pledgeLine(Pledge pl) {
+        String line = String.join(",",
             pl.pledgeId, pl.userId, pl.projectId, pl.datetime.toString(),
-            String.valueOf(pl.amount), esc(pl.tierName), pl.status
-        ));
-        writeCsv(p, out);
+            String.valueOf(pl.amount), esc(pl.tierName), pl.status, pl.reason
+        );
+        return pl.idempotencyKey.isEmpty() ? line : line + "," + esc(pl.idempotencyKey);
     }
 
-    public void saveStats() throws IOException {
-        Path p = dataDir.resolve("stats.csv");
-        List<String> out = new ArrayList<>();
-        out.add("key,value");
-        out.add("rejectedCount," + rejectedCount);
-        writeCsv(p, out);
+    /** A torn last line may still split into 7 fields, so check the values too. */
+    static boolean isCompletePledgeRow(String[] r) {
+        if (r.length < 7) return false;
+        if (!"SUCCESS".equals(r[6]) && !"REJECTED".equals(r[6])) return false;
+        if (r.length > 7 && !r[7].isEmpty() && RejectReason.parse(r[7]) == null) return false;
+        try {
+            Long.parseLong(r[4]);
+            LocalDateTime.parse(r[3]);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Persists state changes already applied in memory.
+     * WAL mode appends one compact record each; otherwise the affected tables are rewritten.
+     */
+    public void persist(List<Mutation> muts) throws IOException {
+        if (wal != null) {
+            long t = Metrics.start();
+            wal.append(muts);
+            WAL_APPEND.recordSince(t);
+            maybeCheckpoint();
+            return;
+        }
+        rewriteTables(muts, durableRewrite(false));
+    }
+
+    private void maybeCheckpoint() {
+        if (wal.recordsSinceRotate() >= options.checkpointEveryRecords && !checkpointRunning.get()) {
+            checkpointer.execute(this::checkpointQuietly);
+        }
+    }
+
+    private void rewriteTables(List<Mutation> muts, boolean durable) throws IOException {
+        boolean prj = false, tiers = false, stats = false;
+        for (Mutation m : muts) {
+            switch (m.type) {
+                case RAISED: prj = true; break;
+                case QUOTA: tiers = true; break;
+                case REJECTED: stats = true; break;
+            }
+        }
+        if (prj) saveProjects(durable);
+        if (tiers) saveRewardTiers(durable);
+        if (stats) saveStats(durable);
+    }
+
+    /** Writes projects/tiers/stats as a checkpoint and drops the WAL files it covers. */
+    public void checkpoint() throws IOException {
+        if (wal == null || wal.recordsSinceRotate() == 0) return;
+        writeCheckpoint();
+    }
+
+    private void writeCheckpoint() throws IOException {
+        if (!checkpointRunning.compareAndSet(false, true)) return;
+        try {
+            long gen = wal.rotate();
+            // the WAL files are deleted next, so the tables must be on disk unless nothing is ever forced
+            boolean durable = options.fsyncPolicy != PledgeJournal.FsyncPolicy.OS;
+            saveProjects(durable);
+            saveRewardTiers(durable);
+            saveStats(durable);
+            wal.deleteUpTo(gen);
+        } finally {
+            checkpointRunning.set(false);
+        }
+    }
+
+    private void checkpointQuietly() {
+        try { checkpoint(); } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    public void saveStats() throws IOException { saveStats(durableRewrite(false)); }
+
+    private synchronized void saveStats(boolean durable) throws IOException {
+        long t = Metrics.start();
+        SAVE_STATS_BYTES.record(writeCsv(dataDir.resolve("stats.csv"), statsLines(rejectedCount.get()), durable));
+        SAVE_STATS.recordSince(t);
+    }
+
+    private static List<String> statsLines(long rejected) {
+        return new ArrayList<>(List.of("key,value", "rejectedCount," + rejected));
     }
 
-    private static String esc(String s) {
+    static String esc(String s) {
         if (s == null) return "";
-        if (s.contains(",") || s.contains(""")) {
-            return """ + s.replace(""","""") + """;
+        if (s.contains(",") || s.contains("\"")) {
+            return "\"" + s.replace("\"","\"\"") + "\"";
         }
         return s;
     }
+
+    @Override
+    public void close() throws IOException {
+        if (rejectedFlusher != null) {
+            rejectedFlusher.shutdown();
+            try {
+                rejectedFlusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (batchWriter != null) batchWriter.close();
+        flushRejected();
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (wal != null) {
+            checkpoint();
+            wal.close();
+        }
+        if (sink != null) sink.close();
+        // last, so the fingerprint sees the tables exactly as this run leaves them
+        if (options.snapshot) writeSnapshot();
+    }
 }
@@ -0,0 +1,229 @@
+package repo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV reader that parses one line at a time into reused buffers.
+ * Quote handling matches {@link CsvDb#parseCsvLine}: quotes toggle quoted mode anywhere in a field,
+ * "" inside quotes is a literal quote, and a record never spans lines.
+ * Numbers and dates are decoded straight from the char buffer; strings are only created on request.
+ */
+public class CsvReader implements Closeable {
+    private final Reader in;
+    private final char[] buf = new char[64 * 1024];
+    private int pos = 0, limit = 0;
+    private boolean eof = false;
+    private long lineNo = 0;
+
+    // unescaped field chars of the current line, and where each field starts/ends in it
+    private char[] chars = new char[256];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+    private boolean blank = true;
+
+    // small cache so repeated values (user ids, project ids, status...) share one String
+    private final String[] cache = new String[4096];
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    public static CsvReader open(Path p) throws IOException {
+        return new CsvReader(Files.newBufferedReader(p, StandardCharsets.UTF_8));
+    }
+
+    /** Moves to the next line; false at end of input. */
+    public boolean next() throws IOException {
+        if (pos >= limit && !fill()) return false;
+        count = 0;
+        blank = true;
+        int len = 0;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        while (true) {
+            if (pos >= limit && !fill()) break;
+            char c = buf[pos++];
+            if (c == '\n') break;
+            if (c == '\r') {
+                if ((pos < limit || fill()) && buf[pos] == '\n') pos++;
+                break;
+            }
+            if (c > ' ') blank = false;
+            if (inQuotes) {
+                if (c == '"') {
+                    if ((pos < limit || fill()) && buf[pos] == '"') { pos++; len = put(len, '"'); }
+                    else inQuotes = false;
+                } else {
+                    len = put(len, c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                endField(fieldStart, len);
+                fieldStart = len;
+            } else {
+                len = put(len, c);
+            }
+        }
+        endField(fieldStart, len);
+        lineNo++;
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) { eof = true; pos = limit = 0; return false; }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private int put(int len, char c) {
+        if (len == chars.length) chars = Arrays.copyOf(chars, len * 2);
+        chars[len] = c;
+        return len + 1;
+    }
+
+    private void endField(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /** 1-based number of the current line. */
+    public long lineNumber() { return lineNo; }
+
+    public int fieldCount() { return count; }
+
+    /** True when the line is empty or whitespace only (same test as {@code line.trim().isEmpty()}). */
+    public boolean isBlank() { return blank; }
+
+    private void check(int i) {
+        if (i < 0 || i >= count) throw new ArrayIndexOutOfBoundsException("Index " + i + " out of bounds for length " + count);
+    }
+
+    public String field(int i) {
+        check(i);
+        return new String(chars, starts[i], ends[i] - starts[i]);
+    }
+
+    /** Like {@link #field} but returns a shared instance for values seen recently. */
+    public String cachedField(int i) {
+        check(i);
+        int s = starts[i], e = ends[i];
+        int h = 0;
+        for (int k = s; k < e; k++) h = 31 * h + chars[k];
+        int slot = (h ^ (h >>> 16)) & (cache.length - 1);
+        String hit = cache[slot];
+        if (hit != null && hit.length() == e - s) {
+            boolean same = true;
+            for (int k = s; k < e && same; k++) same = hit.charAt(k - s) == chars[k];
+            if (same) return hit;
+        }
+        String v = new String(chars, s, e - s);
+        cache[slot] = v;
+        return v;
+    }
+
+    public boolean fieldEquals(int i, String s) {
+        check(i);
+        int len = ends[i] - starts[i];
+        if (len != s.length()) return false;
+        for (int k = 0; k < len; k++) if (chars[starts[i] + k] != s.charAt(k)) return false;
+        return true;
+    }
+
+    /** Parses like {@link Long#parseLong(String)} without creating a String first. */
+    public long longField(int i) {
+        check(i);
+        int s = starts[i], e = ends[i];
+        boolean neg = false;
+        if (s < e && (chars[s] == '-' || chars[s] == '+')) { neg = chars[s] == '-'; s++; }
+        // up to 18 digits cannot overflow; anything unusual goes through the JDK for identical errors
+        if (s == e || e - s > 18) return Long.parseLong(field(i));
+        long v = 0;
+        for (int k = s; k < e; k++) {
+            int d = chars[k] - '0';
+            if (d < 0 || d > 9) return Long.parseLong(field(i));
+            v = v * 10 + d;
+        }
+        return neg ? -v : v;
+    }
+
+    public int intField(int i) {
+        long v = longField(i);
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) return Integer.parseInt(field(i));
+        return (int) v;
+    }
+
+    /** yyyy-MM-dd decoded directly; other shapes fall back to {@link LocalDate#parse}. */
+    public LocalDate dateField(int i) {
+        check(i);
+        int s = starts[i];
+        if (ends[i] - s == 10 && chars[s + 4] == '-' && chars[s + 7] == '-') {
+            int y = digits(s, 4), m = digits(s + 5, 2), d = digits(s + 8, 2);
+            if (y >= 0 && m >= 0 && d >= 0) return LocalDate.of(y, m, d);
+        }
+        return LocalDate.parse(field(i));
+    }
+
+    /**
+     * Decodes the fixed ISO shape written by {@link LocalDateTime#toString()}:
+     * yyyy-MM-ddTHH:mm[:ss[.fraction]]. Anything else falls back to {@link LocalDateTime#parse}.
+     */
+    public LocalDateTime dateTimeField(int i) {
+        check(i);
+        int s = starts[i], e = ends[i], len = e - s;
+        if (len >= 16 && chars[s + 4] == '-' && chars[s + 7] == '-' && chars[s + 10] == 'T' && chars[s + 13] == ':') {
+            int y = digits(s, 4), mo = digits(s + 5, 2), d = digits(s + 8, 2);
+            int h = digits(s + 11, 2), mi = digits(s + 14, 2);
+            int sec = 0, nano = 0;
+            boolean ok = y >= 0 && mo >= 0 && d >= 0 && h >= 0 && mi >= 0;
+            if (ok && len > 16) {
+                ok = len >= 19 && chars[s + 16] == ':' && (sec = digits(s + 17, 2)) >= 0;
+                if (ok && len > 19) {
+                    int fracLen = len - 20;
+                    ok = chars[s + 19] == '.' && fracLen >= 1 && fracLen <= 9 && (nano = digits(s + 20, fracLen)) >= 0;
+                    for (int k = fracLen; ok && k < 9; k++) nano *= 10;
+                }
+            }
+            if (ok) return LocalDateTime.of(y, mo, d, h, mi, sec, nano);
+        }
+        return LocalDateTime.parse(field(i));
+    }
+
+    // returns -1 when any char is not a digit
+    private int digits(int from, int n) {
+        int v = 0;
+        for (int k = from; k < from + n; k++) {
+            int d = chars[k] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    /** Materializes the current line, for callers that still want {@code String[]}. */
+    public String[] toArray() {
+        String[] r = new String[count];
+        for (int i = 0; i < count; i++) r[i] = field(i);
+        return r;
+    }
+
+    @Override
+    public void close() throws IOException { in.close(); }
+}
@@ -0,0 +1,53 @@
+package repo;
+
+/** Tunables for how CsvDb persists data. Defaults match a single desktop user. */
+public class DbOptions {
+    public PledgeJournal.FsyncPolicy fsyncPolicy = PledgeJournal.FsyncPolicy.GROUP_COMMIT;
+    public long groupCommitMillis = 50;
+
+    // WAL mode: mutations go to state.wal, CSV tables become background checkpoints
+    public boolean wal = false;
+    public long checkpointEveryRecords = 10_000;
+    public long checkpointEveryMillis = 30_000;
+
+    // group commit: > 0 hands pledge writes to one writer thread that fsyncs once per batch
+    public int batchSize = 0;
+    public long batchMaxLingerMillis = 2;
+    public int batchQueueCapacity = 10_000;
+
+    // startup: load the tables concurrently and parse pledges.csv in newline-aligned byte chunks
+    public boolean parallelLoad = false;
+    public int loadChunkBytes = 8 << 20;
+
+    // memory: keep pledges as dictionary-encoded columns (ColumnarPledgeStore) instead of Pledge objects
+    public boolean columnarPledges = false;
+
+    // cold start: close() writes data/snapshot.bin; loadAll() reads it while the CSVs are unchanged since
+    public boolean snapshot = false;
+
+    // storage: pledges in data/pledges/ segments (SegmentedPledgeLog) instead of pledges.csv; rolled segments are gzipped
+    public boolean segmentedPledges = false;
+    public long segmentMaxBytes = 64L << 20;
+    public boolean segmentRollDaily = true;
+
+    // ids: new pledges get prefix + counter; partitions each use their own prefix (PartitionLayout.pledgeIdPrefix)
+    public String pledgeIdPrefix = "pl";
+
+    // search: LRU of sorted filtered results in the controller (0 entries turns it off); bigger result sets are not cached
+    public int searchCacheEntries = 256;
+    public int searchCacheMaxResults = 50_000;
+
+    // rejections of closed campaigns: the rejected counter is written at most this often (0 = with every rejection)
+    public long rejectedFlushMillis = 1000;
+
+    // trending: leaderboard size per window and metric (TrendingIndex)
+    public int trendingTopK = 20;
+
+    // retries: answers of keyed pledges kept this long for replay (0 keys turns the cache off; keys are still stored)
+    public int idempotencyMaxKeys = 100_000;
+    public long idempotencyKeyTtlMillis = 24 * 60 * 60 * 1000L;
+
+    // sessions (openSession / POST /api/sessions): a token expires this long after login; oldest dropped beyond the cap
+    public int maxSessions = 100_000;
+    public long sessionTtlMillis = 24 * 60 * 60 * 1000L;
+}
@@ -0,0 +1,120 @@
+package repo;
+
+import model.Pledge;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer thread that persists pledges in batches.
+ * Callers have already applied their pledge in memory; they enqueue the record plus its
+ * state changes and get a future that completes once the whole batch has been forced to disk.
+ */
+class GroupCommitWriter implements Closeable {
+    private static class Entry {
+        final List<Pledge> pledges;
+        final List<Mutation> muts;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Entry(List<Pledge> pledges, List<Mutation> muts) {
+            this.pledges = pledges;
+            this.muts = muts;
+        }
+    }
+
+    private static final Entry POISON = new Entry(List.of(), List.of());
+
+    private final CsvDb db;
+    private final int batchSize;
+    private final long maxLingerNanos;
+    private final BlockingQueue<Entry> queue;
+    private final Thread thread;
+
+    GroupCommitWriter(CsvDb db, int batchSize, long maxLingerMillis, int capacity) {
+        this.db = db;
+        this.batchSize = batchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::run, "pledge-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Blocks while the queue is full. */
+    CompletableFuture<Void> submit(Pledge pl, List<Mutation> muts) {
+        return submitAll(List.of(pl), muts);
+    }
+
+    /** Several pledges as one entry, written in queue order like single ones (bulk import chunks). */
+    CompletableFuture<Void> submitAll(List<Pledge> pls, List<Mutation> muts) {
+        Entry e = new Entry(pls, muts);
+        try {
+            queue.put(e);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            e.done.completeExceptionally(ex);
+        }
+        return e.done;
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) break;
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    Entry next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                stopping = true;
+            }
+            stopping |= batch.remove(POISON);
+            flush(batch);
+            batch.clear();
+        }
+        // entries that raced with close()
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.remove(POISON);
+        flush(rest);
+    }
+
+    private void flush(List<Entry> batch) {
+        if (batch.isEmpty()) return;
+        List<Pledge> pledges = new ArrayList<>(batch.size());
+        List<Mutation> muts = new ArrayList<>();
+        for (Entry e : batch) {
+            pledges.addAll(e.pledges);
+            muts.addAll(e.muts);
+        }
+        try {
+            db.writeBatch(pledges, muts);
+            for (Entry e : batch) e.done.complete(null);
+        } catch (Exception ex) {
+            for (Entry e : batch) e.done.completeExceptionally(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            queue.put(POISON);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
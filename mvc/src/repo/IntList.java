@@ -0,0 +1,15 @@
+package repo;
+
+import java.util.Arrays;
+
+/** Growable ascending int array (postings, row numbers); adding the last value again is a no-op. */
+class IntList {
+    int[] a = new int[4];
+    int n = 0;
+
+    void add(int v) {
+        if (n > 0 && a[n - 1] == v) return;
+        if (n == a.length) a = Arrays.copyOf(a, n * 2);
+        a[n++] = v;
+    }
+}
@@ -0,0 +1,58 @@
+package repo;
+
+import model.Project;
+import model.RewardTier;
+
+/**
+ * One state change recorded in the write-ahead log.
+ * Values are absolute (new raised / new quota / new rejected count) rather than deltas,
+ * so replaying a record on top of a checkpoint that already contains it is harmless.
+ */
+public class Mutation {
+    public enum Type { RAISED, QUOTA, REJECTED }
+
+    public final Type type;
+    public final String projectId;   // null for REJECTED
+    public final String tierName;    // only for QUOTA
+    public final long value;
+
+    private Mutation(Type type, String projectId, String tierName, long value) {
+        this.type = type;
+        this.projectId = projectId;
+        this.tierName = tierName;
+        this.value = value;
+    }
+
+    public static Mutation raised(Project p) { return new Mutation(Type.RAISED, p.projectId, null, p.raised); }
+    public static Mutation quota(RewardTier t) { return new Mutation(Type.QUOTA, t.projectId, t.tierName, t.quota); }
+    public static Mutation rejected(long count) { return new Mutation(Type.REJECTED, null, null, count); }
+
+    // R,projectId,raised,E | Q,projectId,tierName,quota,E | X,rejectedCount,E
+    // The trailing E marks a complete record: a torn "R,1,4567" could otherwise read as "R,1,45".
+    String toLine() {
+        switch (type) {
+            case RAISED: return "R," + projectId + "," + value + ",E";
+            case QUOTA: return "Q," + projectId + "," + CsvDb.esc(tierName) + "," + value + ",E";
+            default: return "X," + value + ",E";
+        }
+    }
+
+    static Mutation parse(String[] r) {
+        switch (r[0]) {
+            case "R": return new Mutation(Type.RAISED, r[1], null, Long.parseLong(r[2]));
+            case "Q": return new Mutation(Type.QUOTA, r[1], r[2], Long.parseLong(r[3]));
+            case "X": return new Mutation(Type.REJECTED, null, null, Long.parseLong(r[1]));
+            default: throw new IllegalArgumentException("Unknown WAL record: " + r[0]);
+        }
+    }
+
+    static boolean isComplete(String[] r) {
+        try {
+            parse(r);
+            int fields = "Q".equals(r[0]) ? 5 : "R".equals(r[0]) ? 4 : 3;
+            return r.length == fields && "E".equals(r[fields - 1]);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
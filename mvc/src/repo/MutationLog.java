@@ -0,0 +1,131 @@
+package repo;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Write-ahead log for projects/tiers/stats (data/state.wal).
+ * A checkpoint rotates the active file to state.wal.&lt;gen&gt;, writes the CSV tables,
+ * then deletes the rotated files it covered.
+ */
+public class MutationLog implements Closeable {
+    static final String HEADER = "type,projectId,tierName,value,end";
+    private static final String ACTIVE = "state.wal";
+
+    private final Path dir;
+    private final DbOptions options;
+    private PledgeJournal active;
+    private long generation;
+    private long recordsSinceRotate = 0;
+
+    public MutationLog(Path dir, DbOptions options) throws IOException {
+        this.dir = dir;
+        this.options = options;
+        List<Long> gens = rotatedGenerations(dir);
+        this.generation = gens.isEmpty() ? 0 : gens.get(gens.size() - 1);
+        this.active = open();
+    }
+
+    private PledgeJournal open() throws IOException {
+        return new PledgeJournal(dir.resolve(ACTIVE), HEADER, options.fsyncPolicy, options.groupCommitMillis);
+    }
+
+    /** Appends all records with a single write, forced according to the fsync policy. */
+    public synchronized void append(List<Mutation> muts) throws IOException {
+        if (muts.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (Mutation m : muts) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(m.toLine());
+        }
+        active.append(sb.toString());
+        recordsSinceRotate += muts.size();
+    }
+
+    /** Appends all records with a single write; the caller forces the batch with {@link #sync()}. */
+    public synchronized void appendBatch(List<Mutation> muts) throws IOException {
+        if (muts.isEmpty()) return;
+        List<String> lines = new ArrayList<>(muts.size());
+        for (Mutation m : muts) lines.add(m.toLine());
+        active.appendBatch(lines);
+        recordsSinceRotate += muts.size();
+    }
+
+    public synchronized long recordsSinceRotate() { return recordsSinceRotate; }
+
+    public synchronized void sync() throws IOException { active.sync(); }
+
+    /** Seals the active file and starts a new one. Returns the sealed generation. */
+    public synchronized long rotate() throws IOException {
+        active.close();
+        generation++;
+        Files.move(dir.resolve(ACTIVE), dir.resolve(ACTIVE + "." + generation), StandardCopyOption.ATOMIC_MOVE);
+        active = open();
+        recordsSinceRotate = 0;
+        return generation;
+    }
+
+    /** Drops sealed files once a checkpoint containing them is on disk. */
+    public void deleteUpTo(long gen) throws IOException {
+        for (long g : rotatedGenerations(dir)) {
+            if (g <= gen) Files.deleteIfExists(dir.resolve(ACTIVE + "." + g));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException { active.close(); }
+
+    /** Whether any log file (sealed or active) holds records to replay. */
+    public static boolean exists(Path dir) throws IOException {
+        return Files.exists(dir.resolve(ACTIVE)) || !rotatedGenerations(dir).isEmpty();
+    }
+
+    public static void deleteAll(Path dir) throws IOException {
+        for (long g : rotatedGenerations(dir)) Files.deleteIfExists(dir.resolve(ACTIVE + "." + g));
+        Files.deleteIfExists(dir.resolve(ACTIVE));
+    }
+
+    /** Replays sealed generations in order, then the active file. */
+    public static int replay(Path dir, Consumer<Mutation> apply) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (long g : rotatedGenerations(dir)) files.add(dir.resolve(ACTIVE + "." + g));
+        files.add(dir.resolve(ACTIVE));
+        int n = 0;
+        for (Path f : files) {
+            if (!Files.exists(f)) continue;
+            PledgeJournal.recover(f, Mutation::isComplete);
+            try (BufferedReader br = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                br.readLine(); // header
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    apply.accept(Mutation.parse(CsvDb.parseCsvLine(line)));
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static List<Long> rotatedGenerations(Path dir) throws IOException {
+        List<Long> gens = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return gens;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, ACTIVE + ".*")) {
+            for (Path p : ds) {
+                String suffix = p.getFileName().toString().substring(ACTIVE.length() + 1);
+                try { gens.add(Long.parseLong(suffix)); } catch (NumberFormatException ignore) { }
+            }
+        }
+        gens.sort(null);
+        return gens;
+    }
+}
@@ -0,0 +1,147 @@
+package repo;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Hash-partitioned data directory: projects, their reward tiers and their pledges are spread over
+ * N sub-directories by {@link #partitionOf}, each a complete CsvDb directory with its own loader and writers.
+ * <pre>
+ * data/partitions.properties   count=N
+ * data/users.csv               all users (a copy lives in every partition, users never change at runtime)
+ * data/part-00/ .. part-NN/    projects.csv, reward_tiers.csv, users.csv, pledges.csv, stats.csv (+ WAL, segments, snapshot)
+ * </pre>
+ * {@link #split} and {@link #merge} convert between this and the single-directory layout.
+ */
+public final class PartitionLayout {
+    public static final String FILE = "partitions.properties";
+    private static final String[] ROOT_TABLES = {"projects.csv", "reward_tiers.csv", "pledges.csv", "stats.csv", BinarySnapshot.FILE};
+
+    private PartitionLayout() {}
+
+    public static boolean exists(Path dataDir) { return Files.exists(dataDir.resolve(FILE)); }
+
+    public static int count(Path dataDir) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(dataDir.resolve(FILE))) {
+            props.load(in);
+        }
+        try {
+            int n = Integer.parseInt(props.getProperty("count", "").trim());
+            if (n < 1) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IOException(dataDir.resolve(FILE) + ": count must be a positive integer");
+        }
+    }
+
+    public static Path dir(Path dataDir, int partition) {
+        return dataDir.resolve(String.format("part-%02d", partition));
+    }
+
+    /**
+     * Owning partition of a project. String.hashCode is fixed by the language spec, so every JVM agrees;
+     * the multiply-and-fold spreads ids that differ only in their last digits over all partitions.
+     */
+    public static int partitionOf(String projectId, int partitions) {
+        int h = projectId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), partitions);
+    }
+
+    /** Prefix for new pledge ids in one partition, so ids stay unique across partitions without coordination. */
+    public static String pledgeIdPrefix(int partition) { return "pl" + partition + "-"; }
+
+    /**
+     * Splits a single-directory dataset into {@code n} partitions. A WAL or segmented pledges are folded into
+     * the CSVs first. Each partition keeps the rejected counter of its own REJECTED rows; whatever the global
+     * counter has beyond those goes to partition 0, so the total is unchanged.
+     */
+    public static void split(Path dataDir, int n) throws IOException {
+        if (n < 1) throw new IllegalArgumentException("partition count must be at least 1");
+        if (exists(dataDir)) throw new IOException(dataDir + " is already partitioned");
+        try (CsvDb db = new CsvDb(dataDir)) {
+            List<List<Project>> projects = new ArrayList<>();
+            List<Map<String, List<RewardTier>>> tiers = new ArrayList<>();
+            List<List<Pledge>> pledges = new ArrayList<>();
+            long[] rejected = new long[n];
+            for (int k = 0; k < n; k++) {
+                projects.add(new ArrayList<>());
+                tiers.add(new HashMap<>());
+                pledges.add(new ArrayList<>());
+            }
+            for (Project p : db.projects.values()) projects.get(partitionOf(p.projectId, n)).add(p);
+            db.tiersByProject.forEach((id, list) -> tiers.get(partitionOf(id, n)).put(id, list));
+            synchronized (db.pledges) {
+                for (Pledge pl : db.pledges) {
+                    int k = partitionOf(pl.projectId, n);
+                    pledges.get(k).add(pl);
+                    if ("REJECTED".equals(pl.status)) rejected[k]++;
+                }
+            }
+            rejected[0] += Math.max(0, db.getRejectedCount() - Arrays.stream(rejected).sum());
+
+            Path users = dataDir.resolve("users.csv");
+            for (int k = 0; k < n; k++) {
+                Path dir = dir(dataDir, k);
+                deleteTree(dir); // left over from an interrupted split
+                CsvDb.writeTables(dir, projects.get(k), tiers.get(k), Files.exists(users) ? null : db.users.values(),
+                        pledges.get(k), rejected[k]);
+                if (Files.exists(users)) Files.copy(users, dir.resolve("users.csv"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        writeCount(dataDir, n); // the switch: from here on the root tables are dead
+        for (String t : ROOT_TABLES) Files.deleteIfExists(dataDir.resolve(t));
+    }
+
+    /** Folds the partitions back into one directory; pledges are ordered by datetime (stable within a partition). */
+    public static void merge(Path dataDir) throws IOException {
+        int n = count(dataDir);
+        List<Project> projects = new ArrayList<>();
+        Map<String, List<RewardTier>> tiers = new LinkedHashMap<>();
+        List<Pledge> pledges = new ArrayList<>();
+        long rejected = 0;
+        for (int k = 0; k < n; k++) {
+            try (CsvDb db = new CsvDb(dir(dataDir, k))) {
+                projects.addAll(db.projects.values());
+                tiers.putAll(db.tiersByProject);
+                synchronized (db.pledges) { pledges.addAll(db.pledges); }
+                rejected += db.getRejectedCount();
+            }
+        }
+        pledges.sort(Comparator.comparing(pl -> pl.datetime));
+        CsvDb.writeTables(dataDir, projects, tiers, null, pledges, rejected);
+        Path users = dataDir.resolve("users.csv");
+        if (!Files.exists(users)) Files.copy(dir(dataDir, 0).resolve("users.csv"), users);
+        Files.delete(dataDir.resolve(FILE));
+        for (int k = 0; k < n; k++) deleteTree(dir(dataDir, k));
+    }
+
+    private static void writeCount(Path dataDir, int n) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("count", String.valueOf(n));
+        Path tmp = dataDir.resolve(FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "hash(projectId) mod count picks the partition; do not edit while partitions hold data");
+        }
+        Files.move(tmp, dataDir.resolve(FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        List<Path> all;
+        try (Stream<Path> s = Files.walk(dir)) {
+            all = new ArrayList<>();
+            s.forEach(all::add);
+        }
+        Collections.reverse(all); // children before their directory
+        for (Path p : all) Files.delete(p);
+    }
+}
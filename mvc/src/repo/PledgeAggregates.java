@@ -0,0 +1,181 @@
+package repo;
+
+import model.Pledge;
+import model.Project;
+import model.RejectReason;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pledge counters kept up to date on every pledge, so stats never rescan the pledge list.
+ * Rebuilt once from the loaded pledges in {@link CsvDb#loadAll()}.
+ */
+public class PledgeAggregates {
+    public static final String UNKNOWN_REASON = "UNKNOWN";
+
+    /** Success/rejected counts and raised amount for one project, category or user. */
+    public static class Counts {
+        private final LongAdder success = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder raised = new LongAdder();
+
+        public long success() { return success.sum(); }
+        public long rejected() { return rejected.sum(); }
+        public long raised() { return raised.sum(); }
+    }
+
+    private static final Counts EMPTY = new Counts();
+
+    private final Counts total = new Counts();
+    private final Map<String, Counts> byProject = new ConcurrentHashMap<>();
+    private final Map<String, Counts> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, Counts> byUser = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byReason = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, LongAdder> raisedPerDay = new ConcurrentSkipListMap<>();
+
+    /** Counts one pledge; category may be null when the project is unknown. */
+    public void record(Pledge pl, String category) {
+        boolean ok = "SUCCESS".equals(pl.status);
+        add(total, pl, ok);
+        add(byProject.computeIfAbsent(pl.projectId, k -> new Counts()), pl, ok);
+        add(byUser.computeIfAbsent(pl.userId, k -> new Counts()), pl, ok);
+        if (category != null) add(byCategory.computeIfAbsent(category.toLowerCase(), k -> new Counts()), pl, ok);
+        if (ok) {
+            raisedPerDay.computeIfAbsent(pl.datetime.toLocalDate(), k -> new LongAdder()).add(pl.amount);
+        } else {
+            RejectReason r = RejectReason.parse(pl.reason);
+            byReason.computeIfAbsent(r == null ? UNKNOWN_REASON : r.name(), k -> new LongAdder()).increment();
+        }
+    }
+
+    private static void add(Counts c, Pledge pl, boolean ok) {
+        if (ok) {
+            c.success.increment();
+            c.raised.add(pl.amount);
+        } else {
+            c.rejected.increment();
+        }
+    }
+
+    void rebuild(List<Pledge> pledges, Map<String, Project> projects) {
+        clear();
+        synchronized (pledges) {
+            for (Pledge pl : pledges) {
+                Project p = projects.get(pl.projectId);
+                record(pl, p == null ? null : p.category);
+            }
+        }
+    }
+
+    /** Same result as {@link #rebuild(List, Map)}, from the store's column totals instead of one record per pledge. */
+    void rebuild(ColumnarPledgeStore pledges, Map<String, Project> projects) {
+        clear();
+        pledges.aggregate(new ColumnarPledgeStore.AggregateSink() {
+            @Override
+            public void project(String projectId, long success, long rejected, long raised) {
+                add(total, success, rejected, raised);
+                add(byProject.computeIfAbsent(projectId, k -> new Counts()), success, rejected, raised);
+                Project p = projects.get(projectId);
+                if (p != null) add(byCategory.computeIfAbsent(p.category.toLowerCase(), k -> new Counts()), success, rejected, raised);
+            }
+
+            @Override
+            public void user(String userId, long success, long rejected, long raised) {
+                add(byUser.computeIfAbsent(userId, k -> new Counts()), success, rejected, raised);
+            }
+
+            @Override
+            public void rejected(String reason, long count) {
+                RejectReason r = RejectReason.parse(reason);
+                byReason.computeIfAbsent(r == null ? UNKNOWN_REASON : r.name(), k -> new LongAdder()).add(count);
+            }
+
+            @Override
+            public void raisedOnDay(long epochDay, long raised) {
+                raisedPerDay.computeIfAbsent(LocalDate.ofEpochDay(epochDay), k -> new LongAdder()).add(raised);
+            }
+        });
+    }
+
+    private static void add(Counts c, long success, long rejected, long raised) {
+        c.success.add(success);
+        c.rejected.add(rejected);
+        c.raised.add(raised);
+    }
+
+    private void clear() {
+        total.success.reset();
+        total.rejected.reset();
+        total.raised.reset();
+        byProject.clear();
+        byCategory.clear();
+        byUser.clear();
+        byReason.clear();
+        raisedPerDay.clear();
+    }
+
+    public Counts total() { return total; }
+    public Counts forProject(String projectId) { return byProject.getOrDefault(projectId, EMPTY); }
+    public Counts forCategory(String category) { return byCategory.getOrDefault(category.toLowerCase(), EMPTY); }
+    public Counts forUser(String userId) { return byUser.getOrDefault(userId, EMPTY); }
+
+    /** Rejections per {@link RejectReason} name ("UNKNOWN" for rows written without a reason). */
+    public Map<String, Long> rejectedByReason() {
+        Map<String, Long> out = new TreeMap<>();
+        byReason.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+
+    /**
+     * Total, per-category and per-reason counters as flat keys ("total.success", "category.art.raised",
+     * "reason.QUOTA_EXHAUSTED"), for shipping between processes; {@link #addSummary} adds them back in.
+     */
+    public Map<String, Long> summary() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        put(out, "total", total);
+        byCategory.forEach((c, n) -> put(out, "category." + c, n));
+        byReason.forEach((r, n) -> out.put("reason." + r, n.sum()));
+        return out;
+    }
+
+    private static void put(Map<String, Long> out, String prefix, Counts c) {
+        out.put(prefix + ".success", c.success());
+        out.put(prefix + ".rejected", c.rejected());
+        out.put(prefix + ".raised", c.raised());
+    }
+
+    /** Adds another store's {@link #summary()}, e.g. to total up partitions. Per project / user / day counters are not part of it. */
+    public void addSummary(Map<String, Long> summary) {
+        summary.forEach((k, v) -> {
+            if (k.startsWith("reason.")) {
+                byReason.computeIfAbsent(k.substring(7), r -> new LongAdder()).add(v);
+                return;
+            }
+            int dot = k.lastIndexOf('.');
+            if (dot < 0) return;
+            String owner = k.substring(0, dot);
+            Counts c = owner.equals("total") ? total
+                    : owner.startsWith("category.") ? byCategory.computeIfAbsent(owner.substring(9), x -> new Counts()) : null;
+            if (c == null) return;
+            switch (k.substring(dot + 1)) {
+                case "success": c.success.add(v); break;
+                case "rejected": c.rejected.add(v); break;
+                case "raised": c.raised.add(v); break;
+            }
+        });
+    }
+
+    /** Successful amount per day, oldest first, for the last {@code days} days that had pledges. */
+    public SortedMap<LocalDate, Long> raisedPerDay(int days) {
+        SortedMap<LocalDate, Long> out = new TreeMap<>();
+        for (Map.Entry<LocalDate, LongAdder> e : raisedPerDay.descendingMap().entrySet()) {
+            if (out.size() >= days) break;
+            out.put(e.getKey(), e.getValue().sum());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,26 @@
+package repo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Hands out "pl&lt;n&gt;" ids; continues after the highest id found on load. */
+public class PledgeIdGenerator {
+    private final String prefix;
+    private final AtomicLong last = new AtomicLong();
+
+    public PledgeIdGenerator(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /** Called for every id read from disk. */
+    public void observe(String pledgeId) {
+        if (pledgeId == null || !pledgeId.startsWith(prefix)) return;
+        try {
+            long n = Long.parseLong(pledgeId.substring(prefix.length()));
+            last.accumulateAndGet(n, Math::max);
+        } catch (NumberFormatException ignore) { }
+    }
+
+    public void reset() { last.set(0); }
+
+    public String next() { return prefix + last.incrementAndGet(); }
+}
@@ -0,0 +1,157 @@
+package repo;
+
+import metrics.Counter;
+import metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Append-only line journal, used for pledges.csv and the state WAL.
+ * Keeps one channel open in APPEND mode so a pledge costs one small write
+ * instead of rewriting the whole file.
+ */
+public class PledgeJournal implements Closeable {
+    // shared by every journal: pledges.csv, the active pledge segment and the state WAL
+    private static final Counter BYTES_WRITTEN = Metrics.counter("journal.bytes_written");
+    private static final Counter FSYNCS = Metrics.counter("journal.fsyncs");
+
+    public enum FsyncPolicy {
+        EVERY_RECORD,   // force() after every append
+        GROUP_COMMIT,   // force() at most once every groupCommitMillis
+        OS              // never force(), let the OS flush the page cache
+    }
+
+    private final Path file;
+    private final FileChannel ch;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService flusher;
+    private volatile boolean dirty = false;
+
+    public PledgeJournal(Path file, String header, FsyncPolicy policy, long groupCommitMillis) throws IOException {
+        this.file = file;
+        this.policy = policy;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (ch.size() == 0) {
+            writeFully(header + "\n");
+            force();
+        }
+        if (policy == FsyncPolicy.GROUP_COMMIT) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "pledge-journal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::syncQuietly, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public Path getFile() { return file; }
+
+    /** Appends one CSV line (without the trailing newline). Returns the bytes written. */
+    public synchronized int append(String line) throws IOException {
+        int n = writeFully(line + "\n");
+        if (policy == FsyncPolicy.EVERY_RECORD) force();
+        else dirty = true;
+        return n;
+    }
+
+    /** Appends several lines in one write and leaves forcing to the caller's {@link #sync()}. Returns the bytes written. */
+    public synchronized int appendBatch(List<String> lines) throws IOException {
+        if (lines.isEmpty()) return 0;
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append('\n');
+        int n = writeFully(sb.toString());
+        dirty = true;
+        return n;
+    }
+
+    /** Forces everything appended so far to disk. */
+    public synchronized void sync() throws IOException {
+        if (!ch.isOpen()) return;
+        force();
+        dirty = false;
+    }
+
+    private void force() throws IOException {
+        ch.force(false);
+        FSYNCS.increment();
+    }
+
+    private void syncQuietly() {
+        if (!dirty) return;
+        try { sync(); } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    private int writeFully(String s) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+        int n = buf.remaining();
+        BYTES_WRITTEN.add(n);
+        while (buf.hasRemaining()) ch.write(buf);
+        return n;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) flusher.shutdownNow();
+        if (!ch.isOpen()) return;
+        if (policy != FsyncPolicy.OS) force();
+        ch.close();
+    }
+
+    /**
+     * Repairs a torn tail left by a crash in the middle of an append.
+     * If the file does not end with a newline the last line is checked: a line the
+     * validator accepts is kept (and terminated), anything else is truncated away.
+     * Returns the number of bytes removed.
+     */
+    public static long recover(Path file, Predicate<String[]> complete) throws IOException {
+        if (!Files.exists(file)) return 0;
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = fc.size();
+            if (size == 0) return 0;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            fc.read(one, size - 1);
+            if (one.get(0) == '\n') return 0;
+
+            // scan backwards for the start of the last line
+            long lineStart = 0;
+            ByteBuffer chunk = ByteBuffer.allocate(8192);
+            long pos = size;
+            search:
+            while (pos > 0) {
+                int len = (int) Math.min(chunk.capacity(), pos);
+                pos -= len;
+                chunk.clear().limit(len);
+                fc.read(chunk, pos);
+                for (int i = len - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') { lineStart = pos + i + 1; break search; }
+                }
+            }
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - lineStart));
+            fc.read(tail, lineStart);
+            String last = new String(tail.array(), StandardCharsets.UTF_8);
+            if (lineStart > 0 && complete.test(CsvDb.parseCsvLine(last))) {
+                fc.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+                return 0;
+            }
+            fc.truncate(lineStart);
+            fc.force(true);
+            return size - lineStart;
+        }
+    }
+}
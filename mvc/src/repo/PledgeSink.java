@@ -0,0 +1,36 @@
+package repo;
+
+import model.Pledge;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/** Where CsvDb appends pledge records: pledges.csv, or the segment directory when {@link DbOptions#segmentedPledges} is on. */
+interface PledgeSink extends Closeable {
+    /** Appends one record, forced according to the fsync policy. */
+    void append(Pledge pl) throws IOException;
+
+    /** Appends several records in one write; the caller forces them with {@link #sync()}. */
+    void appendBatch(List<Pledge> batch) throws IOException;
+
+    /** Forces everything appended so far to disk. */
+    void sync() throws IOException;
+
+    /** pledges.csv through a {@link PledgeJournal}. */
+    static PledgeSink of(PledgeJournal journal) {
+        return new PledgeSink() {
+            public void append(Pledge pl) throws IOException { journal.append(CsvDb.pledgeLine(pl)); }
+
+            public void appendBatch(List<Pledge> batch) throws IOException {
+                List<String> lines = new java.util.ArrayList<>(batch.size());
+                for (Pledge pl : batch) lines.add(CsvDb.pledgeLine(pl));
+                journal.appendBatch(lines);
+            }
+
+            public void sync() throws IOException { journal.sync(); }
+
+            public void close() throws IOException { journal.close(); }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package repo;
+
+import model.Project;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index kept next to {@link CsvDb#projects}.
+ * <ul>
+ *   <li>n-gram postings (length 1..3) over lowercased names and projectIds, one list per gram for both</li>
+ *   <li>category (case-insensitive) to projects</li>
+ * </ul>
+ * Every project gets an int slot; postings are ascending slot arrays, so filters combine by merging.
+ * A gram hit only says name or id contains the gram, so longer keywords are verified with {@code contains}.
+ * Matches the old scan exactly: {@code name.toLowerCase().contains(kw) || projectId.contains(kw)}.
+ */
+public class ProjectIndex {
+    private static final int GRAM = 3;
+
+    private final List<Project> bySlot = new ArrayList<>();
+    private final Map<String, IntList> grams = new HashMap<>();
+    private final Map<String, IntList> byCategory = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void rebuild(Collection<Project> projects) {
+        lock.writeLock().lock();
+        try {
+            bySlot.clear();
+            grams.clear();
+            byCategory.clear();
+            // slot order = projectId order, which keeps result lists deterministic
+            List<Project> sorted = new ArrayList<>(projects);
+            sorted.sort(Comparator.comparing(p -> p.projectId));
+            for (Project p : sorted) addLocked(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(Project p) {
+        int slot = bySlot.size();
+        bySlot.add(p);
+
+        // a gram in both name and id, or twice in either, is posted once: lists stay strictly ascending
+        Set<String> own = new HashSet<>();
+        for (String text : new String[]{p.name.toLowerCase(), p.projectId}) {
+            for (int len = 1; len <= GRAM; len++) {
+                for (int i = 0; i + len <= text.length(); i++) {
+                    String g = text.substring(i, i + len);
+                    if (own.add(g)) grams.computeIfAbsent(g, k -> new IntList()).add(slot);
+                }
+            }
+        }
+        byCategory.computeIfAbsent(p.category, k -> new IntList()).add(slot);
+    }
+
+    /**
+     * Projects whose lowercased name or id contains {@code kw} (already trimmed and lowercased; blank = any)
+     * and whose category equals {@code category} ignoring case (null = any). Ordered by projectId.
+     */
+    public List<Project> query(String kw, String category) {
+        lock.readLock().lock();
+        try {
+            int[] cat = null;
+            int catN = 0;
+            if (category != null) {
+                IntList c = byCategory.get(category);
+                if (c == null) return new ArrayList<>();
+                cat = c.a;
+                catN = c.n;
+            }
+            if (kw == null || kw.isEmpty()) {
+                if (cat == null) return new ArrayList<>(bySlot);
+                return materialize(cat, catN, null);
+            }
+
+            int[] hits = candidates(kw);
+            int[] result = cat == null ? hits : intersect(hits, hits.length, cat, catN);
+            // a keyword up to GRAM long is a gram itself, so its hits are exact; longer ones need the real contains()
+            return materialize(result, result.length, kw.length() > GRAM ? kw : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidates(String kw) {
+        if (kw.length() <= GRAM) {
+            IntList l = grams.get(kw);
+            return l == null ? new int[0] : Arrays.copyOf(l.a, l.n);
+        }
+        List<IntList> lists = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i + GRAM <= kw.length(); i++) {
+            String g = kw.substring(i, i + GRAM);
+            if (!seen.add(g)) continue;
+            IntList l = grams.get(g);
+            if (l == null) return new int[0];
+            lists.add(l);
+        }
+        lists.sort(Comparator.comparingInt(l -> l.n)); // rarest gram first keeps intersections small
+        int[] acc = Arrays.copyOf(lists.get(0).a, lists.get(0).n);
+        for (int i = 1; i < lists.size() && acc.length > 0; i++) {
+            acc = intersect(acc, acc.length, lists.get(i).a, lists.get(i).n);
+        }
+        return acc;
+    }
+
+    private List<Project> materialize(int[] slots, int n, String verifyKw) {
+        List<Project> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Project p = bySlot.get(slots[i]);
+            if (verifyKw != null && !p.projectId.contains(verifyKw) && !p.name.toLowerCase().contains(verifyKw)) continue;
+            out.add(p);
+        }
+        return out;
+    }
+
+    static int[] intersect(int[] a, int an, int[] b, int bn) {
+        int[] out = new int[Math.min(an, bn)];
+        int i = 0, j = 0, k = 0;
+        while (i < an && j < bn) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[k++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try { return bySlot.size(); } finally { lock.readLock().unlock(); }
+    }
+}
@@ -0,0 +1,19 @@
+package repo;
+
+import model.Project;
+
+import java.util.Comparator;
+
+/** Listing orders backed by {@link ProjectOrderIndex}. Ties always break on projectId. */
+public enum ProjectOrder {
+    ID_ASC(Comparator.comparing((Project p) -> p.projectId)),
+    ID_DESC(Comparator.comparing((Project p) -> p.projectId).reversed()),
+    DEADLINE_ASC(Comparator.comparing((Project p) -> p.deadline).thenComparing(p -> p.projectId)),
+    RAISED_DESC(Comparator.comparingLong((Project p) -> p.raised).reversed().thenComparing(p -> p.projectId));
+
+    public final Comparator<Project> comparator;
+
+    ProjectOrder(Comparator<Project> comparator) {
+        this.comparator = comparator;
+    }
+}
@@ -0,0 +1,121 @@
+package repo;
+
+import model.Project;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-sorted views of the catalog by projectId, deadline and raised.
+ * A listing page is a walk from the head (or from a cursor) of one skip list: O(log n + k).
+ * The raised order is re-keyed on every pledge through {@link #addRaised}.
+ * Each order also has an open-projects-only copy, so "open only" listings skip closed campaigns without looking at them.
+ */
+public class ProjectOrderIndex {
+    /** (primary value, projectId); deadline uses epoch day, raised uses -raised so the map ascends. */
+    private static final class Key implements Comparable<Key> {
+        final long primary;
+        final String id;
+
+        Key(long primary, String id) {
+            this.primary = primary;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int c = Long.compare(primary, o.primary);
+            return c != 0 ? c : id.compareTo(o.id);
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Project> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Key, Project> byDeadline = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Key, Project> byRaised = new ConcurrentSkipListMap<>();
+    // the same three orders over open projects only; a project leaves them once through close()
+    private final ConcurrentSkipListMap<String, Project> openById = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Key, Project> openByDeadline = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Key, Project> openByRaised = new ConcurrentSkipListMap<>();
+    // skip-list size() walks the whole list, and every unfiltered page reports a total
+    private final AtomicInteger size = new AtomicInteger(), openSize = new AtomicInteger();
+
+    public void rebuild(Collection<Project> projects) {
+        byId.clear();
+        byDeadline.clear();
+        byRaised.clear();
+        openById.clear();
+        openByDeadline.clear();
+        openByRaised.clear();
+        size.set(0);
+        openSize.set(0);
+        for (Project p : projects) add(p);
+    }
+
+    public void add(Project p) {
+        if (byId.put(p.projectId, p) == null) size.incrementAndGet();
+        byDeadline.put(deadlineKey(p), p);
+        byRaised.put(raisedKey(p.raised, p.projectId), p);
+        if (p.closed) return;
+        if (openById.put(p.projectId, p) == null) openSize.incrementAndGet();
+        openByDeadline.put(deadlineKey(p), p);
+        openByRaised.put(raisedKey(p.raised, p.projectId), p);
+    }
+
+    /** Drops a project from the open views. Call with the project's lock held, after setting {@link Project#closed}. */
+    public void close(Project p) {
+        if (openById.remove(p.projectId) != null) openSize.decrementAndGet();
+        openByDeadline.remove(deadlineKey(p));
+        openByRaised.remove(raisedKey(p.raised, p.projectId));
+    }
+
+    /**
+     * Adds to a project's raised and moves it in the raised order.
+     * The caller must hold the project's lock so updates to one project never interleave.
+     */
+    public long addRaised(Project p, long amount) {
+        long before = p.raised;
+        long now = p.addRaised(amount);
+        if (now == before) return now;
+        // insert first, then drop the old key: a concurrent reader may see the project twice but never miss it
+        byRaised.put(raisedKey(now, p.projectId), p);
+        byRaised.remove(raisedKey(before, p.projectId));
+        if (!p.closed) {
+            openByRaised.put(raisedKey(now, p.projectId), p);
+            openByRaised.remove(raisedKey(before, p.projectId));
+        }
+        return now;
+    }
+
+    public int size() { return size.get(); }
+
+    public int openSize() { return openSize.get(); }
+
+    /** Projects in the given order, starting after {@code after} (null = from the start). */
+    public Collection<Project> walk(ProjectOrder order, Project after) {
+        return walk(order, after, false);
+    }
+
+    /** Same, over open projects only when {@code openOnly}. */
+    public Collection<Project> walk(ProjectOrder order, Project after, boolean openOnly) {
+        ConcurrentNavigableMap<String, Project> ids = openOnly ? openById : byId;
+        switch (order) {
+            case ID_DESC:
+                return (after == null ? ids.descendingMap() : ids.headMap(after.projectId, false).descendingMap()).values();
+            case DEADLINE_ASC:
+                return tail(openOnly ? openByDeadline : byDeadline, after == null ? null : deadlineKey(after));
+            case RAISED_DESC:
+                return tail(openOnly ? openByRaised : byRaised, after == null ? null : raisedKey(after.raised, after.projectId));
+            default:
+                return (after == null ? ids : ids.tailMap(after.projectId, false)).values();
+        }
+    }
+
+    private static Collection<Project> tail(ConcurrentNavigableMap<Key, Project> m, Key after) {
+        return (after == null ? m : m.tailMap(after, false)).values();
+    }
+
+    private static Key deadlineKey(Project p) { return new Key(p.deadline.toEpochDay(), p.projectId); }
+    private static Key raisedKey(long raised, String id) { return new Key(-raised, id); }
+}
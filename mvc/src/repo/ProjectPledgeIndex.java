@@ -0,0 +1,80 @@
+package repo;
+
+import model.Pledge;
+
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Successful pledges grouped per project, held as packed primitive columns
+ * (amount, epoch second) plus the backer set and per-tier sold counts.
+ * Append-only; rebuilt once at load and extended on every successful pledge.
+ */
+public class ProjectPledgeIndex {
+    /** One project's successful pledges. */
+    public static class ProjectLog {
+        private long[] amounts = new long[8];
+        private long[] epochSeconds = new long[8];
+        private int size = 0;
+        private final Set<String> backers = new HashSet<>();
+        private final Map<String, Integer> soldByTier = new HashMap<>(); // case-folded tier name
+
+        synchronized void append(Pledge pl) {
+            if (size == amounts.length) {
+                amounts = Arrays.copyOf(amounts, size * 2);
+                epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+            }
+            amounts[size] = pl.amount;
+            epochSeconds[size] = pl.datetime.toEpochSecond(ZoneOffset.UTC);
+            size++;
+            backers.add(pl.userId);
+            if (!pl.tierName.isEmpty()) soldByTier.merge(CsvDb.fold(pl.tierName), 1, Integer::sum);
+        }
+
+        public synchronized int size() { return size; }
+        public synchronized int backerCount() { return backers.size(); }
+        public synchronized int sold(String tierName) { return soldByTier.getOrDefault(CsvDb.fold(tierName), 0); }
+
+        /** Copies of the columns: pledge times (epoch seconds, local time as UTC) and running raised total. */
+        public synchronized Timeline timeline() {
+            long[] cumulative = new long[size];
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += amounts[i];
+                cumulative[i] = sum;
+            }
+            return new Timeline(Arrays.copyOf(epochSeconds, size), cumulative);
+        }
+    }
+
+    public static class Timeline {
+        public final long[] epochSeconds;
+        public final long[] cumulativeRaised;
+
+        Timeline(long[] epochSeconds, long[] cumulativeRaised) {
+            this.epochSeconds = epochSeconds;
+            this.cumulativeRaised = cumulativeRaised;
+        }
+    }
+
+    private static final ProjectLog EMPTY = new ProjectLog();
+
+    private final Map<String, ProjectLog> byProject = new ConcurrentHashMap<>();
+
+    public void record(Pledge pl) {
+        if (!"SUCCESS".equals(pl.status)) return;
+        byProject.computeIfAbsent(pl.projectId, k -> new ProjectLog()).append(pl);
+    }
+
+    void rebuild(List<Pledge> pledges) {
+        byProject.clear();
+        synchronized (pledges) {
+            for (Pledge pl : pledges) record(pl);
+        }
+    }
+
+    public ProjectLog forProject(String projectId) {
+        return byProject.getOrDefault(projectId, EMPTY);
+    }
+}
@@ -0,0 +1,544 @@
+package repo;
+
+import model.Pledge;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pledges as a directory of segments (data/pledges/) instead of one ever-growing pledges.csv.
+ * <pre>
+ * 000001.pseg   sealed: gzip blocks of pledge lines, footer, int footerLength, int magic "CFPS"
+ * 000002.csv    active: pledges.csv format, appended through a PledgeJournal
+ * </pre>
+ * The active segment rolls over at {@link DbOptions#segmentMaxBytes} or when the calendar day changes,
+ * and a background thread seals it. The footer keeps the row count and min/max datetime, per block its
+ * offset, length, rows and datetime range, and per project its rows and blocks, so {@link #scan} skips
+ * segments and blocks that cannot match and reads only the blocks holding the project asked for.
+ * Datetime ranges compare {@code LocalDateTime} as UTC epoch seconds, the same as {@link BinarySnapshot}.
+ */
+public class SegmentedPledgeLog implements PledgeSink {
+    static final String DIR = "pledges";
+    private static final int MAGIC = 0x43465053; // "CFPS"
+    private static final int VERSION = 1;
+    private static final int BLOCK_BYTES = 256 * 1024; // raw CSV per gzip block
+
+    /** Footer of a sealed segment; blocks are {offset, length, rows, minSecond, maxSecond}. */
+    static final class Footer {
+        long rows, rawBytes, minSecond = Long.MAX_VALUE, maxSecond = Long.MIN_VALUE;
+        final List<long[]> blocks = new ArrayList<>();
+        final Map<String, Integer> projectRows = new HashMap<>();
+        final Map<String, IntList> projectBlocks = new HashMap<>();
+
+        boolean overlaps(long from, long to) { return rows > 0 && maxSecond >= from && minSecond < to; }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(VERSION);
+            out.writeLong(rows);
+            out.writeLong(rawBytes);
+            out.writeLong(minSecond);
+            out.writeLong(maxSecond);
+            out.writeInt(blocks.size());
+            for (long[] b : blocks) {
+                out.writeLong(b[0]);
+                out.writeInt((int) b[1]);
+                out.writeInt((int) b[2]);
+                out.writeLong(b[3]);
+                out.writeLong(b[4]);
+            }
+            out.writeInt(projectRows.size());
+            for (Map.Entry<String, Integer> e : projectRows.entrySet()) {
+                IntList l = projectBlocks.get(e.getKey());
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue());
+                out.writeInt(l.n);
+                for (int i = 0; i < l.n; i++) out.writeInt(l.a[i]);
+            }
+        }
+
+        static Footer read(FileChannel fc) throws IOException {
+            long size = fc.size();
+            if (size < 8) throw new IOException("segment truncated");
+            ByteBuffer tail = ByteBuffer.allocate(8);
+            fc.read(tail, size - 8);
+            int len = tail.getInt(0);
+            if (tail.getInt(4) != MAGIC || len < 0 || len > size - 8) throw new IOException("not a sealed segment");
+            ByteBuffer buf = ByteBuffer.allocate(len);
+            while (buf.hasRemaining() && fc.read(buf, size - 8 - len + buf.position()) > 0) { }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.array()));
+            if (in.readInt() != VERSION) throw new IOException("segment version not supported");
+            Footer f = new Footer();
+            f.rows = in.readLong();
+            f.rawBytes = in.readLong();
+            f.minSecond = in.readLong();
+            f.maxSecond = in.readLong();
+            for (int n = in.readInt(); n > 0; n--) {
+                f.blocks.add(new long[]{in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong()});
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String id = in.readUTF();
+                f.projectRows.put(id, in.readInt());
+                IntList l = new IntList();
+                for (int k = in.readInt(); k > 0; k--) l.add(in.readInt());
+                f.projectBlocks.put(id, l);
+            }
+            return f;
+        }
+    }
+
+    /** Writes one sealed segment: blocks as rows arrive, the footer on {@link #finish()}. */
+    private static final class SegmentWriter implements Closeable {
+        private final FileOutputStream out;
+        private final Footer f = new Footer();
+        private final StringBuilder block = new StringBuilder(BLOCK_BYTES + 1024);
+        private long pos = 0;
+        private int blockRows = 0, blockBytes = 0;
+        private long blockMin = Long.MAX_VALUE, blockMax = Long.MIN_VALUE;
+
+        SegmentWriter(Path file) throws IOException {
+            out = new FileOutputStream(file.toFile());
+        }
+
+        void add(Pledge pl) throws IOException {
+            String line = CsvDb.pledgeLine(pl);
+            block.append(line).append('\n');
+            long sec = pl.datetime.toEpochSecond(ZoneOffset.UTC);
+            blockMin = Math.min(blockMin, sec);
+            blockMax = Math.max(blockMax, sec);
+            blockRows++;
+            f.rows++;
+            int bytes = line.getBytes(StandardCharsets.UTF_8).length + 1; // UTF-8, as the segment is written
+            f.rawBytes += bytes;
+            blockBytes += bytes;
+            f.projectRows.merge(pl.projectId, 1, Integer::sum);
+            f.projectBlocks.computeIfAbsent(pl.projectId, k -> new IntList()).add(f.blocks.size());
+            if (blockBytes >= BLOCK_BYTES) flushBlock();
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockRows == 0) return;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.length() / 4);
+            try (Writer w = new OutputStreamWriter(new GZIPOutputStream(bytes, 1 << 16), StandardCharsets.UTF_8)) {
+                w.append(block);
+            }
+            bytes.writeTo(out);
+            f.blocks.add(new long[]{pos, bytes.size(), blockRows, blockMin, blockMax});
+            f.minSecond = Math.min(f.minSecond, blockMin);
+            f.maxSecond = Math.max(f.maxSecond, blockMax);
+            pos += bytes.size();
+            block.setLength(0);
+            blockRows = 0;
+            blockBytes = 0;
+            blockMin = Long.MAX_VALUE;
+            blockMax = Long.MIN_VALUE;
+        }
+
+        Footer finish() throws IOException {
+            flushBlock();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            f.write(new DataOutputStream(bytes));
+            DataOutputStream d = new DataOutputStream(out);
+            bytes.writeTo(d);
+            d.writeInt(bytes.size());
+            d.writeInt(MAGIC);
+            d.flush();
+            out.getFD().sync();
+            return f;
+        }
+
+        @Override
+        public void close() throws IOException { out.close(); }
+    }
+
+    /** What a {@link #scan} returned and how much it had to read. */
+    public static class Scan {
+        public final List<Pledge> pledges = new ArrayList<>();
+        public int segments, segmentsSkipped, blocksRead, blocksSkipped;
+    }
+
+    private final Path dir;
+    private final DbOptions options;
+    private final String header;
+    private final ConcurrentSkipListMap<Long, Footer> sealed = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<Long> plain = new ConcurrentSkipListSet<>(); // unsealed .csv segments, the active one included
+    private final ReadWriteLock files = new ReentrantReadWriteLock(); // readers vs. a seal deleting the .csv it replaced
+    private final ExecutorService sealer;
+    private PledgeJournal active;
+    private volatile long activeSeq;
+    private long activeBytes;                 // bytes in the active segment file, header included
+    private final int headerBytes;
+    private LocalDate activeDay;
+
+    /**
+     * Opens data/pledges, first moving an existing pledges.csv into sealed segments.
+     * Rolled segments left unsealed by an earlier run are sealed in the background.
+     */
+    public SegmentedPledgeLog(Path dataDir, DbOptions options, String header) throws IOException {
+        this.dir = dataDir.resolve(DIR);
+        this.options = options;
+        this.header = header;
+        this.headerBytes = (header + "\n").getBytes(StandardCharsets.UTF_8).length;
+        Path csv = dataDir.resolve("pledges.csv");
+        if (Files.exists(csv)) {
+            // both present: a migration finished but crashed before deleting the CSV
+            if (!Files.isDirectory(dir)) migrate(csv, dataDir.resolve(DIR + ".tmp"), dir, options.segmentMaxBytes);
+            Files.delete(csv);
+        }
+        Files.createDirectories(dir);
+
+        List<Long> csvs = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) Files.delete(p);
+                else if (name.endsWith(".pseg")) {
+                    try (FileChannel fc = FileChannel.open(p, StandardOpenOption.READ)) {
+                        sealed.put(seq(name), Footer.read(fc));
+                    }
+                } else if (name.endsWith(".csv")) csvs.add(seq(name));
+            }
+        }
+        for (long s : csvs) {
+            if (sealed.containsKey(s)) Files.delete(file(s, ".csv")); // sealed, cleanup did not run
+            else plain.add(s);
+        }
+        sealer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "pledge-segment-sealer");
+            t.setDaemon(true);
+            return t;
+        });
+        long last = Math.max(sealed.isEmpty() ? 0 : sealed.lastKey(), plain.isEmpty() ? 0 : plain.last());
+        activeSeq = plain.isEmpty() || plain.last() < last ? last + 1 : plain.last();
+        for (long s : plain) if (s != activeSeq) sealLater(s);
+        plain.add(activeSeq);
+        Path a = file(activeSeq, ".csv");
+        PledgeJournal.recover(a, CsvDb::isCompletePledgeRow);
+        activeDay = Files.exists(a) ? LocalDate.ofInstant(Files.getLastModifiedTime(a).toInstant(), ZoneId.systemDefault()) : LocalDate.now();
+        active = new PledgeJournal(a, header, options.fsyncPolicy, options.groupCommitMillis);
+        activeBytes = Files.size(a);
+    }
+
+    private static long seq(String fileName) { return Long.parseLong(fileName.substring(0, fileName.indexOf('.'))); }
+
+    private Path file(long seq, String ext) { return dir.resolve(String.format("%06d%s", seq, ext)); }
+
+    static boolean exists(Path dataDir) { return Files.isDirectory(dataDir.resolve(DIR)); }
+
+    /** Total size and newest mtime over the segment files, for {@link BinarySnapshot#fingerprint}. */
+    static long[] fingerprint(Path dataDir) throws IOException {
+        long size = 0, mtime = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dataDir.resolve(DIR))) {
+            for (Path p : ds) {
+                size += Files.size(p);
+                mtime = Math.max(mtime, Files.getLastModifiedTime(p).toMillis());
+            }
+        }
+        return new long[]{size, mtime};
+    }
+
+    // --- writing ---
+
+    @Override
+    public synchronized void append(Pledge pl) throws IOException {
+        maybeRoll();
+        activeBytes += active.append(CsvDb.pledgeLine(pl));
+    }
+
+    @Override
+    public synchronized void appendBatch(List<Pledge> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        maybeRoll();
+        List<String> lines = new ArrayList<>(batch.size());
+        for (Pledge pl : batch) lines.add(CsvDb.pledgeLine(pl));
+        activeBytes += active.appendBatch(lines);
+    }
+
+    @Override
+    public synchronized void sync() throws IOException { active.sync(); }
+
+    private void maybeRoll() throws IOException {
+        if (activeBytes <= headerBytes) return; // nothing but the header yet
+        LocalDate today = LocalDate.now();
+        if (activeBytes < options.segmentMaxBytes && (!options.segmentRollDaily || today.equals(activeDay))) return;
+        active.close();
+        long old = activeSeq;
+        plain.add(old + 1);
+        activeSeq = old + 1;
+        active = new PledgeJournal(file(activeSeq, ".csv"), header, options.fsyncPolicy, options.groupCommitMillis);
+        activeBytes = headerBytes;
+        activeDay = today;
+        sealLater(old);
+    }
+
+    private void sealLater(long seq) {
+        sealer.execute(() -> {
+            try {
+                seal(seq);
+            } catch (IOException | RuntimeException e) {
+                // the .csv stays readable and is retried on the next start
+                System.err.println("Sealing pledge segment " + seq + " failed: " + e);
+            }
+        });
+    }
+
+    private void seal(long seq) throws IOException {
+        Path csv = file(seq, ".csv"), tmp = file(seq, ".pseg.tmp");
+        Footer f;
+        try (CsvReader in = CsvReader.open(csv); SegmentWriter w = new SegmentWriter(tmp)) {
+            in.next(); // header
+            while (in.next()) {
+                Pledge pl = CsvDb.readPledge(in);
+                if (pl != null) w.add(pl);
+            }
+            f = w.finish();
+        }
+        files.writeLock().lock();
+        try {
+            Files.move(tmp, file(seq, ".pseg"), StandardCopyOption.ATOMIC_MOVE);
+            sealed.put(seq, f);
+            plain.remove(seq);
+            Files.delete(csv);
+        } finally {
+            files.writeLock().unlock();
+        }
+    }
+
+    /** Cuts an existing pledges.csv into sealed segments in tmpDir, then renames tmpDir to dir. */
+    private static void migrate(Path csv, Path tmpDir, Path dir, long segmentMaxBytes) throws IOException {
+        PledgeJournal.recover(csv, CsvDb::isCompletePledgeRow);
+        if (Files.isDirectory(tmpDir)) deleteTree(tmpDir);
+        Files.createDirectories(tmpDir);
+        long seq = 1;
+        SegmentWriter w = null;
+        try (CsvReader in = CsvReader.open(csv)) {
+            in.next(); // header
+            while (in.next()) {
+                Pledge pl = CsvDb.readPledge(in);
+                if (pl == null) continue;
+                if (w == null) w = new SegmentWriter(tmpDir.resolve(String.format("%06d.pseg", seq++)));
+                w.add(pl);
+                if (w.f.rawBytes >= segmentMaxBytes) {
+                    w.finish();
+                    w.close();
+                    w = null;
+                }
+            }
+            if (w != null) w.finish();
+        } finally {
+            if (w != null) w.close();
+        }
+        Files.move(tmpDir, dir, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes every pledge in the segment directory back to pledges.csv and removes the directory
+     * (for opening a segmented data dir with {@link DbOptions#segmentedPledges} off).
+     */
+    static void unsegment(Path dataDir, String header) throws IOException {
+        Path dir = dataDir.resolve(DIR), csv = dataDir.resolve("pledges.csv");
+        if (!Files.exists(csv)) {
+            DbOptions opts = new DbOptions();
+            opts.segmentRollDaily = false;
+            opts.segmentMaxBytes = Long.MAX_VALUE;
+            List<List<Pledge>> parts;
+            try (SegmentedPledgeLog log = new SegmentedPledgeLog(dataDir, opts, header)) {
+                parts = log.readAll(false);
+            }
+            Path tmp = dataDir.resolve("pledges.csv.tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(header);
+                w.write('\n');
+                for (List<Pledge> part : parts) {
+                    for (Pledge pl : part) {
+                        w.write(CsvDb.pledgeLine(pl));
+                        w.write('\n');
+                    }
+                }
+            }
+            Files.move(tmp, csv, StandardCopyOption.ATOMIC_MOVE);
+        }
+        // both present: the CSV is complete, so the segments can go
+        deleteTree(dir);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    // --- reading ---
+
+    private interface Part { List<Pledge> read() throws IOException; }
+
+    /** Every pledge in storage order, as parts (one per block / unsealed segment) that may be decoded in parallel. */
+    List<List<Pledge>> readAll(boolean parallel) throws IOException {
+        files.readLock().lock();
+        try {
+            List<Part> parts = new ArrayList<>();
+            TreeSet<Long> all = new TreeSet<>(sealed.keySet());
+            all.addAll(plain);
+            for (long s : all) {
+                Footer f = sealed.get(s);
+                if (f == null) {
+                    long end = activeEnd(s);
+                    parts.add(() -> readPlain(s, end));
+                } else {
+                    for (long[] b : f.blocks) parts.add(() -> readBlock(s, b));
+                }
+            }
+            return (parallel && parts.size() > 1 ? parts.parallelStream() : parts.stream()).map(p -> {
+                try {
+                    return p.read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            files.readLock().unlock();
+        }
+    }
+
+    // appends are whole lines under this monitor, so the size read here ends on a line boundary;
+    // a rolled segment is complete, so it is read to its end
+    private synchronized long activeEnd(long seq) throws IOException {
+        return seq == activeSeq ? Files.size(file(seq, ".csv")) : Long.MAX_VALUE;
+    }
+
+    private List<Pledge> readPlain(long seq, long end) throws IOException {
+        try (FileChannel fc = FileChannel.open(file(seq, ".csv"), StandardOpenOption.READ)) {
+            InputStream in = new CsvDb.RangeInputStream(fc, 0, Math.min(end, fc.size()));
+            try (CsvReader r = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                r.next(); // header
+                List<Pledge> out = new ArrayList<>();
+                while (r.next()) {
+                    Pledge pl = CsvDb.readPledge(r);
+                    if (pl != null) out.add(pl);
+                }
+                return out;
+            }
+        }
+    }
+
+    private List<Pledge> readBlock(long seq, long[] b) throws IOException {
+        byte[] bytes = new byte[(int) b[1]];
+        try (FileChannel fc = FileChannel.open(file(seq, ".pseg"), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining() && fc.read(buf, b[0] + buf.position()) > 0) { }
+        }
+        List<Pledge> out = new ArrayList<>((int) b[2]);
+        Reader r = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes), 1 << 16), StandardCharsets.UTF_8);
+        try (CsvReader in = new CsvReader(r)) {
+            while (in.next()) {
+                Pledge pl = CsvDb.readPledge(in);
+                if (pl != null) out.add(pl);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Pledges with {@code from <= datetime < to} (null = open), of one project or all (projectId null),
+     * in storage order. Sealed segments and blocks whose footer rules them out are not read.
+     */
+    public Scan scan(String projectId, LocalDateTime from, LocalDateTime to) throws IOException {
+        long lo = from == null ? Long.MIN_VALUE : from.toEpochSecond(ZoneOffset.UTC);
+        long hi = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC);
+        Scan out = new Scan();
+        files.readLock().lock();
+        try {
+            TreeSet<Long> all = new TreeSet<>(sealed.keySet());
+            all.addAll(plain);
+            for (long s : all) {
+                Footer f = sealed.get(s);
+                List<Pledge> rows;
+                if (f == null) {
+                    out.segments++;
+                    rows = readPlain(s, activeEnd(s));
+                } else if (!f.overlaps(lo, hi) || (projectId != null && !f.projectRows.containsKey(projectId))) {
+                    out.segmentsSkipped++;
+                    continue;
+                } else {
+                    out.segments++;
+                    rows = new ArrayList<>();
+                    IntList only = projectId == null ? null : f.projectBlocks.get(projectId);
+                    int k = 0;
+                    for (int i = 0; i < f.blocks.size(); i++) {
+                        long[] b = f.blocks.get(i);
+                        boolean holdsProject = only == null || (k < only.n && only.a[k] == i);
+                        if (holdsProject) k++;
+                        if (!holdsProject || b[4] < lo || b[3] >= hi) { out.blocksSkipped++; continue; }
+                        out.blocksRead++;
+                        rows.addAll(readBlock(s, b));
+                    }
+                }
+                for (Pledge pl : rows) {
+                    long sec = pl.datetime.toEpochSecond(ZoneOffset.UTC);
+                    if (sec >= lo && sec < hi && (projectId == null || projectId.equals(pl.projectId))) out.pledges.add(pl);
+                }
+            }
+        } finally {
+            files.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** One line per segment: number, state, rows, raw and on-disk bytes, datetime range. */
+    public List<String> describe() throws IOException {
+        List<String> out = new ArrayList<>();
+        files.readLock().lock();
+        try {
+            TreeSet<Long> all = new TreeSet<>(sealed.keySet());
+            all.addAll(plain);
+            for (long s : all) {
+                Footer f = sealed.get(s);
+                if (f == null) {
+                    Path p = file(s, ".csv");
+                    out.add(String.format("%06d  %-8s %10s %12d %12d", s, s == activeSeq ? "active" : "unsealed", "-", Files.size(p), Files.size(p)));
+                } else {
+                    out.add(String.format("%06d  %-8s %10d %12d %12d  %s .. %s", s, "sealed", f.rows, f.rawBytes,
+                            Files.size(file(s, ".pseg")), LocalDateTime.ofEpochSecond(f.minSecond, 0, ZoneOffset.UTC),
+                            LocalDateTime.ofEpochSecond(f.maxSecond, 0, ZoneOffset.UTC)));
+                }
+            }
+        } finally {
+            files.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** Seals rolled segments still waiting, then closes the active one. */
+    @Override
+    public void close() throws IOException {
+        sealer.shutdown();
+        try {
+            sealer.awaitTermination(5, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            active.close();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package repo;
+
+import model.Pledge;
+import model.Project;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window pledge counters and top-k leaderboards, kept up to date on every successful pledge so
+ * "what is hot right now" never rescans the pledge list or sorts every project.
+ * Each project and category has a ring of time buckets per {@link Window}; a window's value sums the buckets
+ * still inside it, so windows slide one bucket at a time. Leaderboards keep the best {@code k} in sorted sets.
+ * Between bucket boundaries pledges only raise values, so a board stays exact at O(log k) per pledge; once a
+ * bucket leaves the window the board is rebuilt from the projects with pledges that week, at most once per
+ * bucket width and only when read. Times are pledge datetimes taken as UTC, as in {@link ColumnarPledgeStore}.
+ * Rebuilt from the loaded pledges in {@link CsvDb#loadAll()}.
+ */
+public class TrendingIndex {
+    /** Window length and bucket width: 1h in 5-minute buckets, 24h in hours, 7d in 6-hour buckets. */
+    public enum Window {
+        HOUR("1h", 12, 5 * 60), DAY("24h", 24, 60 * 60), WEEK("7d", 28, 6 * 60 * 60);
+
+        public final String label;
+        final int buckets;
+        final long bucketSeconds;
+
+        Window(String label, int buckets, long bucketSeconds) {
+            this.label = label;
+            this.buckets = buckets;
+            this.bucketSeconds = bucketSeconds;
+        }
+    }
+
+    /** What is counted: amount raised, or successful pledges (a backer pledging twice counts twice). */
+    public enum Metric { RAISED, BACKERS }
+
+    /** One leaderboard row. For {@link #closestToTarget} the value is progress in parts per million. */
+    public static final class Entry {
+        public final String projectId;
+        public final long value;
+
+        Entry(String projectId, long value) {
+            this.projectId = projectId;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() { return projectId + "=" + value; }
+    }
+
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        int c = Long.compare(b.value, a.value);
+        return c != 0 ? c : a.projectId.compareTo(b.projectId);
+    };
+
+    // one window of one project or category; bucket i holds time slot stamp[i] (epoch second / bucket width)
+    private static final class Ring {
+        final long[] stamp, amount;
+        final int[] count;
+
+        Ring(int buckets) {
+            stamp = new long[buckets];
+            amount = new long[buckets];
+            count = new int[buckets];
+            Arrays.fill(stamp, Long.MIN_VALUE);
+        }
+
+        void add(long slot, long amt) {
+            int i = (int) Math.floorMod(slot, (long) stamp.length);
+            if (stamp[i] > slot) return; // a later slot already reuses this bucket, so slot is out of every window
+            if (stamp[i] != slot) {
+                stamp[i] = slot;
+                amount[i] = 0;
+                count[i] = 0;
+            }
+            amount[i] += amt;
+            count[i]++;
+        }
+
+        long sum(long nowSlot, Metric m) {
+            long s = 0, oldest = nowSlot - stamp.length;
+            for (int i = 0; i < stamp.length; i++) {
+                if (stamp[i] > oldest && stamp[i] <= nowSlot) s += m == Metric.RAISED ? amount[i] : count[i];
+            }
+            return s;
+        }
+    }
+
+    private static final class Counters {
+        final Ring[] rings = new Ring[Window.values().length];
+
+        Counters() {
+            for (Window w : Window.values()) rings[w.ordinal()] = new Ring(w.buckets);
+        }
+    }
+
+    // best k entries; builtFor is the time slot (epoch day for closest-to-target) the board is exact for
+    private static final class Board {
+        final TreeSet<Entry> top = new TreeSet<>(RANKING);
+        final Map<String, Entry> byId = new HashMap<>();
+        long builtFor = Long.MIN_VALUE;
+
+        void offer(String id, long value, int k) {
+            Entry old = byId.get(id);
+            if (old != null) {
+                if (old.value == value) return;
+                top.remove(old);
+            } else if (top.size() >= k) {
+                Entry worst = top.last();
+                if (value < worst.value || (value == worst.value && id.compareTo(worst.projectId) > 0)) return;
+            }
+            Entry e = new Entry(id, value);
+            top.add(e);
+            byId.put(id, e);
+            if (top.size() > k) byId.remove(top.pollLast().projectId);
+        }
+
+        boolean remove(String id) {
+            Entry e = byId.remove(id);
+            return e != null && top.remove(e);
+        }
+
+        void clear() {
+            top.clear();
+            byId.clear();
+            builtFor = Long.MIN_VALUE;
+        }
+    }
+
+    private final int k;
+    private final LongSupplier clock;   // epoch second of local time taken as UTC
+    private final Map<String, Counters> byProject = new HashMap<>();
+    private final Map<String, Counters> byCategory = new HashMap<>();
+    private final Board[][] boards = new Board[Window.values().length][Metric.values().length];
+    private final Board closest = new Board();
+    private Map<String, Project> projects = Collections.emptyMap();
+
+    public TrendingIndex(int k) {
+        this(k, () -> LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    TrendingIndex(int k, LongSupplier clock) {
+        this.k = Math.max(1, k);
+        this.clock = clock;
+        for (Board[] row : boards) for (int m = 0; m < row.length; m++) row[m] = new Board();
+    }
+
+    /** Counts one pledge; only successful ones trend. {@code prj} may be null when the project is unknown. */
+    public synchronized void record(Pledge pl, Project prj) {
+        if (!"SUCCESS".equals(pl.status)) return;
+        Counters c = add(pl, prj);
+        long now = clock.getAsLong();
+        for (Window w : Window.values()) {
+            long slot = Math.floorDiv(now, w.bucketSeconds);
+            for (Metric m : Metric.values()) {
+                Board b = boards[w.ordinal()][m.ordinal()];
+                if (b.builtFor == slot) b.offer(pl.projectId, c.rings[w.ordinal()].sum(slot, m), k); // stale boards catch up when read
+            }
+        }
+        if (prj != null && closest.builtFor == Math.floorDiv(now, 86_400)) {
+            // a funded member leaves a gap only a rescan can fill, so the board rebuilds on its next read
+            if (prj.raised >= prj.target) {
+                if (closest.remove(prj.projectId)) closest.builtFor = Long.MIN_VALUE;
+            } else {
+                closest.offer(prj.projectId, progressPpm(prj), k);
+            }
+        }
+    }
+
+    private Counters add(Pledge pl, Project prj) {
+        long at = pl.datetime.toEpochSecond(ZoneOffset.UTC);
+        Counters c = byProject.computeIfAbsent(pl.projectId, x -> new Counters());
+        Counters cat = prj == null ? null : byCategory.computeIfAbsent(prj.category.toLowerCase(), x -> new Counters());
+        for (Window w : Window.values()) {
+            long slot = Math.floorDiv(at, w.bucketSeconds);
+            c.rings[w.ordinal()].add(slot, pl.amount);
+            if (cat != null) cat.rings[w.ordinal()].add(slot, pl.amount);
+        }
+        return c;
+    }
+
+    /** Refills the counters from the pledges of the last week; boards rebuild on their first read. */
+    void rebuild(List<Pledge> pledges, Map<String, Project> projects) {
+        synchronized (this) {
+            this.projects = projects;
+            byProject.clear();
+            byCategory.clear();
+            for (Board[] row : boards) for (Board b : row) b.clear();
+            closest.clear();
+            long from = clock.getAsLong() - Window.WEEK.buckets * Window.WEEK.bucketSeconds;
+            synchronized (pledges) {
+                for (Pledge pl : pledges) {
+                    if ("SUCCESS".equals(pl.status) && pl.datetime.toEpochSecond(ZoneOffset.UTC) > from) add(pl, projects.get(pl.projectId));
+                }
+            }
+        }
+    }
+
+    /** The best {@code n} (at most k) projects by the metric in the window, best first. */
+    public synchronized List<Entry> top(Window w, Metric m, int n) {
+        long slot = Math.floorDiv(clock.getAsLong(), w.bucketSeconds);
+        Board b = boards[w.ordinal()][m.ordinal()];
+        if (b.builtFor != slot) {
+            b.clear();
+            for (Map.Entry<String, Counters> e : byProject.entrySet()) {
+                long v = e.getValue().rings[w.ordinal()].sum(slot, m);
+                if (v > 0) b.offer(e.getKey(), v, k);
+            }
+            b.builtFor = slot;
+            if (w == Window.WEEK) pruneIdle(slot);
+        }
+        return first(b, n);
+    }
+
+    /** Open, not yet funded projects with the highest share of their target raised, best first; value in ppm. */
+    public synchronized List<Entry> closestToTarget(int n) {
+        long day = Math.floorDiv(clock.getAsLong(), 86_400);
+        if (closest.builtFor != day) {
+            closest.clear();
+            LocalDate today = LocalDate.ofEpochDay(day);
+            for (Project p : projects.values()) {
+                if (p.deadline.isAfter(today) && p.raised < p.target) closest.offer(p.projectId, progressPpm(p), k);
+            }
+            closest.builtFor = day;
+        }
+        return first(closest, n);
+    }
+
+    /** Value in the window for every project with pledges in it. O(projects pledged to this week). */
+    public synchronized Map<String, Long> values(Window w, Metric m) {
+        long slot = Math.floorDiv(clock.getAsLong(), w.bucketSeconds);
+        Map<String, Long> out = new HashMap<>();
+        byProject.forEach((id, c) -> {
+            long v = c.rings[w.ordinal()].sum(slot, m);
+            if (v > 0) out.put(id, v);
+        });
+        return out;
+    }
+
+    public synchronized long value(Window w, Metric m, String projectId) {
+        Counters c = byProject.get(projectId);
+        return c == null ? 0 : c.rings[w.ordinal()].sum(Math.floorDiv(clock.getAsLong(), w.bucketSeconds), m);
+    }
+
+    /** Value in the window per category (lower case), highest first; categories without pledges in it are left out. */
+    public synchronized Map<String, Long> categories(Window w, Metric m) {
+        long slot = Math.floorDiv(clock.getAsLong(), w.bucketSeconds);
+        List<Entry> rows = new ArrayList<>();
+        byCategory.forEach((cat, c) -> {
+            long v = c.rings[w.ordinal()].sum(slot, m);
+            if (v > 0) rows.add(new Entry(cat, v));
+        });
+        rows.sort(RANKING);
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Entry e : rows) out.put(e.projectId, e.value);
+        return out;
+    }
+
+    // projects without pledges in the last week hold no information any more
+    private void pruneIdle(long weekSlot) {
+        byProject.values().removeIf(c -> c.rings[Window.WEEK.ordinal()].sum(weekSlot, Metric.BACKERS) == 0);
+    }
+
+    private static long progressPpm(Project p) {
+        return p.target <= 0 ? 0 : (long) ((double) p.raised / p.target * 1_000_000);
+    }
+
+    private static List<Entry> first(Board b, int n) {
+        List<Entry> out = new ArrayList<>(Math.min(Math.max(0, n), b.top.size()));
+        for (Entry e : b.top) {
+            if (out.size() >= n) break;
+            out.add(e);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,317 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import controller.AsyncCrowdfundController;
+import controller.CrowdfundController;
+import controller.CrowdfundService;
+import controller.ProjectPage;
+import controller.Session;
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import repo.PledgeAggregates;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Headless JSON API over a {@link CrowdfundService} (one controller, or a partition router),
+ * on the JDK's built-in HTTP server.
+ * Handlers run on virtual threads when the JVM has them (see {@link AsyncCrowdfundController#defaultExecutor()}).
+ * Connections are HTTP/1.1 keep-alive, and requests pipelined on one connection are answered in order.
+ * <pre>
+ * GET  /api/projects?q=&amp;category=&amp;sort=&amp;offset=&amp;limit=&amp;after=&amp;open=   one page of search results
+ *      (sort "Trending (1h|24h|7d)" adds windowRaised to each item; open=true leaves out closed campaigns)
+ * GET  /api/projects/{id}                                     project detail, backers and tiers
+ * GET  /api/projects/{id}/tiers                               reward tiers
+ * GET  /api/categories
+ * GET  /api/stats                                             counters from PledgeAggregates
+ * POST /api/sessions        {"username":"alice"}              -> {"token":...}
+ * DELETE /api/sessions                                        logout
+ * GET  /api/me/pledges
+ * POST /api/pledges         {"projectId":..,"amount":..,"tier":..}
+ * </pre>
+ * Authenticated calls send {@code Authorization: Bearer <token>}; unknown and expired tokens get 401. A pledge may carry {@code Idempotency-Key: <key>}:
+ * resending it returns the first answer without pledging twice, and the key on a different pledge gets 409.
+ * Once {@code maxPendingPledges} pledges are in flight, more pledges get 503 with Retry-After instead of queueing.
+ */
+public class CrowdfundServer implements Closeable {
+    private static final Histogram REQUEST = Metrics.latency("http.request");
+    private static final int MAX_BODY = 64 * 1024;
+    private static final int MAX_LIMIT = 500;
+
+    private final CrowdfundService controller;
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final Semaphore pledgeSlots;
+    private final int maxPendingPledges;
+
+    public CrowdfundServer(CrowdfundService controller, InetSocketAddress address, int maxPendingPledges) throws IOException {
+        this.controller = controller;
+        this.maxPendingPledges = maxPendingPledges;
+        this.pledgeSlots = new Semaphore(maxPendingPledges);
+        this.executor = AsyncCrowdfundController.defaultExecutor();
+        this.http = HttpServer.create(address, 1024);
+        http.setExecutor(executor);
+        http.createContext("/api/projects", handler(this::projects));
+        http.createContext("/api/categories", handler(this::categories));
+        http.createContext("/api/stats", handler(this::stats));
+        http.createContext("/api/sessions", handler(this::sessions));
+        http.createContext("/api/me/pledges", handler(this::myPledges));
+        http.createContext("/api/pledges", handler(this::pledges));
+    }
+
+    public void start() { http.start(); }
+
+    public InetSocketAddress getAddress() { return http.getAddress(); }
+
+    /** Pledges currently being validated or persisted. */
+    public int pendingPledges() { return maxPendingPledges - pledgeSlots.availablePermits(); }
+
+    @Override
+    public void close() {
+        http.stop(1);
+        executor.shutdown();
+    }
+
+    // --- plumbing ---
+
+    /** Thrown by routes to answer with a status and an {"error": ...} body. */
+    static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    private interface Route { Object handle(HttpExchange ex) throws IOException; }
+
+    private HttpHandler handler(Route route) {
+        return ex -> {
+            long t = Metrics.start();
+            int status = 200;
+            String body;
+            try {
+                Object result = route.handle(ex);
+                body = result instanceof Json ? result.toString() : String.valueOf(result);
+            } catch (HttpError e) {
+                status = e.status;
+                body = new Json().beginObject().field("error", e.getMessage()).endObject().toString();
+                if (e.status == 503) ex.getResponseHeaders().set("Retry-After", "1");
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = new Json().beginObject().field("error", e.getMessage()).endObject().toString();
+            } catch (RuntimeException | IOException e) {
+                status = 500;
+                body = new Json().beginObject().field("error", String.valueOf(e)).endObject().toString();
+            }
+            // drain what the route did not read, or the next pipelined request would be misparsed
+            try (InputStream in = ex.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+            REQUEST.recordSince(t);
+        };
+    }
+
+    private static void method(HttpExchange ex, String... allowed) {
+        for (String m : allowed) if (m.equals(ex.getRequestMethod())) return;
+        ex.getResponseHeaders().set("Allow", String.join(", ", allowed));
+        throw new HttpError(405, "method not allowed");
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String q = ex.getRequestURI().getRawQuery();
+        if (q == null || q.isEmpty()) return out;
+        for (String pair : q.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static int intParam(Map<String, String> q, String name, int def) {
+        String v = q.get(name);
+        if (v == null || v.isEmpty()) return def;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    private static Map<String, Object> body(HttpExchange ex) throws IOException {
+        // left open: the handler drains and closes it once the response is ready
+        byte[] b = ex.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (b.length > MAX_BODY) throw new HttpError(413, "body too large");
+        return Json.parseObject(new String(b, StandardCharsets.UTF_8));
+    }
+
+    private Session session(HttpExchange ex) {
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        String token = auth != null && auth.startsWith("Bearer ") ? auth.substring(7).trim() : null;
+        Session s = controller.findSession(token);
+        if (s == null) throw new HttpError(401, "login required (unknown or expired token)");
+        return s;
+    }
+
+    // --- routes ---
+
+    private Object projects(HttpExchange ex) {
+        method(ex, "GET");
+        String rest = ex.getRequestURI().getPath().substring("/api/projects".length());
+        if (rest.isEmpty() || rest.equals("/")) return search(query(ex));
+
+        String[] parts = rest.substring(1).split("/");
+        Project p = controller.getProject(parts[0]);
+        if (p == null) throw new HttpError(404, "project not found");
+        if (parts.length == 2 && parts[1].equals("tiers")) {
+            Json j = new Json().beginArray();
+            for (RewardTier t : controller.getTiers(p.projectId)) tier(j, t);
+            return j.endArray();
+        }
+        if (parts.length != 1) throw new HttpError(404, "not found");
+        Json j = new Json().beginObject();
+        projectFields(j, p);
+        j.field("backers", controller.getBackerCount(p.projectId));
+        j.key("tiers").beginArray();
+        for (RewardTier t : controller.getTiers(p.projectId)) tier(j, t);
+        return j.endArray().endObject();
+    }
+
+    private Json search(Map<String, String> q) {
+        String kw = q.get("q"), cat = q.get("category"), sort = q.get("sort"), after = q.get("after");
+        int limit = Math.max(0, Math.min(MAX_LIMIT, intParam(q, "limit", 50)));
+        boolean openOnly = "true".equalsIgnoreCase(q.get("open"));
+        ProjectPage page = after != null && !after.isEmpty()
+                ? controller.searchAfter(kw, cat, sort, openOnly, after, limit)
+                : controller.search(kw, cat, sort, openOnly, intParam(q, "offset", 0), limit);
+        Json j = new Json().beginObject()
+                .field("total", page.total)
+                .field("offset", page.offset)
+                .field("nextCursor", page.nextCursor);
+        j.key("items").beginArray();
+        for (Project p : page.items) {
+            j.beginObject();
+            projectFields(j, p);
+            if (!page.scores.isEmpty()) j.field("windowRaised", (long) page.scores.getOrDefault(p.projectId, 0L));
+            j.endObject();
+        }
+        return j.endArray().endObject();
+    }
+
+    private static void projectFields(Json j, Project p) {
+        j.field("projectId", p.projectId)
+         .field("name", p.name)
+         .field("category", p.category)
+         .field("target", p.target)
+         .field("deadline", p.deadline.toString())
+         .field("raised", p.raised)
+         .field("progress", p.progress())
+         .field("closed", p.closed);
+    }
+
+    private static void tier(Json j, RewardTier t) {
+        j.beginObject().field("tierName", t.tierName).field("minAmount", t.minAmount).field("quota", t.quota).endObject();
+    }
+
+    private Object categories(HttpExchange ex) {
+        method(ex, "GET");
+        Json j = new Json().beginArray();
+        for (String c : controller.listCategories()) j.value(c);
+        return j.endArray();
+    }
+
+    private Object stats(HttpExchange ex) {
+        method(ex, "GET");
+        PledgeAggregates agg = controller.getAggregates();
+        Json j = new Json().beginObject()
+                .field("success", controller.getSuccessCount())
+                .field("rejected", controller.getRejectedCount())
+                .field("raised", agg.total().raised())
+                .field("pendingPledges", pendingPledges());
+        j.key("rejectedByReason").beginObject();
+        agg.rejectedByReason().forEach((k, v) -> j.field(k, v.longValue()));
+        j.endObject();
+        j.key("categories").beginObject();
+        for (String c : controller.listCategories()) {
+            PledgeAggregates.Counts n = agg.forCategory(c);
+            j.key(c).beginObject().field("success", n.success()).field("rejected", n.rejected()).field("raised", n.raised()).endObject();
+        }
+        return j.endObject().endObject();
+    }
+
+    private Object sessions(HttpExchange ex) throws IOException {
+        method(ex, "POST", "DELETE");
+        if (ex.getRequestMethod().equals("DELETE")) {
+            controller.closeSession(session(ex).token);
+            return new Json().beginObject().field("ok", true).endObject();
+        }
+        Object username = body(ex).get("username");
+        Session s = username instanceof String ? controller.openSession((String) username) : null;
+        if (s == null) throw new HttpError(401, "unknown user");
+        return new Json().beginObject()
+                .field("token", s.token).field("userId", s.user.userId).field("username", s.user.username)
+                .endObject();
+    }
+
+    private Object myPledges(HttpExchange ex) {
+        method(ex, "GET");
+        Json j = new Json().beginArray();
+        for (Pledge pl : controller.getMyPledges(session(ex))) {
+            j.beginObject()
+             .field("pledgeId", pl.pledgeId).field("projectId", pl.projectId).field("datetime", pl.datetime.toString())
+             .field("amount", pl.amount).field("tierName", pl.tierName).field("status", pl.status).field("reason", pl.reason)
+             .endObject();
+        }
+        return j.endArray();
+    }
+
+    private Object pledges(HttpExchange ex) throws IOException {
+        method(ex, "POST");
+        Session s = session(ex);
+        Map<String, Object> b = body(ex);
+        if (!(b.get("projectId") instanceof String)) throw new IllegalArgumentException("projectId is required");
+        if (!(b.get("amount") instanceof Long)) throw new IllegalArgumentException("amount must be an integer");
+        if ((Long) b.get("amount") <= 0) throw new IllegalArgumentException("amount must be positive");
+        Object tier = b.get("tier");
+        if (tier != null && !(tier instanceof String)) throw new IllegalArgumentException("tier must be a string");
+
+        if (!pledgeSlots.tryAcquire()) throw new HttpError(503, "too many pledges in flight, retry shortly");
+        String msg;
+        try {
+            msg = controller.pledge(s, (String) b.get("projectId"), (Long) b.get("amount"), tier == null ? "" : (String) tier,
+                    ex.getRequestHeaders().getFirst("Idempotency-Key"));
+        } finally {
+            pledgeSlots.release();
+        }
+        if (msg.equals("Project not found.")) throw new HttpError(404, "project not found");
+        if (msg.equals(CrowdfundController.KEY_REUSED_MESSAGE)) throw new HttpError(409, msg);
+        return new Json().beginObject()
+                .field("accepted", msg.startsWith("Success"))
+                .field("message", msg)
+                .endObject();
+    }
+}
@@ -0,0 +1,168 @@
+package server;
+
+import java.util.*;
+
+/**
+ * Just enough JSON for the HTTP API: a streaming writer for responses and a parser for the
+ * flat request bodies ({"projectId":"10000001","amount":250,"tier":"Gold"}). Nested values are rejected.
+ */
+public final class Json {
+    private final StringBuilder sb = new StringBuilder(256);
+    private boolean first = true; // no comma needed before the next value
+
+    public Json beginObject() { sep(); sb.append('{'); first = true; return this; }
+    public Json endObject() { sb.append('}'); first = false; return this; }
+    public Json beginArray() { sep(); sb.append('['); first = true; return this; }
+    public Json endArray() { sb.append(']'); first = false; return this; }
+
+    /** Key inside an object; follow with a value or begin*. */
+    public Json key(String k) {
+        sep();
+        quote(k);
+        sb.append(':');
+        first = true;
+        return this;
+    }
+
+    public Json value(String v) {
+        sep();
+        if (v == null) sb.append("null"); else quote(v);
+        first = false;
+        return this;
+    }
+
+    public Json value(long v) { sep(); sb.append(v); first = false; return this; }
+    public Json value(double v) { sep(); sb.append(Double.isFinite(v) ? String.valueOf(v) : "null"); first = false; return this; }
+    public Json value(boolean v) { sep(); sb.append(v); first = false; return this; }
+
+    public Json field(String k, String v) { return key(k).value(v); }
+    public Json field(String k, long v) { return key(k).value(v); }
+    public Json field(String k, double v) { return key(k).value(v); }
+    public Json field(String k, boolean v) { return key(k).value(v); }
+
+    private void sep() {
+        if (!first) sb.append(',');
+    }
+
+    private void quote(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() { return sb.toString(); }
+
+    /**
+     * Parses a flat object; values come back as String, Long, Double, Boolean or null.
+     * Throws IllegalArgumentException on anything else.
+     */
+    public static Map<String, Object> parseObject(String text) {
+        Parser p = new Parser(text);
+        Map<String, Object> out = new LinkedHashMap<>();
+        p.skip();
+        p.expect('{');
+        p.skip();
+        if (p.peek() == '}') { p.pos++; p.end(); return out; }
+        while (true) {
+            p.skip();
+            String k = p.string();
+            p.skip();
+            p.expect(':');
+            p.skip();
+            out.put(k, p.scalar());
+            p.skip();
+            char c = p.next();
+            if (c == '}') break;
+            if (c != ',') throw p.error("expected , or }");
+        }
+        p.end();
+        return out;
+    }
+
+    private static final class Parser {
+        final String s;
+        int pos = 0;
+
+        Parser(String s) { this.s = s == null ? "" : s; }
+
+        char peek() { return pos < s.length() ? s.charAt(pos) : '\0'; }
+
+        char next() {
+            if (pos >= s.length()) throw error("unexpected end");
+            return s.charAt(pos++);
+        }
+
+        void skip() { while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++; }
+
+        void expect(char c) { if (next() != c) throw error("expected " + c); }
+
+        void end() {
+            skip();
+            if (pos != s.length()) throw error("trailing characters");
+        }
+
+        IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException("bad JSON at " + pos + ": " + msg);
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder b = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return b.toString();
+                if (c != '\\') { b.append(c); continue; }
+                char e = next();
+                switch (e) {
+                    case '"': case '\\': case '/': b.append(e); break;
+                    case 'n': b.append('\n'); break;
+                    case 'r': b.append('\r'); break;
+                    case 't': b.append('\t'); break;
+                    case 'b': b.append('\b'); break;
+                    case 'f': b.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw error("bad \\u escape");
+                        try {
+                            b.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: throw error("bad escape");
+                }
+            }
+        }
+
+        Object scalar() {
+            char c = peek();
+            if (c == '"') return string();
+            if (s.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if (s.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (s.startsWith("null", pos)) { pos += 4; return null; }
+            int start = pos;
+            while (pos < s.length() && "+-.eE0123456789".indexOf(s.charAt(pos)) >= 0) pos++;
+            String num = s.substring(start, pos);
+            if (num.isEmpty()) throw error("expected a string, number, boolean or null");
+            try {
+                if (num.indexOf('.') < 0 && num.indexOf('e') < 0 && num.indexOf('E') < 0) return Long.parseLong(num);
+                return Double.parseDouble(num);
+            } catch (NumberFormatException e) {
+                throw error("bad number " + num);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package server;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between {@link RemotePartition} and {@link PartitionServer}. On one connection requests and
+ * replies alternate: a request is an op byte and its arguments, a reply is {@link #OK} and the result or
+ * {@link #ERROR} and a message. Strings are an int byte length (-1 for null) and UTF-8; dates are epoch day,
+ * datetimes epoch second (UTC) + nano, as in snapshot.bin. A connection starts with HELLO, which checks that
+ * the server holds the partition the client expects.
+ */
+final class PartitionProtocol {
+    static final int MAGIC = 0x43465052; // "CFPR"
+
+    static final byte HELLO = 0, SEARCH = 1, PROJECT = 2, TIERS = 3, BACKERS = 4, CATEGORIES = 5,
+            USER = 6, PLEDGE = 7, PLEDGES_OF = 8, STATS = 9;
+    static final byte OK = 0, ERROR = 1;
+
+    private PartitionProtocol() {}
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) { out.writeInt(-1); return; }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    static void writeProject(DataOutputStream out, Project p) throws IOException {
+        writeString(out, p.projectId);
+        writeString(out, p.name);
+        writeString(out, p.category);
+        out.writeLong(p.target);
+        out.writeLong(p.deadline.toEpochDay());
+        out.writeLong(p.raised);
+        out.writeBoolean(p.closed);
+    }
+
+    static Project readProject(DataInputStream in) throws IOException {
+        Project p = new Project(readString(in), readString(in), readString(in), in.readLong(),
+                LocalDate.ofEpochDay(in.readLong()), in.readLong());
+        p.closed = in.readBoolean();
+        return p;
+    }
+
+    static void writeProjects(DataOutputStream out, List<Project> list) throws IOException {
+        out.writeInt(list.size());
+        for (Project p : list) writeProject(out, p);
+    }
+
+    static List<Project> readProjects(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<Project> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(readProject(in));
+        return out;
+    }
+
+    static void writeTier(DataOutputStream out, RewardTier t) throws IOException {
+        writeString(out, t.projectId);
+        writeString(out, t.tierName);
+        out.writeLong(t.minAmount);
+        out.writeInt(t.quota);
+    }
+
+    static RewardTier readTier(DataInputStream in) throws IOException {
+        return new RewardTier(readString(in), readString(in), in.readLong(), in.readInt());
+    }
+
+    static void writePledge(DataOutputStream out, Pledge pl) throws IOException {
+        writeString(out, pl.pledgeId);
+        writeString(out, pl.userId);
+        writeString(out, pl.projectId);
+        out.writeLong(pl.datetime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(pl.datetime.getNano());
+        out.writeLong(pl.amount);
+        writeString(out, pl.tierName);
+        writeString(out, pl.status);
+        writeString(out, pl.reason);
+        writeString(out, pl.idempotencyKey);
+    }
+
+    static Pledge readPledge(DataInputStream in) throws IOException {
+        String id = readString(in), user = readString(in), project = readString(in);
+        LocalDateTime at = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new Pledge(id, user, project, at, in.readLong(), readString(in), readString(in), readString(in), readString(in));
+    }
+}
@@ -0,0 +1,199 @@
+package server;
+
+import controller.AsyncCrowdfundController;
+import controller.Partition;
+import controller.ProjectPage;
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static server.PartitionProtocol.*;
+
+/**
+ * Serves one partition to a {@link RemotePartition} over a loopback socket (see {@link PartitionProtocol}).
+ * One thread per connection, virtual when the JVM has them; the router keeps a few connections open per partition.
+ */
+public class PartitionServer implements Closeable {
+    private static final Histogram SERVE = Metrics.latency("partition.serve");
+
+    private final Partition partition;
+    private final int index, count;
+    private final ServerSocket socket;
+    private final ExecutorService executor = AsyncCrowdfundController.defaultExecutor();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /** Listens on the loopback address; port 0 picks a free one (see {@link #getPort()}). */
+    public PartitionServer(Partition partition, int index, int count, int port) throws IOException {
+        this.partition = partition;
+        this.index = index;
+        this.count = count;
+        this.socket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() { return socket.getLocalPort(); }
+
+    public void start() {
+        Thread t = new Thread(this::acceptLoop, "partition-" + index + "-accept");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket s = socket.accept();
+                s.setTcpNoDelay(true);
+                connections.add(s);
+                executor.execute(() -> serve(s));
+            } catch (IOException e) {
+                if (!closed) e.printStackTrace();
+            }
+        }
+    }
+
+    private void serve(Socket s) {
+        try (s) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream reply = new DataOutputStream(buf);
+            int op;
+            while ((op = in.read()) >= 0) {
+                long t = Metrics.start();
+                buf.reset();
+                try {
+                    handle((byte) op, in, reply);
+                } catch (RuntimeException | IOException e) {
+                    if (e instanceof EOFException) throw e;
+                    buf.reset(); // the arguments were read in full, so the connection stays usable
+                    reply.writeByte(ERROR);
+                    writeString(reply, String.valueOf(e));
+                }
+                buf.writeTo(out);
+                out.flush();
+                SERVE.recordSince(t);
+            }
+        } catch (IOException e) {
+            if (!closed) System.err.println("partition " + index + ": connection dropped (" + e + ")");
+        } finally {
+            connections.remove(s);
+        }
+    }
+
+    // reads the arguments first, then answers OK + result; anything thrown after the arguments becomes an ERROR reply
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case HELLO: {
+                if (in.readInt() != MAGIC) throw new EOFException("not a partition client");
+                out.writeByte(OK);
+                out.writeInt(index);
+                out.writeInt(count);
+                return;
+            }
+            case SEARCH: {
+                String kw = readString(in), cat = readString(in), sort = readString(in);
+                boolean openOnly = in.readBoolean();
+                Project after = in.readBoolean() ? readProject(in) : null;
+                int limit = in.readInt();
+                ProjectPage page = partition.search(kw, cat, sort, openOnly, after, limit);
+                out.writeByte(OK);
+                out.writeInt(page.total);
+                writeProjects(out, page.items);
+                out.writeInt(page.scores.size());
+                for (Map.Entry<String, Long> e : page.scores.entrySet()) {
+                    writeString(out, e.getKey());
+                    out.writeLong(e.getValue());
+                }
+                return;
+            }
+            case PROJECT: {
+                Project p = partition.getProject(readString(in));
+                out.writeByte(OK);
+                out.writeBoolean(p != null);
+                if (p != null) writeProject(out, p);
+                return;
+            }
+            case TIERS: {
+                List<RewardTier> tiers = partition.getTiers(readString(in));
+                out.writeByte(OK);
+                out.writeInt(tiers.size());
+                for (RewardTier t : tiers) writeTier(out, t);
+                return;
+            }
+            case BACKERS: {
+                int n = partition.getBackerCount(readString(in));
+                out.writeByte(OK);
+                out.writeInt(n);
+                return;
+            }
+            case CATEGORIES: {
+                Set<String> cats = partition.listCategories();
+                out.writeByte(OK);
+                out.writeInt(cats.size());
+                for (String c : cats) writeString(out, c);
+                return;
+            }
+            case USER: {
+                User u = partition.findUser(readString(in));
+                out.writeByte(OK);
+                out.writeBoolean(u != null);
+                if (u != null) {
+                    writeString(out, u.userId);
+                    writeString(out, u.username);
+                }
+                return;
+            }
+            case PLEDGE: {
+                String user = readString(in), project = readString(in);
+                long amount = in.readLong();
+                String tier = readString(in), key = readString(in);
+                String msg = partition.pledge(user, project, amount, tier, key);
+                out.writeByte(OK);
+                writeString(out, msg);
+                return;
+            }
+            case PLEDGES_OF: {
+                List<Pledge> list = partition.pledgesOf(readString(in));
+                out.writeByte(OK);
+                out.writeInt(list.size());
+                for (Pledge pl : list) writePledge(out, pl);
+                return;
+            }
+            case STATS: {
+                Map<String, Long> stats = partition.stats();
+                out.writeByte(OK);
+                out.writeInt(stats.size());
+                for (Map.Entry<String, Long> e : stats.entrySet()) {
+                    writeString(out, e.getKey());
+                    out.writeLong(e.getValue());
+                }
+                return;
+            }
+            default:
+                throw new EOFException("unknown op " + op); // out of sync: drop the connection
+        }
+    }
+
+    /** Stops accepting, drops open connections; the partition itself is closed by its owner. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+        for (Socket s : connections) s.close();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,206 @@
+package server;
+
+import controller.Partition;
+import controller.ProjectPage;
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import model.User;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import static server.PartitionProtocol.*;
+
+/**
+ * A partition in another JVM, reached through its {@link PartitionServer}. Each call borrows an idle
+ * connection (or opens one), so concurrent calls never wait on each other; connections that fail are dropped
+ * and the next call reconnects, which also picks up a restarted partition.
+ */
+public class RemotePartition implements Partition {
+    private static final Histogram CALL = Metrics.latency("partition.rpc");
+
+    private interface Args { void write(DataOutputStream out) throws IOException; }
+    private interface Result<T> { T read(DataInputStream in) throws IOException; }
+
+    private static final class Conn implements Closeable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Conn(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void close() throws IOException { socket.close(); }
+    }
+
+    private final InetSocketAddress address;
+    private final int index, count;
+    private final ConcurrentLinkedDeque<Conn> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Conn> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /** Connects once to check that the server holds partition {@code index} of {@code count}. */
+    public RemotePartition(InetSocketAddress address, int index, int count) throws IOException {
+        this.address = address;
+        this.index = index;
+        this.count = count;
+        idle.add(connect());
+    }
+
+    private Conn connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.setTcpNoDelay(true);
+            s.connect(address, 5_000);
+            Conn c = new Conn(s);
+            c.out.writeByte(HELLO);
+            c.out.writeInt(MAGIC);
+            c.out.flush();
+            if (c.in.readByte() != OK) throw new IOException(address + ": handshake refused");
+            int k = c.in.readInt(), n = c.in.readInt();
+            if (k != index || n != count) {
+                throw new IOException(address + " serves partition " + k + " of " + n + ", expected " + index + " of " + count);
+            }
+            open.add(c);
+            return c;
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    private <T> T call(byte op, Args args, Result<T> result) throws IOException {
+        if (closed) throw new IOException("partition " + index + " is closed");
+        long t = Metrics.start();
+        Conn c = idle.pollFirst();
+        if (c == null) c = connect();
+        boolean reusable = false;
+        try {
+            c.out.writeByte(op);
+            args.write(c.out);
+            c.out.flush();
+            if (c.in.readByte() == ERROR) {
+                String msg = readString(c.in);
+                reusable = true;
+                throw new IOException("partition " + index + " (" + address + "): " + msg);
+            }
+            T r = result.read(c.in);
+            reusable = true;
+            return r;
+        } finally {
+            if (reusable && !closed) {
+                idle.addFirst(c);
+            } else {
+                open.remove(c);
+                c.close();
+            }
+            CALL.recordSince(t);
+        }
+    }
+
+    @Override
+    public ProjectPage search(String keyword, String category, String sortKey, boolean openOnly, Project after, int limit) throws IOException {
+        return call(SEARCH, out -> {
+            writeString(out, keyword);
+            writeString(out, category);
+            writeString(out, sortKey);
+            out.writeBoolean(openOnly);
+            out.writeBoolean(after != null);
+            if (after != null) writeProject(out, after);
+            out.writeInt(limit);
+        }, in -> {
+            int total = in.readInt();
+            List<Project> items = readProjects(in);
+            int n = in.readInt();
+            Map<String, Long> scores = new HashMap<>();
+            for (int i = 0; i < n; i++) scores.put(readString(in), in.readLong());
+            return new ProjectPage(items, 0, total, null, scores);
+        });
+    }
+
+    @Override
+    public Project getProject(String projectId) throws IOException {
+        return call(PROJECT, out -> writeString(out, projectId), in -> in.readBoolean() ? readProject(in) : null);
+    }
+
+    @Override
+    public List<RewardTier> getTiers(String projectId) throws IOException {
+        return call(TIERS, out -> writeString(out, projectId), in -> {
+            int n = in.readInt();
+            List<RewardTier> tiers = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) tiers.add(readTier(in));
+            return tiers;
+        });
+    }
+
+    @Override
+    public int getBackerCount(String projectId) throws IOException {
+        return call(BACKERS, out -> writeString(out, projectId), DataInputStream::readInt);
+    }
+
+    @Override
+    public Set<String> listCategories() throws IOException {
+        return call(CATEGORIES, out -> { }, in -> {
+            int n = in.readInt();
+            Set<String> cats = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < n; i++) cats.add(readString(in));
+            return cats;
+        });
+    }
+
+    @Override
+    public User findUser(String username) throws IOException {
+        return call(USER, out -> writeString(out, username), in -> in.readBoolean() ? new User(readString(in), readString(in)) : null);
+    }
+
+    @Override
+    public String pledge(String userId, String projectId, long amount, String tierNameOrEmpty, String idempotencyKey) throws IOException {
+        return call(PLEDGE, out -> {
+            writeString(out, userId);
+            writeString(out, projectId);
+            out.writeLong(amount);
+            writeString(out, tierNameOrEmpty);
+            writeString(out, idempotencyKey);
+        }, PartitionProtocol::readString);
+    }
+
+    @Override
+    public List<Pledge> pledgesOf(String userId) throws IOException {
+        return call(PLEDGES_OF, out -> writeString(out, userId), in -> {
+            int n = in.readInt();
+            List<Pledge> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) list.add(readPledge(in));
+            return list;
+        });
+    }
+
+    @Override
+    public Map<String, Long> stats() throws IOException {
+        return call(STATS, out -> { }, in -> {
+            int n = in.readInt();
+            Map<String, Long> stats = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) stats.put(readString(in), in.readLong());
+            return stats;
+        });
+    }
+
+    /** Closes the connections; the partition's JVM keeps running. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Conn c : open) c.close();
+        open.clear();
+        idle.clear();
+    }
+}
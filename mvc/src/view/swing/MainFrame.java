@@ -1,37 +1,52 @@
 package view.swing;
 
+import controller.AsyncCrowdfundController;
 import controller.CrowdfundController;
+import controller.ProjectPage;
+import model.Pledge;
 import model.Project;
 import model.RewardTier;
+import repo.PledgeAggregates;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.time.LocalDate;
-import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class MainFrame extends JFrame {
     private final CrowdfundController controller;
+    private final AsyncCrowdfundController async;
     private JTextField userField;
     private JButton loginBtn;
     private JTextField searchField;
     private JComboBox<String> categoryCombo;
     private JComboBox<String> sortCombo;
+    private JCheckBox openOnlyBox;
     private JTable table;
-    private DefaultTableModel tableModel;
+    private ProjectTableModel tableModel;
     private JLabel statusBar;
+    private JProgressBar busyBar;
+    private int reloadSeq = 0;
+    private boolean searching = false;
+    private JLabel pageLabel;
+    private JButton prevBtn, nextBtn;
+    private int pageOffset = 0;
+    private static final int PAGE_SIZE = 50;
 
     // Detail
-    private JLabel lblName, lblCat, lblTarget, lblDeadline, lblRaised, lblProgress;
+    private JLabel lblName, lblCat, lblTarget, lblDeadline, lblRaised, lblProgress, lblBackers;
     private JProgressBar progressBar;
     private DefaultListModel<String> tierListModel;
     private JList<String> tierList;
-    private JButton pledgeBtn, refreshBtn, statsBtn;
+    private JButton pledgeBtn, refreshBtn, statsBtn, metricsBtn, trendingBtn, myPledgesBtn;
+    private JDialog metricsDialog, trendingDialog;
 
     public MainFrame() throws Exception {
         setTitle("Crowdfund MVC (Swing + CSV)");
@@ -40,7 +55,16 @@ public class MainFrame extends JFrame {
         setLocationRelativeTo(null);
 
         controller = new CrowdfundController(Path.of("data"));
+        async = new AsyncCrowdfundController(controller);
         initUI();
+        // EXIT_ON_CLOSE exits right after the listeners run: finish the pledges in flight, then flush and close the store
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override public void windowClosing(java.awt.event.WindowEvent e) { shutdown(); }
+        });
+        controller.addCampaignClosedListener(e -> SwingUtilities.invokeLater(() -> {
+            status("Campaign closed: " + e);
+            reloadTable();
+        }));
         reloadCategories();
         reloadTable();
     }
@@ -68,16 +92,20 @@ public class MainFrame extends JFrame {
 
         JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         searchField = new JTextField(18);
-        sortCombo = new JComboBox<>(new String[]{"Default","Ending Soon","Raised (High→Low)","Newest Id"});
+        sortCombo = new JComboBox<>(new String[]{"Default","Ending Soon","Raised (High→Low)","Newest Id",
+                "Trending (1h)","Trending (24h)","Trending (7d)"});
         categoryCombo = new JComboBox<>(new String[]{"All"});
+        openOnlyBox = new JCheckBox("Open only");
+        openOnlyBox.addActionListener(e -> { pageOffset = 0; reloadTable(); });
         JButton searchBtn = new JButton("Search");
-        searchBtn.addActionListener(e -> reloadTable());
+        searchBtn.addActionListener(e -> { pageOffset = 0; reloadTable(); });
         right.add(new JLabel("Search:"));
         right.add(searchField);
         right.add(new JLabel("Category:"));
         right.add(categoryCombo);
         right.add(new JLabel("Sort:"));
         right.add(sortCombo);
+        right.add(openOnlyBox);
         right.add(searchBtn);
         top.add(right, BorderLayout.EAST);
 
@@ -89,9 +117,7 @@ public class MainFrame extends JFrame {
         split.setDividerLocation(0.55);
 
         // Table
-        tableModel = new DefaultTableModel(new Object[]{"ID","Name","Category","Target","Deadline","Raised","Progress"}, 0){
-            @Override public boolean isCellEditable(int r, int c){ return false; }
-        };
+        tableModel = new ProjectTableModel();
         table = new JTable(tableModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
@@ -100,7 +126,19 @@ public class MainFrame extends JFrame {
                 if (!e.getValueIsAdjusting()) showSelectedDetail();
             }
         });
-        split.setLeftComponent(new JScrollPane(table));
+        JPanel listPanel = new JPanel(new BorderLayout());
+        listPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        JPanel pager = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        prevBtn = new JButton("◀ Prev");
+        prevBtn.addActionListener(e -> { pageOffset = Math.max(0, pageOffset - PAGE_SIZE); reloadTable(); });
+        nextBtn = new JButton("Next ▶");
+        nextBtn.addActionListener(e -> { pageOffset += PAGE_SIZE; reloadTable(); });
+        pageLabel = new JLabel("-");
+        pager.add(prevBtn);
+        pager.add(pageLabel);
+        pager.add(nextBtn);
+        listPanel.add(pager, BorderLayout.SOUTH);
+        split.setLeftComponent(listPanel);
 
         // Detail panel
         JPanel detail = new JPanel();
@@ -112,6 +150,7 @@ public class MainFrame extends JFrame {
         lblDeadline = new JLabel("Deadline: -");
         lblRaised = new JLabel("Raised: -");
         lblProgress = new JLabel("Progress: -");
+        lblBackers = new JLabel("Backers: -");
         progressBar = new JProgressBar(0, 100);
         progressBar.setStringPainted(true);
         detail.add(lblName);
@@ -120,6 +159,7 @@ public class MainFrame extends JFrame {
         detail.add(lblDeadline);
         detail.add(lblRaised);
         detail.add(lblProgress);
+        detail.add(lblBackers);
         detail.add(progressBar);
         detail.add(Box.createVerticalStrut(10));
 
@@ -135,7 +175,16 @@ public class MainFrame extends JFrame {
         refreshBtn.addActionListener(e -> reloadTable());
         statsBtn = new JButton("Stats");
         statsBtn.addActionListener(e -> onStats());
+        metricsBtn = new JButton("Metrics");
+        metricsBtn.addActionListener(e -> onMetrics());
+        trendingBtn = new JButton("Trending");
+        trendingBtn.addActionListener(e -> onTrending());
+        myPledgesBtn = new JButton("My Pledges");
+        myPledgesBtn.addActionListener(e -> onMyPledges());
+        btns.add(myPledgesBtn);
         btns.add(statsBtn);
+        btns.add(metricsBtn);
+        btns.add(trendingBtn);
         btns.add(refreshBtn);
         btns.add(pledgeBtn);
         detail.add(btns);
@@ -145,29 +194,81 @@ public class MainFrame extends JFrame {
         add(split, BorderLayout.CENTER);
 
         statusBar = new JLabel("Ready");
-        add(statusBar, BorderLayout.SOUTH);
+        busyBar = new JProgressBar();
+        busyBar.setIndeterminate(true);
+        busyBar.setStringPainted(true);
+        busyBar.setVisible(false);
+        JPanel south = new JPanel(new BorderLayout(8, 0));
+        south.add(statusBar, BorderLayout.CENTER);
+        south.add(busyBar, BorderLayout.EAST);
+        add(south, BorderLayout.SOUTH);
     }
 
     private void reloadCategories() {
-        categoryCombo.removeAllItems();
-        categoryCombo.addItem("All");
-        Set<String> cats = controller.listCategories();
-        for (String c : cats) categoryCombo.addItem(c);
+        onEdt(async.listCategories(), cats -> {
+            Object selected = categoryCombo.getSelectedItem();
+            categoryCombo.removeAllItems();
+            categoryCombo.addItem("All");
+            for (String c : cats) categoryCombo.addItem(c);
+            if (selected != null) categoryCombo.setSelectedItem(selected);
+        });
     }
 
+    // Search runs off the EDT; only the newest request is allowed to touch the table.
     private void reloadTable() {
-        tableModel.setRowCount(0);
         String kw = searchField.getText();
         String cat = (String) categoryCombo.getSelectedItem();
         String sort = (String) sortCombo.getSelectedItem();
-        List<Project> list = controller.search(kw, cat, sort);
-        for (Project p : list) {
-            int progress = (int)Math.round(p.progress()*100);
-            tableModel.addRow(new Object[]{
-                p.projectId, p.name, p.category, p.target, p.deadline, p.raised, progress + "%"
-            });
+        int seq = ++reloadSeq;
+        searching = true;
+        updateBusy();
+        onEdt(async.search(kw, cat, sort, openOnlyBox.isSelected(), pageOffset, PAGE_SIZE), page -> {
+            if (seq != reloadSeq) return;
+            searching = false;
+            updateBusy();
+            if (page.items.isEmpty() && pageOffset > 0 && page.total > 0) {
+                pageOffset = Math.max(0, (page.total - 1) / PAGE_SIZE * PAGE_SIZE);
+                reloadTable();
+                return;
+            }
+            showPage(page);
+        });
+    }
+
+    private void showPage(ProjectPage page) {
+        int sel = table.getSelectedRow();
+        String selectedId = sel >= 0 ? tableModel.getProject(sel).projectId : null;
+        tableModel.setRows(page.items);
+        // keep the selected project selected when it is still listed
+        int keep = selectedId == null ? -1 : tableModel.indexOf(selectedId);
+        if (keep >= 0) {
+            if (table.getSelectedRow() != keep) table.setRowSelectionInterval(keep, keep);
+            else showSelectedDetail();
+        } else if (tableModel.getRowCount() > 0) {
+            table.setRowSelectionInterval(0, 0);
         }
-        if (tableModel.getRowCount() > 0) table.setRowSelectionInterval(0, 0);
+        int from = page.total == 0 ? 0 : pageOffset + 1;
+        pageLabel.setText(from + "–" + (pageOffset + page.items.size()) + " of " + page.total);
+        prevBtn.setEnabled(pageOffset > 0);
+        nextBtn.setEnabled(pageOffset + page.items.size() < page.total);
+    }
+
+    /** SwingWorker-style hand-off: the callback (or the error) always runs on the EDT. */
+    private <T> void onEdt(CompletableFuture<T> f, Consumer<T> done) {
+        f.whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> {
+            if (ex == null) { done.accept(v); return; }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof UncheckedIOException) status("I/O error: " + cause.getCause().getMessage());
+            else status("Error: " + cause);
+            searching = false;
+            updateBusy();
+        }));
+    }
+
+    private void updateBusy() {
+        int writes = async.pendingWrites();
+        busyBar.setVisible(writes > 0 || searching);
+        busyBar.setString(writes > 0 ? writes + " pledge(s) saving..." : "Loading...");
     }
 
     private void showSelectedDetail() {
@@ -179,15 +280,19 @@ public class MainFrame extends JFrame {
         lblName.setText("Name: " + p.name);
         lblCat.setText("Category: " + p.category);
         lblTarget.setText("Target: " + p.target);
-        lblDeadline.setText("Deadline: " + p.deadline + (p.deadline.isAfter(LocalDate.now()) ? " (valid)" : " (expired)"));
+        lblDeadline.setText("Deadline: " + p.deadline + (controller.isClosed(p) ? " (expired)" : " (valid)"));
         lblRaised.setText("Raised: " + p.raised);
         int progress = (int)Math.round(p.progress()*100);
         lblProgress.setText("Progress: " + progress + "%");
         progressBar.setValue(progress);
 
+        lblBackers.setText("Backers: " + controller.getBackerCount(id));
+
         tierListModel.clear();
+        Map<String, Double> fill = controller.getTierFillRates(id);
         for (RewardTier t : controller.getTiers(id)) {
-            tierListModel.addElement(t.tierName + " | min " + t.minAmount + " | quota " + t.quota);
+            int filled = (int)Math.round(fill.getOrDefault(t.tierName, 0.0)*100);
+            tierListModel.addElement(t.tierName + " | min " + t.minAmount + " | quota " + t.quota + " | filled " + filled + "%");
         }
     }
 
@@ -198,23 +303,122 @@ public class MainFrame extends JFrame {
         String amountStr = JOptionPane.showInputDialog(this, "Amount:");
         if (amountStr == null) return;
         String tier = JOptionPane.showInputDialog(this, "Tier name (blank = none):", "");
+        long amount;
         try {
-            long amount = Long.parseLong(amountStr.trim());
-            String msg = controller.pledge(id, amount, tier == null ? "" : tier.trim());
-            status(msg);
-            reloadTable();
+            amount = Long.parseLong(amountStr.trim());
         } catch (NumberFormatException ex) {
             status("Invalid amount.");
-        } catch (IOException ex) {
-            status("I/O error: " + ex.getMessage());
+            return;
         }
+        CompletableFuture<String> f = async.pledge(id, amount, tier == null ? "" : tier.trim());
+        status("Pledging to " + id + "...");
+        updateBusy();
+        onEdt(f, msg -> {
+            status(msg);
+            updateBusy();
+            reloadTable();
+        });
     }
 
     private void onStats() {
-        long success = controller.getSuccessCount();
-        long rejected = controller.getRejectedCount();
-        JOptionPane.showMessageDialog(this, "Successful pledges: " + success + "\nRejected pledges: " + rejected,
-                "Summary Stats", JOptionPane.INFORMATION_MESSAGE);
+        // every number below is a precomputed counter; nothing here scans the pledge list
+        PledgeAggregates agg = controller.getAggregates();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Successful pledges: ").append(controller.getSuccessCount()).append('\n');
+        sb.append("Rejected pledges: ").append(controller.getRejectedCount()).append('\n');
+        sb.append("Total raised: ").append(agg.total().raised()).append('\n');
+
+        sb.append("\nRejected by reason:\n");
+        agg.rejectedByReason().forEach((k, v) -> sb.append("  ").append(k).append(": ").append(v).append('\n'));
+
+        sb.append("\nBy category (success / rejected / raised):\n");
+        for (String cat : controller.listCategories()) {
+            appendCounts(sb, cat, agg.forCategory(cat));
+        }
+
+        int r = table.getSelectedRow();
+        if (r >= 0) {
+            String id = table.getValueAt(r, 0).toString();
+            sb.append("\nSelected project:\n");
+            appendCounts(sb, id, agg.forProject(id));
+        }
+        if (controller.getCurrentUser() != null) {
+            sb.append("\nCurrent user:\n");
+            appendCounts(sb, controller.getCurrentUser().username, agg.forUser(controller.getCurrentUser().userId));
+        }
+
+        sb.append("\nRaised per day (last 14 days with pledges):\n");
+        agg.raisedPerDay(14).forEach((d, v) -> sb.append("  ").append(d).append(": ").append(v).append('\n'));
+
+        sb.append("\nStartup load (ms): ").append(controller.getLoadTimings());
+        sb.append("\nSearch cache: ").append(controller.getSearchCacheStats());
+        sb.append("\nIdempotency keys: ").append(controller.getIdempotencyStats());
+        sb.append("\nCampaign expiry: ").append(controller.getExpiryStats());
+
+        JTextArea text = new JTextArea(sb.toString(), 20, 48);
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), "Summary Stats", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // non-modal, so it can stay open and keep refreshing while pledging
+    private void onMetrics() {
+        if (metricsDialog == null) {
+            metricsDialog = new JDialog(this, "Metrics", false);
+            metricsDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            metricsDialog.add(new MetricsPanel());
+            metricsDialog.pack();
+            metricsDialog.setLocationRelativeTo(this);
+            metricsDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override public void windowClosed(java.awt.event.WindowEvent e) { metricsDialog = null; }
+            });
+        }
+        metricsDialog.setVisible(true);
+        metricsDialog.toFront();
+    }
+
+    // non-modal like Metrics; the leaderboards refresh on their own
+    private void onTrending() {
+        if (trendingDialog == null) {
+            trendingDialog = new JDialog(this, "Trending", false);
+            trendingDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            trendingDialog.add(new TrendingPanel(controller));
+            trendingDialog.pack();
+            trendingDialog.setLocationRelativeTo(this);
+            trendingDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override public void windowClosed(java.awt.event.WindowEvent e) { trendingDialog = null; }
+            });
+        }
+        trendingDialog.setVisible(true);
+        trendingDialog.toFront();
+    }
+
+    private void onMyPledges() {
+        if (controller.getCurrentUser() == null) { status("Please login first."); return; }
+        StringBuilder sb = new StringBuilder();
+        for (Pledge pl : controller.getMyPledges()) {
+            sb.append(pl.pledgeId).append("  ").append(pl.datetime.toLocalDate()).append("  ").append(pl.projectId)
+              .append("  ").append(pl.amount).append(pl.tierName.isEmpty() ? "" : "  [" + pl.tierName + "]")
+              .append("  ").append(pl.status).append('\n');
+        }
+        if (sb.length() == 0) sb.append("No pledges yet.");
+        JTextArea text = new JTextArea(sb.toString(), 16, 56);
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(text),
+                "Pledges of " + controller.getCurrentUser().username, JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private static void appendCounts(StringBuilder sb, String label, PledgeAggregates.Counts c) {
+        sb.append("  ").append(label).append(": ")
+          .append(c.success()).append(" / ").append(c.rejected()).append(" / ").append(c.raised()).append('\n');
+    }
+
+    private void shutdown() {
+        async.close();
+        try {
+            controller.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     private void status(String s) { statusBar.setText(s); }
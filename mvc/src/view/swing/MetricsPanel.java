@@ -0,0 +1,63 @@
+package view.swing;
+
+import metrics.Metrics;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+/** Live view of {@link Metrics}: on/off switch, the report table refreshed every second, reset and dump-to-file. */
+class MetricsPanel extends JPanel {
+    private final JTextArea text = new JTextArea(22, 100);
+    private final Timer timer = new Timer(1000, e -> refresh());
+
+    MetricsPanel() {
+        super(new BorderLayout(6, 6));
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(text), BorderLayout.CENTER);
+
+        JCheckBox enabled = new JCheckBox("Collect metrics", Metrics.enabled());
+        enabled.addActionListener(e -> { Metrics.setEnabled(enabled.isSelected()); refresh(); });
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(e -> { Metrics.reset(); refresh(); });
+        JButton dump = new JButton("Dump...");
+        dump.addActionListener(e -> onDump());
+
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bar.add(enabled);
+        bar.add(reset);
+        bar.add(dump);
+        add(bar, BorderLayout.NORTH);
+        refresh();
+    }
+
+    private void refresh() {
+        text.setText(Metrics.enabled() ? Metrics.report() : "Collection is off. Tick \"Collect metrics\" (or start with -Dcrowdfund.metrics=true).\n\n" + Metrics.report());
+        text.setCaretPosition(0);
+    }
+
+    private void onDump() {
+        JFileChooser fc = new JFileChooser();
+        fc.setSelectedFile(new File("metrics.txt"));
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            Metrics.dump(fc.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Dump failed: " + ex.getMessage(), "Metrics", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+}
@@ -0,0 +1,76 @@
+package view.swing;
+
+import model.Project;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model that reads cells straight from the Project objects of the current listing.
+ * Nothing is copied per row; a refresh with the same rows only repaints rows whose raised changed.
+ */
+class ProjectTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"ID","Name","Category","Target","Deadline","Raised","Progress"};
+
+    private List<Project> rows = new ArrayList<>();
+    private long[] shownRaised = new long[0];
+
+    @Override public int getRowCount() { return rows.size(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int c) { return COLUMNS[c]; }
+    @Override public boolean isCellEditable(int r, int c) { return false; }
+
+    @Override
+    public Object getValueAt(int r, int c) {
+        Project p = rows.get(r);
+        switch (c) {
+            case 0: return p.projectId;
+            case 1: return p.name;
+            case 2: return p.category;
+            case 3: return p.target;
+            case 4: return p.deadline;
+            case 5: return shownRaised[r];
+            default: return (int)Math.round(progress(p.target, shownRaised[r])*100) + "%";
+        }
+    }
+
+    private static double progress(long target, long raised) {
+        if (target <= 0) return 0.0;
+        return Math.min(1.0, (double)raised / (double)target);
+    }
+
+    Project getProject(int r) { return rows.get(r); }
+
+    int indexOf(String projectId) {
+        for (int i = 0; i < rows.size(); i++) if (rows.get(i).projectId.equals(projectId)) return i;
+        return -1;
+    }
+
+    /**
+     * Shows a new listing. Same projects in the same order: fire updates only for rows whose raised moved.
+     * Otherwise the whole table is replaced.
+     */
+    void setRows(List<Project> next) {
+        if (sameRows(next)) {
+            for (int i = 0; i < rows.size(); i++) {
+                long raised = rows.get(i).raised;
+                if (raised != shownRaised[i]) {
+                    shownRaised[i] = raised;
+                    fireTableRowsUpdated(i, i);
+                }
+            }
+            return;
+        }
+        rows = next;
+        shownRaised = new long[next.size()];
+        for (int i = 0; i < next.size(); i++) shownRaised[i] = next.get(i).raised;
+        fireTableDataChanged();
+    }
+
+    private boolean sameRows(List<Project> next) {
+        if (next.size() != rows.size()) return false;
+        for (int i = 0; i < next.size(); i++) if (next.get(i) != rows.get(i)) return false;
+        return true;
+    }
+}
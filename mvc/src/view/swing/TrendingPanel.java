@@ -0,0 +1,88 @@
+package view.swing;
+
+import controller.CrowdfundController;
+import model.Project;
+import repo.TrendingIndex;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/** Live leaderboards from {@link TrendingIndex}: raised and backers in the chosen window, closest to target, categories. */
+class TrendingPanel extends JPanel {
+    private static final int ROWS = 10;
+
+    private final CrowdfundController controller;
+    private final JComboBox<TrendingIndex.Window> window = new JComboBox<>(TrendingIndex.Window.values());
+    private final JTextArea text = new JTextArea(30, 72);
+    private final Timer timer = new Timer(2000, e -> refresh());
+
+    TrendingPanel(CrowdfundController controller) {
+        super(new BorderLayout(6, 6));
+        this.controller = controller;
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(text), BorderLayout.CENTER);
+
+        window.setSelectedItem(TrendingIndex.Window.DAY);
+        window.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focus) {
+                return super.getListCellRendererComponent(list, "Last " + ((TrendingIndex.Window) value).label, index, selected, focus);
+            }
+        });
+        window.addActionListener(e -> refresh());
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bar.add(new JLabel("Window:"));
+        bar.add(window);
+        add(bar, BorderLayout.NORTH);
+        refresh();
+    }
+
+    private void refresh() {
+        TrendingIndex trending = controller.getTrending();
+        TrendingIndex.Window w = (TrendingIndex.Window) window.getSelectedItem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Most raised, last ").append(w.label).append(":\n");
+        appendRows(sb, trending.top(w, TrendingIndex.Metric.RAISED, ROWS), "");
+        sb.append("\nMost backers (successful pledges), last ").append(w.label).append(":\n");
+        appendRows(sb, trending.top(w, TrendingIndex.Metric.BACKERS, ROWS), " pledges");
+        sb.append("\nClosest to target (open, not yet funded):\n");
+        List<TrendingIndex.Entry> closest = trending.closestToTarget(ROWS);
+        for (int i = 0; i < closest.size(); i++) {
+            TrendingIndex.Entry e = closest.get(i);
+            Project p = controller.getProject(e.projectId);
+            sb.append(String.format("%3d. %-10s %-32s %6.1f%%  %d to go%n", i + 1, e.projectId, name(p),
+                    e.value / 10_000.0, p == null ? 0 : p.remaining()));
+        }
+        sb.append("\nCategories by raised, last ").append(w.label).append(":\n");
+        trending.categories(w, TrendingIndex.Metric.RAISED).forEach((c, v) -> sb.append(String.format("     %-43s %d%n", c, v)));
+        text.setText(sb.toString());
+        text.setCaretPosition(0);
+    }
+
+    private void appendRows(StringBuilder sb, List<TrendingIndex.Entry> rows, String unit) {
+        if (rows.isEmpty()) sb.append("     (no pledges in this window)\n");
+        for (int i = 0; i < rows.size(); i++) {
+            TrendingIndex.Entry e = rows.get(i);
+            sb.append(String.format("%3d. %-10s %-32s %d%s%n", i + 1, e.projectId, name(controller.getProject(e.projectId)), e.value, unit));
+        }
+    }
+
+    private static String name(Project p) {
+        if (p == null) return "?";
+        return p.name.length() > 32 ? p.name.substring(0, 31) + "…" : p.name;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+}
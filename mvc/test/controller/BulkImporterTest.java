@@ -0,0 +1,117 @@
+package controller;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import repo.DbOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static controller.PledgeStressTest.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Bulk import must end in the same state as one {@code pledge()} per request in input order. */
+class BulkImporterTest {
+    private static final String[] TIERS = {"", "", "Silver", "Gold", "Bronze"}; // Bronze does not exist
+
+    @TempDir
+    Path tmp;
+
+    private static List<PledgeRequest> requests(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<PledgeRequest> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String user = rnd.nextInt(50) == 0 ? "nobody" : "u" + (1 + rnd.nextInt(USERS));
+            String project = rnd.nextInt(50) == 0 ? "missing" : projectId(rnd.nextInt(PROJECTS));
+            long amount = rnd.nextInt(40) == 0 ? -rnd.nextInt(100) : 50 + rnd.nextInt(900);
+            out.add(new PledgeRequest(user, project, amount, TIERS[rnd.nextInt(TIERS.length)], null));
+        }
+        return out;
+    }
+
+    /** Everything the two runs must agree on: raised, quotas, rejected counter and each pledge's outcome in order. */
+    private static List<String> state(CrowdfundController c) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            Project p = c.getProject(projectId(i));
+            out.add(p.projectId + " raised " + p.raised);
+            for (RewardTier t : c.getTiers(p.projectId)) out.add(p.projectId + "/" + t.tierName + " quota " + t.quota);
+        }
+        out.add("rejected " + c.getRejectedCount());
+        for (Pledge pl : c.getPledgesSnapshot()) {
+            out.add(pl.userId + " " + pl.projectId + " " + pl.amount + " " + pl.tierName + " " + pl.status + " " + pl.reason);
+        }
+        return out;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "wal", "wal batch"})
+    void importMatchesSequentialPledges(String modes) throws Exception {
+        List<PledgeRequest> reqs = requests(3000, 42);
+        Path seqDir = Files.createDirectory(tmp.resolve("sequential")), bulkDir = Files.createDirectory(tmp.resolve("bulk"));
+        writeDataset(seqDir);
+        writeDataset(bulkDir);
+
+        List<String> expected;
+        try (CrowdfundController c = new CrowdfundController(seqDir, options(modes))) {
+            for (PledgeRequest q : reqs) c.pledgeAs(c.getUser(q.user), q.projectId, q.amount, q.tierName, null);
+            expected = state(c);
+        }
+        try (CrowdfundController c = new CrowdfundController(bulkDir, options(modes))) {
+            BulkImporter.Result r = c.importPledges(reqs.iterator(), 500);
+            assertEquals(6, r.checkpoints);
+            assertEquals(expected, state(c));
+        }
+        try (CrowdfundController c = new CrowdfundController(bulkDir, options(modes))) {
+            assertEquals(expected, state(c), "after reload");
+        }
+    }
+
+    // pledges racing an import on the same projects, then a crash: replaying the WAL must give the memory state
+    @ParameterizedTest
+    @ValueSource(strings = {"wal", "wal batch"})
+    void concurrentPledgesSurviveReplay(String modes) throws Exception {
+        writeDataset(tmp);
+        DbOptions opts = options(modes);
+        opts.checkpointEveryRecords = Long.MAX_VALUE; // no checkpoint while running: the reload replays the whole WAL
+        opts.checkpointEveryMillis = Long.MAX_VALUE;
+        try (CrowdfundController c = new CrowdfundController(tmp, opts)) {
+            ExecutorService pool = Executors.newFixedThreadPool(7);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                int seed = t;
+                running.add(pool.submit(() -> {
+                    Random rnd = new Random(seed);
+                    Session s = c.openSession("user" + (1 + seed));
+                    start.await();
+                    for (int i = 0; i < 1500; i++) c.pledge(s, projectId(rnd.nextInt(PROJECTS)), 1 + rnd.nextInt(99), "");
+                    return null;
+                }));
+            }
+            running.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < 5; round++) c.importPledges(requests(2000, 100 + round).iterator(), 10);
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> f : running) f.get();
+            pool.shutdown();
+
+            List<String> before = state(c), after;
+            // opened before c is closed, so nothing is checkpointed yet, as after a crash
+            try (CrowdfundController replayed = new CrowdfundController(tmp, opts)) {
+                after = state(replayed);
+            }
+            Collections.sort(before);   // racing pledges may be listed in another order, their effects may not differ
+            Collections.sort(after);
+            assertEquals(before, after);
+        }
+    }
+}
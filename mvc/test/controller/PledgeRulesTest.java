@@ -0,0 +1,34 @@
+package controller;
+
+import model.Project;
+import model.RejectReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repo.DbOptions;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PledgeRulesTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void nonPositiveAndOverflowingAmountsAreRejected() throws Exception {
+        PledgeStressTest.writeDataset(dir);
+        try (CrowdfundController c = new CrowdfundController(dir, new DbOptions())) {
+            Session s = c.openSession("user1");
+            String id = PledgeStressTest.projectId(0);
+            assertEquals(CrowdfundController.SUCCESS_MESSAGE, c.pledge(s, id, 100, ""));
+            for (long amount : new long[]{0, -500, Long.MAX_VALUE}) {
+                assertEquals(RejectReason.INVALID_AMOUNT.message, c.pledge(s, id, amount, ""));
+            }
+            assertEquals(RejectReason.INVALID_AMOUNT.message, c.pledge(s, id, -500, "Gold"));
+            Project p = c.getProject(id);
+            assertEquals(100, p.raised);
+            assertEquals(4, c.getRejectedCount());
+            assertEquals(PledgeStressTest.QUOTA, c.getTiers(id).stream().filter(t -> t.tierName.equals("Gold")).findFirst().get().quota);
+        }
+    }
+}
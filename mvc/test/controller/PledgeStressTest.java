@@ -0,0 +1,177 @@
+package controller;
+
+import model.Pledge;
+import model.Project;
+import model.RewardTier;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import repo.DbOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Multi-threaded pledge stress run on a throw-away data directory, once per storage mode.
+ * Checks that no tier quota is oversold, no raised update is lost and no pledge id repeats,
+ * both in memory and after reloading from disk.
+ * With {@code retry}, pledges carry idempotency keys and threads work in pairs sending the same keyed pledges
+ * at the same time, each resent once more; every key must be charged once and answer the same, also after reloading.
+ */
+class PledgeStressTest {
+    static final int PROJECTS = 8;
+    static final int USERS = 32;
+    static final int QUOTA = 50;
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 300;
+
+    @TempDir
+    Path dir;
+
+    /** Space-separated modes: wal, batch, columnar, segmented, retry. */
+    static DbOptions options(String modes) {
+        DbOptions opts = new DbOptions();
+        for (String m : modes.split(" ")) {
+            if ("wal".equals(m)) opts.wal = true;
+            if ("batch".equals(m)) opts.batchSize = 256;
+            if ("columnar".equals(m)) opts.columnarPledges = true;
+            if ("segmented".equals(m)) {
+                opts.segmentedPledges = true;
+                opts.segmentMaxBytes = 64 * 1024; // small, so the run rolls and seals several segments
+            }
+        }
+        return opts;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "wal", "wal batch", "columnar", "segmented", "retry", "wal batch retry"})
+    void concurrentPledgesKeepInvariants(String modes) throws Exception {
+        DbOptions opts = options(modes);
+        boolean retry = modes.contains("retry");
+        int streams = retry ? (THREADS + 1) / 2 : THREADS; // a pair of threads shares one stream of pledges
+
+        writeDataset(dir);
+        CrowdfundController c = new CrowdfundController(dir, opts);
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) sessions.add(c.openSession("user" + i));
+
+        AtomicLong[] expectedRaised = new AtomicLong[PROJECTS];
+        for (int i = 0; i < PROJECTS; i++) expectedRaised[i] = new AtomicLong();
+        ConcurrentHashMap<String, AtomicLong> soldPerTier = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, String> answers = new ConcurrentHashMap<>();   // key -> first answer seen
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int seed = retry ? t / 2 : t;
+            final boolean counts = !retry || t % 2 == 0; // in a pair, one thread keeps the books
+            futures.add(pool.submit(() -> {
+                Random rnd = new Random(seed);
+                start.await();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    int prj = rnd.nextInt(PROJECTS);
+                    String pid = projectId(prj);
+                    String tier = rnd.nextBoolean() ? "Gold" : (rnd.nextBoolean() ? "Silver" : "");
+                    long amount = 100 + rnd.nextInt(900);
+                    Session s = sessions.get(rnd.nextInt(sessions.size()));
+                    String key = retry ? "s" + seed + "-" + i : null;
+                    String msg = c.pledge(s, pid, amount, tier, key);
+                    if (retry) {
+                        String again = c.pledge(s, pid, amount, tier, key);
+                        String first = answers.putIfAbsent(s.user.userId + "/" + key, msg);
+                        if (!again.equals(msg) || (first != null && !first.equals(msg))) {
+                            errors.add("memory: key " + key + " answered " + msg + " / " + again + " / " + first);
+                        }
+                    }
+                    if (counts && msg.startsWith("Success")) {
+                        expectedRaised[prj].addAndGet(amount);
+                        if (!tier.isEmpty()) soldPerTier.computeIfAbsent(pid + "/" + tier, k -> new AtomicLong()).incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+
+        verify(c, expectedRaised, soldPerTier, streams * PER_THREAD, errors, "memory");
+        c.close();
+        CrowdfundController reloaded = new CrowdfundController(dir, opts);
+        if (retry) replayAll(reloaded, answers, errors);
+        verify(reloaded, expectedRaised, soldPerTier, streams * PER_THREAD, errors, "reloaded");
+        reloaded.close();
+
+        assertEquals(List.of(), errors);
+    }
+
+    private static void verify(CrowdfundController c, AtomicLong[] expectedRaised, Map<String, AtomicLong> sold,
+                               int totalPledges, List<String> errors, String phase) {
+        for (int i = 0; i < PROJECTS; i++) {
+            Project p = c.getProject(projectId(i));
+            if (p.raised != expectedRaised[i].get()) {
+                errors.add(phase + ": project " + p.projectId + " raised " + p.raised + " expected " + expectedRaised[i].get());
+            }
+            for (RewardTier t : c.getTiers(p.projectId)) {
+                AtomicLong n = sold.get(p.projectId + "/" + t.tierName);
+                long soldCount = n == null ? 0 : n.get();
+                if (soldCount > QUOTA) errors.add(phase + ": tier " + p.projectId + "/" + t.tierName + " oversold " + soldCount);
+                if (t.quota != QUOTA - soldCount) {
+                    errors.add(phase + ": tier " + p.projectId + "/" + t.tierName + " quota " + t.quota + " expected " + (QUOTA - soldCount));
+                }
+            }
+        }
+        List<Pledge> all = c.getPledgesSnapshot();
+        if (all.size() != totalPledges) errors.add(phase + ": " + all.size() + " pledges recorded, expected " + totalPledges);
+        Set<String> ids = new HashSet<>();
+        for (Pledge pl : all) {
+            if (!ids.add(pl.pledgeId)) errors.add(phase + ": duplicate pledge id " + pl.pledgeId);
+        }
+    }
+
+    // every retry pledge read back from disk must replay its first answer without pledging again
+    private static void replayAll(CrowdfundController c, Map<String, String> answers, List<String> errors) throws Exception {
+        Map<String, Pledge> byKey = new HashMap<>();
+        for (Pledge pl : c.getPledgesSnapshot()) byKey.put(pl.userId + "/" + pl.idempotencyKey, pl);
+        for (Map.Entry<String, String> e : answers.entrySet()) {
+            Pledge pl = byKey.get(e.getKey());
+            if (pl == null) {
+                errors.add("reloaded: no pledge stored for key " + e.getKey());
+                continue;
+            }
+            Session s = c.openSession("user" + pl.userId.substring(1));
+            String msg = c.pledge(s, pl.projectId, pl.amount, pl.tierName, pl.idempotencyKey);
+            if (!msg.equals(e.getValue())) errors.add("reloaded: key " + e.getKey() + " answered " + msg + " expected " + e.getValue());
+        }
+    }
+
+    static String projectId(int i) { return String.valueOf(10_000_000 + i); }
+
+    /** PROJECTS open projects with a Silver (min 100) and a Gold (min 500) tier of QUOTA each, USERS users user1.. */
+    static void writeDataset(Path dir) throws Exception {
+        List<String> projects = new ArrayList<>(List.of("projectId,name,category,target,deadline,raised"));
+        List<String> tiers = new ArrayList<>(List.of("projectId,tierName,minAmount,quota"));
+        LocalDate deadline = LocalDate.now().plusYears(1);
+        for (int i = 0; i < PROJECTS; i++) {
+            projects.add(projectId(i) + ",Stress " + i + ",Tech,1000000," + deadline + ",0");
+            tiers.add(projectId(i) + ",Silver,100," + QUOTA);
+            tiers.add(projectId(i) + ",Gold,500," + QUOTA);
+        }
+        List<String> users = new ArrayList<>(List.of("userId,username"));
+        for (int i = 1; i <= USERS; i++) users.add("u" + i + ",user" + i);
+        Files.write(dir.resolve("projects.csv"), projects, StandardCharsets.UTF_8);
+        Files.write(dir.resolve("reward_tiers.csv"), tiers, StandardCharsets.UTF_8);
+        Files.write(dir.resolve("users.csv"), users, StandardCharsets.UTF_8);
+        Files.write(dir.resolve("stats.csv"), List.of("key,value", "rejectedCount,0"), StandardCharsets.UTF_8);
+    }
+}
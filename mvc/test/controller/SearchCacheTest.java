@@ -0,0 +1,81 @@
+package controller;
+
+import model.Project;
+import org.junit.jupiter.api.Test;
+import repo.ProjectOrder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCacheTest {
+    private static Project project(String id, String name, String category) {
+        return new Project(id, name, category, 1000, LocalDate.of(2030, 1, 1), 0);
+    }
+
+    private static SearchCache.Key raised(String kw, String category) {
+        return new SearchCache.Key(kw, category, ProjectOrder.RAISED_DESC, false);
+    }
+
+    private static void cache(SearchCache c, SearchCache.Key key, List<Project> list) {
+        c.put(c.begin(key), list);
+    }
+
+    @Test
+    void raisedChangeDropsOnlyMatchingLists() {
+        Project lamp = project("p1", "Solar Lamp", "Tech"), kite = project("p2", "Kite", "Art");
+        SearchCache c = new SearchCache(100, 1000);
+        SearchCache.Key all = raised("", null), tech = raised("", "Tech"), art = raised("", "art"), solar = raised("solar", null);
+        SearchCache.Key byName = new SearchCache.Key("", null, ProjectOrder.ID_ASC, false);
+        for (SearchCache.Key k : List.of(all, tech, art, solar, byName)) cache(c, k, List.of());
+
+        c.raisedChanged(kite);
+        assertNull(c.get(all));
+        assertNull(c.get(art));
+        assertNotNull(c.get(tech));
+        assertNotNull(c.get(solar));
+        assertNotNull(c.get(byName));
+
+        c.raisedChanged(lamp);
+        assertNull(c.get(tech));
+        assertNull(c.get(solar));
+        assertNotNull(c.get(byName));
+        assertEquals(4, c.stats().get("invalidations"));
+    }
+
+    @Test
+    void changeDuringComputationOnlyBlocksMatchingLists() {
+        Project lamp = project("p1", "Solar Lamp", "Tech"), kite = project("p2", "Kite", "Art");
+        SearchCache c = new SearchCache(100, 1000);
+        SearchCache.Key tech = raised("", "tech"), art = raised("", "Art");
+
+        SearchCache.Pending forTech = c.begin(tech), forArt = c.begin(art);
+        c.raisedChanged(kite);   // pledges elsewhere keep going while the lists are sorted
+        c.put(forTech, List.of(lamp));
+        c.put(forArt, List.of(kite));
+        assertEquals(List.of(lamp), c.get(tech));
+        assertNull(c.get(art));
+
+        // not cacheable (too many matches): ends the computation all the same
+        c.put(c.begin(art), null);
+        cache(c, art, List.of(kite));
+        assertEquals(List.of(kite), c.get(art));
+    }
+
+    @Test
+    void evictionAndClearForgetTrackedLists() {
+        Project kite = project("p2", "Kite", "Art");
+        SearchCache c = new SearchCache(1, 1000);
+        cache(c, raised("", "Art"), List.of(kite));
+        cache(c, raised("k", null), List.of(kite));   // evicts the first
+        assertEquals(1, c.stats().get("evictions"));
+        c.raisedChanged(kite);
+        assertEquals(0, c.stats().get("entries"));
+
+        SearchCache.Pending inFlight = c.begin(raised("", null));
+        c.clear();
+        c.put(inFlight, List.of(kite));
+        assertEquals(0, c.stats().get("entries"));
+    }
+}
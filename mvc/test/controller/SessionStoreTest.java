@@ -0,0 +1,40 @@
+package controller;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+    private static final User ALICE = new User("u1", "alice");
+
+    @Test
+    void tokensExpireAfterTtl() throws Exception {
+        SessionStore store = new SessionStore(100, 50);
+        Session s = store.open(ALICE);
+        assertSame(s, store.find(s.token));
+        Thread.sleep(80);
+        assertNull(store.find(s.token));
+        assertEquals(1L, store.stats().get("expired"));
+        assertEquals(0L, store.stats().get("open"));
+    }
+
+    @Test
+    void oldestSessionsAreDroppedBeyondTheCap() {
+        SessionStore store = new SessionStore(3, 60_000);
+        Session first = store.open(ALICE);
+        for (int i = 0; i < 3; i++) store.open(ALICE);
+        assertNull(store.find(first.token));
+        assertEquals(3L, store.stats().get("open"));
+        assertEquals(1L, store.stats().get("evictions"));
+    }
+
+    @Test
+    void closedTokensAreGone() {
+        SessionStore store = new SessionStore(10, 60_000);
+        Session s = store.open(ALICE);
+        store.close(s.token);
+        assertNull(store.find(s.token));
+        assertNull(store.find(null));
+    }
+}
@@ -0,0 +1,61 @@
+package repo;
+
+import model.Pledge;
+import model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PledgeAggregatesTest {
+    private static final String[] REASONS = {"QUOTA_EXHAUSTED", "BELOW_TIER_MIN", "", "SOMETHING_OLD"};
+
+    private static List<String> counts(PledgeAggregates a, Collection<String> projects, Collection<String> users) {
+        List<String> out = new ArrayList<>();
+        a.summary().forEach((k, v) -> out.add(k + "=" + v));
+        for (String id : projects) {
+            PledgeAggregates.Counts c = a.forProject(id);
+            out.add(id + " " + c.success() + "/" + c.rejected() + "/" + c.raised());
+        }
+        for (String id : users) {
+            PledgeAggregates.Counts c = a.forUser(id);
+            out.add(id + " " + c.success() + "/" + c.rejected() + "/" + c.raised());
+        }
+        out.add(a.rejectedByReason().toString());
+        out.add(a.raisedPerDay(Integer.MAX_VALUE).toString());
+        return out;
+    }
+
+    @Test
+    void columnScanMatchesPerPledgeRebuild() {
+        Map<String, Project> projects = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            projects.put("p" + i, new Project("p" + i, "P" + i, i % 3 == 0 ? "Art" : "Tech", 1000, LocalDate.of(2030, 1, 1), 0));
+        }
+        Random rnd = new Random(3);
+        List<Pledge> rows = new ArrayList<>();
+        ColumnarPledgeStore store = new ColumnarPledgeStore();
+        LocalDateTime t = LocalDateTime.of(2026, 3, 1, 0, 0);
+        for (int i = 0; i < 200_000; i++) {   // spans several chunks
+            t = rnd.nextInt(10) == 0 ? t.minusHours(30) : t.plusMinutes(rnd.nextInt(20)); // mostly in time order
+            boolean ok = rnd.nextInt(4) != 0;
+            Pledge pl = new Pledge("pl" + (i + 1), "u" + rnd.nextInt(300), "p" + rnd.nextInt(22), t, 1 + rnd.nextInt(1000),
+                    "", ok ? "SUCCESS" : "REJECTED", ok ? "" : REASONS[rnd.nextInt(REASONS.length)]);
+            rows.add(pl);
+            store.add(pl);
+        }
+        PledgeAggregates perPledge = new PledgeAggregates(), columns = new PledgeAggregates();
+        perPledge.rebuild(rows, projects);
+        columns.rebuild(store, projects);
+
+        Set<String> projectIds = new TreeSet<>(), userIds = new TreeSet<>();
+        for (Pledge pl : rows) {
+            projectIds.add(pl.projectId);
+            userIds.add(pl.userId);
+        }
+        assertEquals(counts(perPledge, projectIds, userIds), counts(columns, projectIds, userIds));
+    }
+}
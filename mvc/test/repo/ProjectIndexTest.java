@@ -0,0 +1,53 @@
+package repo;
+
+import model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProjectIndexTest {
+    private static final String[] WORDS = {"Solar", "Kite", "Garden", "Robot", "Lamp", "Tea", "Zine", "Ünïcode"};
+    private static final String[] CATEGORIES = {"Tech", "Art", "Food"};
+
+    // the scan the index replaces
+    private static List<Project> scan(List<Project> all, String kw, String category) {
+        List<Project> out = new ArrayList<>();
+        for (Project p : all) {
+            if (category != null && !p.category.equalsIgnoreCase(category)) continue;
+            if (kw.isEmpty() || p.name.toLowerCase().contains(kw) || p.projectId.contains(kw)) out.add(p);
+        }
+        out.sort(Comparator.comparing(p -> p.projectId));
+        return out;
+    }
+
+    @Test
+    void queryMatchesFullScan() {
+        Random rnd = new Random(7);
+        List<Project> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String id = i % 10 == 0 ? "AB" + i : String.valueOf(10_000_000 + rnd.nextInt(90_000_000));
+            String name = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + i;
+            all.add(new Project(id, name, CATEGORIES[rnd.nextInt(CATEGORIES.length)], 1000, LocalDate.of(2030, 1, 1), 0));
+        }
+        ProjectIndex idx = new ProjectIndex();
+        idx.rebuild(all);
+        assertEquals(all.size(), idx.size());
+
+        List<String> keywords = new ArrayList<>(List.of("", "1", "12", "123", "1234", "ab", "ab1", "ab10", "AB1",
+                "solar", "lar ki", "kite 1", "ünï", "code 19", "zzz", "e", "en r", "robot robot"));
+        for (int i = 0; i < 200; i++) {
+            Project p = all.get(rnd.nextInt(all.size()));
+            String text = rnd.nextBoolean() ? p.projectId : p.name.toLowerCase();
+            int from = rnd.nextInt(text.length()), to = Math.min(text.length(), from + 1 + rnd.nextInt(6));
+            keywords.add(text.substring(from, to));
+        }
+        for (String kw : keywords) {
+            for (String category : new String[]{null, "tech", "Food", "Music"}) {
+                assertEquals(scan(all, kw, category), idx.query(kw, category), kw + " / " + category);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package repo;
+
+import model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProjectOrderIndexTest {
+    private static Project project(int i, boolean closed) {
+        Project p = new Project("p" + i, "Project " + i, "Tech", 1000, LocalDate.of(2030, 1, 1).plusDays(i % 7), i * 10L);
+        p.closed = closed;
+        return p;
+    }
+
+    @Test
+    void sizesFollowAddCloseAndRebuild() {
+        List<Project> all = new ArrayList<>();
+        for (int i = 0; i < 50; i++) all.add(project(i, i % 5 == 0));
+        ProjectOrderIndex idx = new ProjectOrderIndex();
+        idx.rebuild(all);
+        assertEquals(50, idx.size());
+        assertEquals(40, idx.openSize());
+
+        idx.add(all.get(1)); // already indexed: counted once
+        assertEquals(50, idx.size());
+        assertEquals(40, idx.openSize());
+
+        Project p = all.get(1);
+        idx.addRaised(p, 5);
+        p.closed = true;
+        idx.close(p);
+        idx.close(p);
+        assertEquals(50, idx.size());
+        assertEquals(39, idx.openSize());
+        for (ProjectOrder order : ProjectOrder.values()) {
+            assertEquals(idx.size(), idx.walk(order, null).size(), order.name());
+            assertEquals(idx.openSize(), idx.walk(order, null, true).size(), order.name());
+        }
+
+        idx.rebuild(all.subList(0, 10));
+        assertEquals(10, idx.size());
+        assertEquals(7, idx.openSize());
+    }
+}
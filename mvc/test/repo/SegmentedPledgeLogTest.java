@@ -0,0 +1,77 @@
+package repo;
+
+import model.Pledge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedPledgeLogTest {
+    private static final int MAX_BYTES = 16 * 1024;
+
+    @TempDir
+    Path dir;
+
+    // tier names of 2- and 3-byte UTF-8 characters: a line has far more bytes than chars
+    @Test
+    void segmentsRollAndCountInBytes() throws Exception {
+        DbOptions opts = new DbOptions();
+        opts.segmentedPledges = true;
+        opts.segmentMaxBytes = MAX_BYTES;
+        opts.segmentRollDaily = false;
+        long lineBytes = 0, maxLine = 0;
+        try (SegmentedPledgeLog log = new SegmentedPledgeLog(dir, opts, CsvDb.PLEDGE_HEADER)) {
+            LocalDateTime t = LocalDateTime.of(2026, 5, 1, 12, 0);
+            List<Pledge> batch = new ArrayList<>();
+            for (int i = 1; i <= 3000; i++) {
+                Pledge pl = new Pledge("pl" + i, "u" + (i % 40), "p" + (i % 9), t.plusSeconds(i), 100 + i,
+                        "Ünïcødé ★ 金賞 " + (i % 5), "SUCCESS", "");
+                int n = CsvDb.pledgeLine(pl).getBytes(StandardCharsets.UTF_8).length + 1;
+                lineBytes += n;
+                maxLine = Math.max(maxLine, n);
+                if (i % 3 == 0) {
+                    log.append(pl);
+                } else {
+                    batch.add(pl);
+                    if (batch.size() == 4) {
+                        log.appendBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            log.appendBatch(batch);
+        }
+
+        long sealedRaw = 0, activeRows = 0, activeBytes = 0;
+        int sealedCount = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir.resolve(SegmentedPledgeLog.DIR))) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".pseg")) {
+                    SegmentedPledgeLog.Footer f;
+                    try (FileChannel fc = FileChannel.open(p, StandardOpenOption.READ)) { f = SegmentedPledgeLog.Footer.read(fc); }
+                    // rolls once the segment reaches MAX_BYTES, so at most one append (up to 4 lines) past it
+                    assertTrue(f.rawBytes < MAX_BYTES + 4 * maxLine, name + " holds " + f.rawBytes + " bytes");
+                    sealedRaw += f.rawBytes;
+                    sealedCount++;
+                } else if (name.endsWith(".csv")) {
+                    activeBytes += Files.size(p) - (CsvDb.PLEDGE_HEADER.length() + 1);
+                    activeRows += Files.readAllLines(p, StandardCharsets.UTF_8).size() - 1;
+                }
+            }
+        }
+        assertTrue(sealedCount > 1);
+        assertTrue(activeRows > 0);
+        assertEquals(lineBytes, sealedRaw + activeBytes);
+    }
+}